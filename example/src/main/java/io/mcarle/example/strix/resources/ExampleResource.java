@@ -4,6 +4,7 @@ import io.mcarle.example.strix.db.Author;
 import io.mcarle.example.strix.db.AuthorRepository;
 import io.mcarle.example.strix.db.Book;
 import io.mcarle.example.strix.db.BookRepository;
+import io.mcarle.strix.Strix;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
@@ -41,11 +42,14 @@ public class ExampleResource {
           @FormParam("pages") int pages,
           @FormParam("author") String author
     ) {
-        Book book = new Book();
-        book.setName(name);
-        book.setPages(pages);
-        book.setAuthor(authorRepository.byName(author));
-        return bookRepository.save(book);
+        // One EntityManager and transaction for both repositories, so the author stays managed and is not reloaded
+        return Strix.unitOfWork("", true, () -> {
+            Book book = new Book();
+            book.setName(name);
+            book.setPages(pages);
+            book.setAuthor(authorRepository.byName(author));
+            return bookRepository.save(book);
+        });
     }
 
     @GET
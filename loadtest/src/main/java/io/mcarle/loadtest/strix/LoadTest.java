@@ -0,0 +1,211 @@
+package io.mcarle.loadtest.strix;
+
+import io.mcarle.loadtest.strix.db.Author;
+import io.mcarle.loadtest.strix.db.AuthorRepository;
+import io.mcarle.loadtest.strix.db.PublishingService;
+import io.mcarle.strix.Strix;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives the {@link PublishingService} with a configurable mix of reads and writes from concurrent threads and reports
+ * throughput, latency percentiles, thread creation and GC pauses. See {@link LoadTestConfig} for the options.
+ */
+public class LoadTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadTest.class);
+
+    private final LoadTestConfig config;
+    private final PublishingService publishingService = new PublishingService();
+    private final AtomicLong nameSequence = new AtomicLong();
+    private final String payload;
+    private long[] authorIds;
+
+    LoadTest(LoadTestConfig config) {
+        this.config = config;
+        char[] chars = new char[config.payloadSize];
+        Arrays.fill(chars, 'x');
+        this.payload = new String(chars);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        LoadTestConfig config = new LoadTestConfig();
+        LOG.info("Run load test with {}", config);
+        Strix.startup();
+        try {
+            new LoadTest(config).run();
+        } finally {
+            Strix.shutdown();
+        }
+    }
+
+    void run() throws InterruptedException {
+        seed();
+        if (config.warmupSeconds > 0) {
+            LOG.info("Warm up for {} seconds", config.warmupSeconds);
+            execute(config.warmupSeconds);
+        }
+        LOG.info("Measure for {} seconds", config.durationSeconds);
+        RuntimeSampler sampler = new RuntimeSampler();
+        sampler.start(config.sampleIntervalMillis);
+        long start = System.nanoTime();
+        List<Worker> workers = execute(config.durationSeconds);
+        long elapsedNanos = System.nanoTime() - start;
+        report(workers, sampler.stop(), elapsedNanos);
+    }
+
+    private void seed() {
+        LOG.info("Seed {} authors with {} books each", config.seedAuthors, config.seedBooksPerAuthor);
+        AuthorRepository authorRepository = new AuthorRepository();
+        authorIds = new long[config.seedAuthors];
+        for (int i = 0; i < config.seedAuthors; i++) {
+            Author author = new Author();
+            author.setName("author-" + nameSequence.incrementAndGet());
+            authorIds[i] = authorRepository.save(author).getId();
+            for (int j = 0; j < config.seedBooksPerAuthor; j++) {
+                publishingService.publish(authorIds[i], "book-" + nameSequence.incrementAndGet(), payload);
+            }
+        }
+    }
+
+    private List<Worker> execute(int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < config.threads; i++) {
+            Worker worker = new Worker(deadline);
+            worker.thread = new Thread(worker, "LOADTEST-WORKER-" + i);
+            workers.add(worker);
+        }
+        workers.forEach(worker -> worker.thread.start());
+        for (Worker worker : workers) {
+            worker.thread.join();
+        }
+        return workers;
+    }
+
+    private Operation nextOperation(ThreadLocalRandom random) {
+        if (random.nextDouble() < config.writeRatio) {
+            double variant = random.nextDouble();
+            if (variant < config.requiresNewRatio) {
+                return Operation.WRITE_REQUIRES_NEW;
+            } else if (variant < config.requiresNewRatio + config.timeoutRatio) {
+                return Operation.WRITE_WITH_TIMEOUT;
+            }
+            return Operation.WRITE;
+        }
+        return random.nextDouble() < config.timeoutRatio ? Operation.READ_WITH_TIMEOUT : Operation.READ;
+    }
+
+    private void execute(Operation operation, ThreadLocalRandom random) {
+        long authorId = authorIds[random.nextInt(authorIds.length)];
+        switch (operation) {
+            case READ:
+                publishingService.read(authorId, config.readMaxResults);
+                break;
+            case READ_WITH_TIMEOUT:
+                publishingService.readWithTimeout(authorId, config.readMaxResults);
+                break;
+            case WRITE:
+                publishingService.publish(authorId, "book-" + nameSequence.incrementAndGet(), payload);
+                break;
+            case WRITE_WITH_TIMEOUT:
+                publishingService.publishWithTimeout(authorId, "book-" + nameSequence.incrementAndGet(), payload);
+                break;
+            case WRITE_REQUIRES_NEW:
+                publishingService.publishWithNewAuthor(
+                      "author-" + nameSequence.incrementAndGet(),
+                      "book-" + nameSequence.incrementAndGet(),
+                      payload
+                );
+                break;
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    private void report(List<Worker> workers, RuntimeSampler.Result runtime, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        LatencyHistogram total = new LatencyHistogram();
+        long totalErrors = 0;
+        StringBuilder report = new StringBuilder("\n");
+        report.append(String.format("%-20s %10s %8s %10s %10s %10s %10s %10s%n",
+              "operation", "count", "errors", "ops/s", "p50 [us]", "p99 [us]", "p999 [us]", "max [us]"));
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            long errors = 0;
+            for (Worker worker : workers) {
+                histogram.add(worker.histograms[operation.ordinal()]);
+                errors += worker.errors[operation.ordinal()];
+            }
+            total.add(histogram);
+            totalErrors += errors;
+            appendLine(report, operation.name(), histogram, errors, seconds);
+        }
+        appendLine(report, "TOTAL", total, totalErrors, seconds);
+        report.append(String.format("%nthreads: %d at start, %d max, %d started (%.2f per 1000 operations)%n",
+              runtime.threadsAtStart,
+              runtime.maxThreads,
+              runtime.startedThreads,
+              total.getTotalCount() == 0 ? 0.0 : runtime.startedThreads * 1000.0 / total.getTotalCount()));
+        report.append(String.format("gc pauses: %d, total %d ms, p99 %d ms, max %d ms%n",
+              runtime.gcPauses.getTotalCount(),
+              runtime.gcTimeMillis,
+              TimeUnit.NANOSECONDS.toMillis(runtime.gcPauses.percentile(99)),
+              TimeUnit.NANOSECONDS.toMillis(runtime.gcPauses.getMax())));
+        LOG.info("Load test finished after {} s:{}", String.format("%.1f", seconds), report);
+    }
+
+    private static void appendLine(StringBuilder report, String name, LatencyHistogram histogram, long errors, double seconds) {
+        report.append(String.format("%-20s %10d %8d %10.1f %10d %10d %10d %10d%n",
+              name,
+              histogram.getTotalCount(),
+              errors,
+              histogram.getTotalCount() / seconds,
+              TimeUnit.NANOSECONDS.toMicros(histogram.percentile(50)),
+              TimeUnit.NANOSECONDS.toMicros(histogram.percentile(99)),
+              TimeUnit.NANOSECONDS.toMicros(histogram.percentile(99.9)),
+              TimeUnit.NANOSECONDS.toMicros(histogram.getMax())));
+    }
+
+    enum Operation {
+        READ, READ_WITH_TIMEOUT, WRITE, WRITE_WITH_TIMEOUT, WRITE_REQUIRES_NEW
+    }
+
+    private final class Worker implements Runnable {
+
+        private final long deadline;
+        private final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+        private final long[] errors = new long[Operation.values().length];
+        private Thread thread;
+
+        private Worker(long deadline) {
+            this.deadline = deadline;
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() - deadline < 0) {
+                Operation operation = nextOperation(random);
+                long start = System.nanoTime();
+                try {
+                    execute(operation, random);
+                } catch (RuntimeException ex) {
+                    errors[operation.ordinal()]++;
+                    LOG.debug("Operation {} failed", operation, ex);
+                }
+                histograms[operation.ordinal()].record(System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package io.mcarle.loadtest.strix;
+
+/**
+ * Configuration of the load test, read from system properties with prefix {@code loadtest.}, e.g.
+ * {@code -Dloadtest.threads=32}.
+ */
+public final class LoadTestConfig {
+
+    final int threads = intProperty("threads", 8);
+    final int warmupSeconds = intProperty("warmupSeconds", 5);
+    final int durationSeconds = intProperty("durationSeconds", 30);
+    final double writeRatio = doubleProperty("writeRatio", 0.2);
+    final double requiresNewRatio = doubleProperty("requiresNewRatio", 0.1);
+    final double timeoutRatio = doubleProperty("timeoutRatio", 0.1);
+    final int payloadSize = intProperty("payloadSize", 256);
+    final int seedAuthors = intProperty("seedAuthors", 100);
+    final int seedBooksPerAuthor = intProperty("seedBooksPerAuthor", 10);
+    final int readMaxResults = intProperty("readMaxResults", 20);
+    final int sampleIntervalMillis = intProperty("sampleIntervalMillis", 100);
+
+    private static int intProperty(String name, int defaultValue) {
+        return Integer.parseInt(System.getProperty("loadtest." + name, String.valueOf(defaultValue)));
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        return Double.parseDouble(System.getProperty("loadtest." + name, String.valueOf(defaultValue)));
+    }
+
+    @Override
+    public String toString() {
+        return "threads=" + threads +
+              ", warmupSeconds=" + warmupSeconds +
+              ", durationSeconds=" + durationSeconds +
+              ", writeRatio=" + writeRatio +
+              ", requiresNewRatio=" + requiresNewRatio +
+              ", timeoutRatio=" + timeoutRatio +
+              ", payloadSize=" + payloadSize +
+              ", seedAuthors=" + seedAuthors +
+              ", seedBooksPerAuthor=" + seedBooksPerAuthor +
+              ", readMaxResults=" + readMaxResults +
+              ", sampleIntervalMillis=" + sampleIntervalMillis;
+    }
+}
@@ -0,0 +1,103 @@
+package io.mcarle.loadtest.strix;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the thread counts periodically and records every GC pause while the load test is running.
+ */
+final class RuntimeSampler implements NotificationListener {
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final LatencyHistogram gcPauses = new LatencyHistogram();
+    private ScheduledExecutorService scheduler;
+    private long startedThreadsAtStart;
+    private int threadsAtStart;
+    private int maxThreads;
+    private long gcTimeMillis;
+
+    synchronized void start(int sampleIntervalMillis) {
+        startedThreadsAtStart = threadBean.getTotalStartedThreadCount();
+        threadsAtStart = threadBean.getThreadCount();
+        maxThreads = threadsAtStart;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gcBean instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) gcBean;
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LOADTEST-SAMPLER");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::sample, 0, sampleIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized Result stop() {
+        scheduler.shutdownNow();
+        sample();
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (Exception ignored) {
+                // listener was not registered
+            }
+        }
+        emitters.clear();
+        return new Result(
+              threadsAtStart,
+              maxThreads,
+              threadBean.getTotalStartedThreadCount() - startedThreadsAtStart,
+              gcPauses,
+              gcTimeMillis
+        );
+    }
+
+    private synchronized void sample() {
+        maxThreads = Math.max(maxThreads, threadBean.getThreadCount());
+    }
+
+    @Override
+    public synchronized void handleNotification(Notification notification, Object handback) {
+        if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from(
+                  (CompositeData) notification.getUserData()
+            );
+            long durationMillis = info.getGcInfo().getDuration();
+            gcTimeMillis += durationMillis;
+            gcPauses.record(TimeUnit.MILLISECONDS.toNanos(durationMillis));
+        }
+    }
+
+    static final class Result {
+
+        final int threadsAtStart;
+        final int maxThreads;
+        final long startedThreads;
+        final LatencyHistogram gcPauses;
+        final long gcTimeMillis;
+
+        private Result(int threadsAtStart, int maxThreads, long startedThreads, LatencyHistogram gcPauses, long gcTimeMillis) {
+            this.threadsAtStart = threadsAtStart;
+            this.maxThreads = maxThreads;
+            this.startedThreads = startedThreads;
+            this.gcPauses = gcPauses;
+            this.gcTimeMillis = gcTimeMillis;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package io.mcarle.loadtest.strix.db;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+@Entity
+public class Author implements Serializable {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @Column(unique = true)
+    @Basic(optional = false)
+    private String name;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
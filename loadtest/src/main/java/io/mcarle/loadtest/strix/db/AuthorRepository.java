@@ -0,0 +1,22 @@
+package io.mcarle.loadtest.strix.db;
+
+import io.mcarle.strix.annotation.Transactional;
+
+import static io.mcarle.strix.Strix.em;
+
+@Transactional
+public class AuthorRepository {
+
+    public Author save(Author author) {
+        return em().merge(author);
+    }
+
+    @Transactional(requiresNew = true)
+    public Author saveInNewTransaction(Author author) {
+        return em().merge(author);
+    }
+
+    public Author byId(long id) {
+        return em().find(Author.class, id);
+    }
+}
@@ -0,0 +1,54 @@
+package io.mcarle.loadtest.strix.db;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+@Entity
+public class Book implements Serializable {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @Column(unique = true)
+    @Basic(optional = false)
+    private String name;
+
+    @Lob
+    private String content;
+
+    @ManyToOne(optional = false)
+    private Author author;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Author getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(Author author) {
+        this.author = author;
+    }
+}
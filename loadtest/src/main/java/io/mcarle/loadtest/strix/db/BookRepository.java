@@ -0,0 +1,26 @@
+package io.mcarle.loadtest.strix.db;
+
+import io.mcarle.strix.annotation.Transactional;
+
+import java.util.List;
+
+import static io.mcarle.strix.Strix.em;
+
+@Transactional
+public class BookRepository {
+
+    public Book save(Book book) {
+        return em().merge(book);
+    }
+
+    public Book byId(long id) {
+        return em().find(Book.class, id);
+    }
+
+    public List<Book> listByAuthor(long authorId, int maxResults) {
+        return em().createQuery("SELECT b FROM Book b WHERE b.author.id = :id", Book.class)
+              .setParameter("id", authorId)
+              .setMaxResults(maxResults)
+              .getResultList();
+    }
+}
@@ -0,0 +1,49 @@
+package io.mcarle.loadtest.strix.db;
+
+import io.mcarle.strix.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Combines the repositories to the operations of the load test, so that joined transactions, transactions with
+ * {@code requiresNew} and transactions with a timeout are executed.
+ */
+@Transactional
+public class PublishingService {
+
+    private final AuthorRepository authorRepository = new AuthorRepository();
+    private final BookRepository bookRepository = new BookRepository();
+
+    public List<Book> read(long authorId, int maxResults) {
+        authorRepository.byId(authorId);
+        return bookRepository.listByAuthor(authorId, maxResults);
+    }
+
+    @Transactional(timeout = 10_000)
+    public List<Book> readWithTimeout(long authorId, int maxResults) {
+        return read(authorId, maxResults);
+    }
+
+    public Book publish(long authorId, String name, String content) {
+        Book book = new Book();
+        book.setName(name);
+        book.setContent(content);
+        book.setAuthor(authorRepository.byId(authorId));
+        return bookRepository.save(book);
+    }
+
+    @Transactional(timeout = 10_000)
+    public Book publishWithTimeout(long authorId, String name, String content) {
+        return publish(authorId, name, content);
+    }
+
+    /**
+     * Saves the author in a new transaction, which is executed in its own thread, before the book is saved
+     */
+    public Book publishWithNewAuthor(String authorName, String name, String content) {
+        Author author = new Author();
+        author.setName(authorName);
+        author = authorRepository.saveInNewTransaction(author);
+        return publish(author.getId(), name, content);
+    }
+}
@@ -0,0 +1,290 @@
+package io.mcarle.strix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Imports many entities in parallel. The source is read on the calling thread and partitioned into chunks, which are
+ * written by a bounded pool of worker threads, each chunk in its own transaction. Virtual threads are used, if the JVM
+ * supports them. The reader waits, if all workers are busy and enough chunks are queued, so only a bounded amount of
+ * rows is held in memory.
+ * <pre>
+ * BulkImportProgress result = Strix.&lt;Book&gt;bulkImport("library")
+ *       .chunkSize(1000)
+ *       .parallelism(8)
+ *       .maxRetries(2)
+ *       .skipFailedChunks(true)
+ *       .onProgress(progress -&gt; LOG.info("{}", progress))
+ *       .run(books);
+ * </pre>
+ *
+ * @param <T> The type of the imported entities
+ */
+public final class BulkImport<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkImport.class);
+
+    private final String persistenceUnit;
+    private int chunkSize = 1000;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int jdbcBatchSize = 50;
+    private int maxRetries = 0;
+    private boolean skipFailedChunks = false;
+    private ChunkWriter<? super T> writer = (em, chunk) -> chunk.forEach(em::persist);
+    private Consumer<BulkImportProgress> progressListener = null;
+
+    BulkImport(String persistenceUnit) {
+        this.persistenceUnit = persistenceUnit;
+    }
+
+    /**
+     * @param chunkSize Amount of rows written in one transaction. Defaults to {@code 1000}.
+     * @return this
+     */
+    public BulkImport<T> chunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * @param parallelism Amount of chunks written concurrently. Defaults to the amount of available processors.
+     * @return this
+     */
+    public BulkImport<T> parallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param jdbcBatchSize Amount of statements sent to the database in one JDBC batch. Only supported with hibernate.
+     *                      Defaults to {@code 50}.
+     * @return this
+     */
+    public BulkImport<T> jdbcBatchSize(int jdbcBatchSize) {
+        this.jdbcBatchSize = jdbcBatchSize;
+        return this;
+    }
+
+    /**
+     * @param maxRetries How often a failed chunk is retried in a new transaction. Defaults to {@code 0}. The writer gets
+     *                   the same chunk again, so entities with generated ids should be created by the writer, as the
+     *                   rollback of the failed attempt does not reset their ids.
+     * @return this
+     */
+    public BulkImport<T> maxRetries(int maxRetries) {
+        this.maxRetries = Math.max(maxRetries, 0);
+        return this;
+    }
+
+    /**
+     * @param skipFailedChunks {@code true}, if the import should continue, when a chunk failed after all retries.
+     *                         Otherwise the import is aborted. Defaults to {@code false}.
+     * @return this
+     */
+    public BulkImport<T> skipFailedChunks(boolean skipFailedChunks) {
+        this.skipFailedChunks = skipFailedChunks;
+        return this;
+    }
+
+    /**
+     * @param writer Writes one chunk with the {@link EntityManager} of its transaction. Defaults to
+     *               {@link EntityManager#persist(Object) persisting} every entity.
+     * @return this
+     */
+    public BulkImport<T> writer(ChunkWriter<? super T> writer) {
+        this.writer = writer;
+        return this;
+    }
+
+    /**
+     * @param progressListener Called by the worker thread after every written or skipped chunk
+     * @return this
+     */
+    public BulkImport<T> onProgress(Consumer<BulkImportProgress> progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    /**
+     * Imports all entities of {@code source} and closes it afterwards
+     *
+     * @param source The entities to import
+     * @return The final progress of the import
+     * @throws PersistenceException If a chunk failed and failed chunks should not be skipped
+     */
+    public BulkImportProgress run(Stream<? extends T> source) {
+        try (Stream<? extends T> stream = source) {
+            return run(stream.iterator());
+        }
+    }
+
+    /**
+     * Imports all entities of {@code source}
+     *
+     * @param source The entities to import
+     * @return The final progress of the import
+     * @throws PersistenceException If a chunk failed and failed chunks should not be skipped
+     */
+    public BulkImportProgress run(Iterable<? extends T> source) {
+        return run(source.iterator());
+    }
+
+    /**
+     * Imports all entities of {@code source}. The iterator is only used by the calling thread.
+     *
+     * @param source The entities to import
+     * @return The final progress of the import
+     * @throws PersistenceException If a chunk failed and failed chunks should not be skipped
+     */
+    public BulkImportProgress run(Iterator<? extends T> source) {
+        LOG.debug("Start bulk import into persistence unit {} with {} workers", persistenceUnit, parallelism);
+        Counters counters = new Counters();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Semaphore slots = new Semaphore(parallelism * 2);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, ThreadSupport.threadFactory("STRIX-IMPORT-"));
+        Map<String, String> tenants = StrixManager.captureTenants(persistenceUnit);
+        try {
+            long chunkNumber = 0;
+            while (failure.get() == null && source.hasNext()) {
+                List<T> chunk = new ArrayList<>(chunkSize);
+                while (chunk.size() < chunkSize && source.hasNext()) {
+                    chunk.add(source.next());
+                }
+                slots.acquire();
+                long number = chunkNumber++;
+                executor.execute(() -> {
+                    PersistenceManager.setTenants(tenants);
+                    try {
+                        importChunk(number, chunk, counters, failure);
+                    } finally {
+                        PersistenceManager.setTenants(null);
+                        slots.release();
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, ex);
+        } finally {
+            executor.shutdownNow();
+        }
+        BulkImportProgress result = counters.snapshot();
+        if (failure.get() != null) {
+            throw new PersistenceException(
+                  "Bulk import into persistence unit '" + persistenceUnit + "' aborted: " + result,
+                  failure.get()
+            );
+        }
+        LOG.debug("Bulk import into persistence unit {} finished: {}", persistenceUnit, result);
+        return result;
+    }
+
+    /**
+     * Writes {@code chunk} in a new transaction and retries it, if needed
+     */
+    private void importChunk(long number, List<T> chunk, Counters counters, AtomicReference<Throwable> failure) {
+        for (int attempt = 0; failure.get() == null; attempt++) {
+            try {
+                StrixManager.executeInNewTransaction(persistenceUnit, "BulkImport", em -> {
+                    JdbcConnectionSupport.setJdbcBatchSize(em, jdbcBatchSize);
+                    writer.write(PersistenceManager.getEntityManager(), chunk);
+                    em.flush();
+                    em.clear();
+                    return null;
+                });
+                counters.rowsImported.addAndGet(chunk.size());
+                counters.chunksImported.incrementAndGet();
+                reportProgress(counters);
+                return;
+            } catch (Throwable t) {
+                if (attempt < maxRetries && !(t instanceof Error)) {
+                    LOG.debug("Retry chunk {} after failed attempt {}", number, attempt + 1, t);
+                    counters.retries.incrementAndGet();
+                } else if (skipFailedChunks && !(t instanceof Error)) {
+                    LOG.warn("Skip chunk {} with {} rows", number, chunk.size(), t);
+                    counters.rowsSkipped.addAndGet(chunk.size());
+                    counters.chunksSkipped.incrementAndGet();
+                    reportProgress(counters);
+                    return;
+                } else {
+                    LOG.debug("Chunk {} failed, abort bulk import", number);
+                    failure.compareAndSet(null, t);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void reportProgress(Counters counters) {
+        Consumer<BulkImportProgress> listener = progressListener;
+        if (listener != null) {
+            listener.accept(counters.snapshot());
+        }
+    }
+
+    /**
+     * Writes one chunk of a {@link BulkImport}
+     *
+     * @param <T> The type of the imported entities
+     */
+    @FunctionalInterface
+    public interface ChunkWriter<T> {
+
+        /**
+         * Writes {@code chunk} within the transaction of {@code em}. The {@link EntityManager} is flushed and cleared
+         * afterwards.
+         *
+         * @param em    The {@link EntityManager} of the transaction of this chunk
+         * @param chunk The entities of this chunk
+         * @throws Exception If the chunk cannot be written, so the transaction will be rollbacked
+         */
+        void write(EntityManager em, List<? extends T> chunk) throws Exception;
+    }
+
+    /**
+     * The counters of a running import
+     */
+    private static final class Counters {
+
+        private final long started = System.nanoTime();
+        private final AtomicLong chunksImported = new AtomicLong();
+        private final AtomicLong chunksSkipped = new AtomicLong();
+        private final AtomicLong rowsImported = new AtomicLong();
+        private final AtomicLong rowsSkipped = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+
+        private BulkImportProgress snapshot() {
+            return new BulkImportProgress(
+                  chunksImported.get(),
+                  chunksSkipped.get(),
+                  rowsImported.get(),
+                  rowsSkipped.get(),
+                  retries.get(),
+                  TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)
+            );
+        }
+    }
+}
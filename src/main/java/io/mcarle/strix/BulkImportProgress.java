@@ -0,0 +1,92 @@
+package io.mcarle.strix;
+
+/**
+ * Snapshot of the progress of a {@link BulkImport}.
+ */
+public final class BulkImportProgress {
+
+    private final long chunksImported;
+    private final long chunksSkipped;
+    private final long rowsImported;
+    private final long rowsSkipped;
+    private final long retries;
+    private final long elapsedMillis;
+
+    BulkImportProgress(
+          long chunksImported,
+          long chunksSkipped,
+          long rowsImported,
+          long rowsSkipped,
+          long retries,
+          long elapsedMillis
+    ) {
+        this.chunksImported = chunksImported;
+        this.chunksSkipped = chunksSkipped;
+        this.rowsImported = rowsImported;
+        this.rowsSkipped = rowsSkipped;
+        this.retries = retries;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return Amount of committed chunks
+     */
+    public long getChunksImported() {
+        return chunksImported;
+    }
+
+    /**
+     * @return Amount of chunks, which failed after all retries and were skipped
+     */
+    public long getChunksSkipped() {
+        return chunksSkipped;
+    }
+
+    /**
+     * @return Amount of rows in committed chunks
+     */
+    public long getRowsImported() {
+        return rowsImported;
+    }
+
+    /**
+     * @return Amount of rows in skipped chunks
+     */
+    public long getRowsSkipped() {
+        return rowsSkipped;
+    }
+
+    /**
+     * @return Amount of retried chunk transactions
+     */
+    public long getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return Time since the import has been started in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return Imported rows per second since the import has been started
+     */
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? 0 : rowsImported * 1000d / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkImportProgress{" +
+              "chunksImported=" + chunksImported +
+              ", chunksSkipped=" + chunksSkipped +
+              ", rowsImported=" + rowsImported +
+              ", rowsSkipped=" + rowsSkipped +
+              ", retries=" + retries +
+              ", elapsedMillis=" + elapsedMillis +
+              ", rowsPerSecond=" + String.format("%.1f", getRowsPerSecond()) +
+              '}';
+    }
+}
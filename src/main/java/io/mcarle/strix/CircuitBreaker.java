@@ -0,0 +1,341 @@
+package io.mcarle.strix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Internaly used by strix to stop using the database of a persistence unit and tenant, which is unavailable. There is
+ * one circuit per persistence unit and tenant, which share the configuration of the persistence unit. The circuit opens
+ * after
+ * consecutive failures to create an {@link EntityManagerFactory} or to begin a transaction, so new transactions fail
+ * immediately with a {@link PersistenceUnitUnavailableException} instead of waiting for the driver timeout. After the
+ * open duration, a limited amount of probe transactions is let through (half-open): If they succeed, the circuit closes,
+ * otherwise it opens again.
+ * <p>
+ * A failed creation of an {@link EntityManagerFactory} opens the circuit at once and is retried in the background, as
+ * creating it blocks every thread waiting for the same factory. The circuit stays open until the retry succeeds.
+ */
+final class CircuitBreaker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+    private static final Map<String, Configuration> CONFIGURATIONS = new ConcurrentHashMap<>();
+    private static final Map<EntityManagerFactoryRegistry.Key, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService RETRY_EXECUTOR;
+
+    private final String persistenceUnit;
+    private final String tenant;
+    private final Configuration configuration;
+    private volatile State state = State.CLOSED;
+    private volatile int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private int probesInFlight = 0;
+    private int probeSuccesses = 0;
+    private Throwable lastFailure = null;
+    private final List<ScheduledFuture<?>> bootstrapRetries = new ArrayList<>();
+
+    private CircuitBreaker(EntityManagerFactoryRegistry.Key key) {
+        this.persistenceUnit = key.getPersistenceUnit();
+        this.tenant = key.getTenant();
+        this.configuration = configuration(persistenceUnit);
+    }
+
+    /**
+     * @param persistenceUnit The name of the persistence unit
+     * @param tenant          The tenant key or {@code null}
+     * @return The circuit breaker of {@code persistenceUnit} and {@code tenant}
+     */
+    static CircuitBreaker of(String persistenceUnit, String tenant) {
+        EntityManagerFactoryRegistry.Key key = new EntityManagerFactoryRegistry.Key(persistenceUnit, tenant);
+        CircuitBreaker breaker = BREAKERS.get(key);
+        if (breaker == null) {
+            breaker = BREAKERS.computeIfAbsent(key, CircuitBreaker::new);
+        }
+        return breaker;
+    }
+
+    /**
+     * @param persistenceUnit The name of the persistence unit
+     * @return The most severe state of the circuits of all tenants of {@code persistenceUnit}: {@code OPEN}, if any
+     * circuit is open, otherwise {@code HALF_OPEN}, if any circuit is half-open, otherwise {@code CLOSED}
+     */
+    static State stateOf(String persistenceUnit) {
+        State state = State.CLOSED;
+        for (CircuitBreaker breaker : BREAKERS.values()) {
+            if (breaker.persistenceUnit.equals(persistenceUnit) && breaker.state.compareTo(state) > 0) {
+                state = breaker.state;
+            }
+        }
+        return state;
+    }
+
+    private static Configuration configuration(String persistenceUnit) {
+        Configuration configuration = CONFIGURATIONS.get(persistenceUnit);
+        if (configuration == null) {
+            configuration = CONFIGURATIONS.computeIfAbsent(persistenceUnit, unit -> new Configuration());
+        }
+        return configuration;
+    }
+
+    /**
+     * Configures the circuit breakers of all tenants of {@code persistenceUnit}
+     *
+     * @param persistenceUnit  The name of the persistence unit
+     * @param failureThreshold Amount of consecutive failures, which open the circuit. A value less or equal to
+     *                         {@code 0} disables the circuit breaker.
+     * @param halfOpenProbes   Amount of successful probe transactions, which close the circuit again
+     * @param openDuration     Time the circuit stays open, before probe transactions are let through
+     * @param unit             Time unit of {@code openDuration}
+     */
+    static void configure(
+          String persistenceUnit,
+          int failureThreshold,
+          int halfOpenProbes,
+          long openDuration,
+          TimeUnit unit
+    ) {
+        LOG.debug(
+              "Configure circuit breaker of persistence unit {} with threshold {}, {} probes and open duration {} {}",
+              persistenceUnit,
+              failureThreshold,
+              halfOpenProbes,
+              openDuration,
+              unit
+        );
+        Configuration configuration = configuration(persistenceUnit);
+        configuration.failureThreshold = Math.max(failureThreshold, 0);
+        configuration.halfOpenProbes = Math.max(halfOpenProbes, 1);
+        configuration.openDurationNanos = Math.max(unit.toNanos(openDuration), 0);
+        if (configuration.failureThreshold == 0) {
+            BREAKERS.values().forEach(breaker -> {
+                if (breaker.persistenceUnit.equals(persistenceUnit)) {
+                    synchronized (breaker) {
+                        breaker.close();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Closes all circuits and cancels the background retries. The configuration is kept.
+     */
+    static void resetAll() {
+        BREAKERS.values().forEach(breaker -> {
+            synchronized (breaker) {
+                breaker.close();
+            }
+        });
+        BREAKERS.clear();
+    }
+
+    /**
+     * Checks if a new transaction may be started
+     *
+     * @return {@code true}, if the transaction is a probe of a half-open circuit and must be finished with
+     * {@link #releaseProbe()}. Otherwise {@code false}.
+     * @throws PersistenceUnitUnavailableException If the circuit is open
+     */
+    boolean acquire() {
+        if (state == State.CLOSED || configuration.failureThreshold <= 0) {
+            return false;
+        }
+        synchronized (this) {
+            if (state == State.OPEN && bootstrapRetries.isEmpty()
+                  && System.nanoTime() - openedAt >= configuration.openDurationNanos) {
+                LOG.info("Circuit of persistence unit {} and tenant {} is half-open", persistenceUnit, tenant);
+                state = State.HALF_OPEN;
+                probesInFlight = 0;
+                probeSuccesses = 0;
+            }
+            if (state == State.HALF_OPEN && probesInFlight < configuration.halfOpenProbes - probeSuccesses) {
+                LOG.trace("Start probe transaction on persistence unit {} and tenant {}", persistenceUnit, tenant);
+                probesInFlight++;
+                return true;
+            }
+            if (state == State.CLOSED) {
+                return false;
+            }
+            throw new PersistenceUnitUnavailableException(
+                  persistenceUnit,
+                  "Persistence unit '" + persistenceUnit + "'" + (tenant == null ? "" : " of tenant '" + tenant + "'")
+                        + " is unavailable, circuit is " + state,
+                  lastFailure
+            );
+        }
+    }
+
+    /**
+     * Finishes a probe transaction, for which {@link #acquire()} returned {@code true}
+     */
+    synchronized void releaseProbe() {
+        if (probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    /**
+     * Records that a transaction could be started
+     */
+    void onSuccess() {
+        if (state == State.CLOSED && consecutiveFailures == 0) {
+            return;
+        }
+        synchronized (this) {
+            consecutiveFailures = 0;
+            if (state == State.HALF_OPEN && ++probeSuccesses >= configuration.halfOpenProbes) {
+                LOG.info("Circuit of persistence unit {} and tenant {} is closed", persistenceUnit, tenant);
+                close();
+            }
+        }
+    }
+
+    /**
+     * Records that a transaction could not be started, because the database is unavailable
+     *
+     * @param failure The failure
+     */
+    synchronized void onFailure(Throwable failure) {
+        if (configuration.failureThreshold <= 0) {
+            return;
+        }
+        lastFailure = failure;
+        if (state == State.HALF_OPEN
+              || state == State.CLOSED && ++consecutiveFailures >= configuration.failureThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Records that the {@link EntityManagerFactory} of the tenant could not be created. Opens the circuit and retries the
+     * creation in the background, until it succeeds.
+     *
+     * @param factoryCreator Creates the factory
+     * @param failure        The failure
+     */
+    synchronized void onBootstrapFailure(Supplier<EntityManagerFactory> factoryCreator, Throwable failure) {
+        if (configuration.failureThreshold <= 0) {
+            return;
+        }
+        lastFailure = failure;
+        if (state != State.OPEN) {
+            open();
+        }
+        if (bootstrapRetries.isEmpty()) {
+            scheduleBootstrapRetry(factoryCreator);
+        }
+    }
+
+    /**
+     * @return The state of the circuit
+     */
+    State getState() {
+        return state;
+    }
+
+    private void open() {
+        LOG.warn("Circuit of persistence unit {} and tenant {} is open", persistenceUnit, tenant, lastFailure);
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        consecutiveFailures = 0;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        lastFailure = null;
+        bootstrapRetries.forEach(retry -> retry.cancel(false));
+        bootstrapRetries.clear();
+    }
+
+    private void scheduleBootstrapRetry(Supplier<EntityManagerFactory> factoryCreator) {
+        long delay = Math.max(configuration.openDurationNanos, TimeUnit.MILLISECONDS.toNanos(1));
+        LOG.debug(
+              "Retry to create EntityManagerFactory of persistence unit {} and tenant {} in background",
+              persistenceUnit,
+              tenant
+        );
+        bootstrapRetries.add(retryExecutor().schedule(
+              () -> retryBootstrap(factoryCreator),
+              delay,
+              TimeUnit.NANOSECONDS
+        ));
+    }
+
+    private void retryBootstrap(Supplier<EntityManagerFactory> factoryCreator) {
+        EntityManagerFactory factory;
+        try {
+            factory = factoryCreator.get();
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                if (!bootstrapRetries.isEmpty()) {
+                    LOG.debug(
+                          "Retry to create EntityManagerFactory of persistence unit {} and tenant {} failed",
+                          persistenceUnit,
+                          tenant,
+                          ex
+                    );
+                    lastFailure = ex;
+                    bootstrapRetries.clear();
+                    scheduleBootstrapRetry(factoryCreator);
+                }
+            }
+            return;
+        }
+        synchronized (this) {
+            if (bootstrapRetries.isEmpty() || !StrixManager.STARTED) {
+                factory.close();
+                return;
+            }
+            EntityManagerFactoryRegistry.replace(persistenceUnit, tenant, factory);
+            LOG.info(
+                  "Created EntityManagerFactory of persistence unit {} and tenant {} in background",
+                  persistenceUnit,
+                  tenant
+            );
+            close();
+        }
+    }
+
+    private static synchronized ScheduledExecutorService retryExecutor() {
+        if (RETRY_EXECUTOR == null) {
+            RETRY_EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "STRIX-RETRY");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return RETRY_EXECUTOR;
+    }
+
+    /**
+     * The configuration shared by the circuit breakers of all tenants of a persistence unit
+     */
+    private static final class Configuration {
+
+        private volatile int failureThreshold = 0;
+        private volatile int halfOpenProbes = 1;
+        private volatile long openDurationNanos = TimeUnit.SECONDS.toNanos(10);
+    }
+
+    /**
+     * The states of a circuit, ordered by severity
+     */
+    enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+}
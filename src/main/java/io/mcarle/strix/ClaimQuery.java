@@ -0,0 +1,197 @@
+package io.mcarle.strix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.LockTimeoutException;
+import javax.persistence.Parameter;
+import javax.persistence.TransactionRequiredException;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.EntityType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Claims rows of a table used as work queue, i.e. selects and locks rows, which are not locked by other transactions.
+ * The locks are held until the surrounding transaction is committed or rollbacked. Competing workers therefore claim
+ * different rows instead of waiting for each other.
+ * <p>
+ * If the database is known to support it, the rows are selected with {@code FOR UPDATE SKIP LOCKED}. Otherwise the
+ * candidates are selected without lock and locked one by one with the lock timeout (by default {@code NOWAIT}). Rows,
+ * which cannot be locked in time or do not match the condition anymore, are skipped. Whether the lock timeout is
+ * honored depends on the persistence provider and database, e.g. H2 always waits for its {@code LOCK_TIMEOUT}.
+ * <p>
+ * The condition and ordering are JPQL expressions, in which the entity is referenced as {@value #ALIAS}:
+ * <pre>
+ * List&lt;Job&gt; jobs = Strix.claim(Job.class)
+ *       .where("e.status = :status")
+ *       .parameter("status", Status.NEW)
+ *       .orderBy("e.priority DESC")
+ *       .fetch(10);
+ * </pre>
+ *
+ * @param <T> The type of the entity
+ */
+public final class ClaimQuery<T> {
+
+    /**
+     * The alias of the entity in the condition and ordering
+     */
+    public static final String ALIAS = "e";
+    private static final Logger LOG = LoggerFactory.getLogger(ClaimQuery.class);
+    private static final String LOCK_TIMEOUT_HINT = "javax.persistence.lock.timeout";
+    private static final String ID_PARAMETER = "strixClaimedId";
+
+    private final Class<T> entityClass;
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+    private String condition;
+    private String ordering;
+    private int lockTimeoutMillis = 0;
+
+    ClaimQuery(Class<T> entityClass) {
+        this.entityClass = entityClass;
+    }
+
+    /**
+     * @param condition JPQL condition, which the claimed rows must match
+     * @return this
+     */
+    public ClaimQuery<T> where(String condition) {
+        this.condition = condition;
+        return this;
+    }
+
+    /**
+     * @param name  Name of a parameter used in the condition
+     * @param value Value of the parameter
+     * @return this
+     */
+    public ClaimQuery<T> parameter(String name, Object value) {
+        parameters.put(name, value);
+        return this;
+    }
+
+    /**
+     * @param ordering JPQL ordering, in which the rows should be claimed
+     * @return this
+     */
+    public ClaimQuery<T> orderBy(String ordering) {
+        this.ordering = ordering;
+        return this;
+    }
+
+    /**
+     * Defines how long to wait for the lock of a single row, if {@code SKIP LOCKED} is not supported. Defaults to
+     * {@code 0}, i.e. {@code NOWAIT}.
+     *
+     * @param timeout The lock timeout
+     * @param unit    The unit of {@code timeout}
+     * @return this
+     */
+    public ClaimQuery<T> lockTimeout(long timeout, TimeUnit unit) {
+        this.lockTimeoutMillis = (int) Math.min(Math.max(unit.toMillis(timeout), 0), Integer.MAX_VALUE);
+        return this;
+    }
+
+    /**
+     * Claims up to {@code maxRows} rows within the transaction of the current thread
+     *
+     * @param maxRows Maximum amount of rows to claim
+     * @return The claimed entities, which are locked until the end of the transaction
+     * @throws TransactionRequiredException If there is no active transaction in the current thread
+     */
+    public List<T> fetch(int maxRows) {
+        TransactionContext context = PersistenceManager.getContext();
+        if (context == null || !context.isTransactional()) {
+            throw new TransactionRequiredException("Rows of " + entityClass.getSimpleName() + " can only be claimed within a transaction");
+        }
+        if (maxRows <= 0) {
+            return Collections.emptyList();
+        }
+        EntityManager em = context.getEntityManager();
+        EntityType<T> entityType = em.getMetamodel().entity(entityClass);
+        if (JdbcConnectionSupport.supportsSkipLocked(em)) {
+            return fetchSkipLocked(em, entityType, maxRows);
+        }
+        return fetchLockingEach(em, entityType, maxRows);
+    }
+
+    private List<T> fetchSkipLocked(EntityManager em, EntityType<T> entityType, int maxRows) {
+        LOG.trace("Claim up to {} rows of {} with SKIP LOCKED", maxRows, entityType.getName());
+        TypedQuery<T> query = em.createQuery(
+              "SELECT " + ALIAS + " FROM " + entityType.getName() + " " + ALIAS + whereClause(null) + orderByClause(),
+              entityClass
+        );
+        setParameters(query);
+        return query.setLockMode(LockModeType.PESSIMISTIC_WRITE)
+              .setHint(LOCK_TIMEOUT_HINT, HibernateSupport.skipLockedTimeout())
+              .setMaxResults(maxRows)
+              .getResultList();
+    }
+
+    private List<T> fetchLockingEach(EntityManager em, EntityType<T> entityType, int maxRows) {
+        LOG.trace("Claim up to {} rows of {} by locking each row", maxRows, entityType.getName());
+        String id = ALIAS + "." + entityType.getId(entityType.getIdType().getJavaType()).getName();
+        TypedQuery<Object> candidateQuery = em.createQuery(
+              "SELECT " + id + " FROM " + entityType.getName() + " " + ALIAS + whereClause(null) + orderByClause(),
+              Object.class
+        );
+        setParameters(candidateQuery);
+        String lockJpql = "SELECT " + ALIAS + " FROM " + entityType.getName() + " " + ALIAS
+              + whereClause(id + " = :" + ID_PARAMETER);
+
+        List<T> claimed = new ArrayList<>(maxRows);
+        int firstResult = 0;
+        List<Object> candidates;
+        do {
+            candidates = candidateQuery.setFirstResult(firstResult).setMaxResults(maxRows).getResultList();
+            firstResult += candidates.size();
+            for (Object candidate : candidates) {
+                TypedQuery<T> lockQuery = em.createQuery(lockJpql, entityClass)
+                      .setParameter(ID_PARAMETER, candidate)
+                      .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                      .setHint(LOCK_TIMEOUT_HINT, lockTimeoutMillis);
+                setParameters(lockQuery);
+                try {
+                    List<T> locked = lockQuery.getResultList();
+                    if (locked.isEmpty()) {
+                        LOG.trace("Skip row {}, as it does not match the condition anymore", candidate);
+                    } else {
+                        claimed.add(locked.get(0));
+                        if (claimed.size() == maxRows) {
+                            return claimed;
+                        }
+                    }
+                } catch (LockTimeoutException ex) {
+                    LOG.trace("Skip row {}, as it is locked", candidate);
+                }
+            }
+        } while (candidates.size() == maxRows);
+        return claimed;
+    }
+
+    private String whereClause(String additionalCondition) {
+        if (condition == null || condition.isEmpty()) {
+            return additionalCondition == null ? "" : " WHERE " + additionalCondition;
+        }
+        return " WHERE " + (additionalCondition == null ? "" : additionalCondition + " AND ") + "(" + condition + ")";
+    }
+
+    private String orderByClause() {
+        return ordering == null || ordering.isEmpty() ? "" : " ORDER BY " + ordering;
+    }
+
+    private void setParameters(TypedQuery<?> query) {
+        for (Parameter<?> parameter : query.getParameters()) {
+            if (parameters.containsKey(parameter.getName())) {
+                query.setParameter(parameter.getName(), parameters.get(parameter.getName()));
+            }
+        }
+    }
+}
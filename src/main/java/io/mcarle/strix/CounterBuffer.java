@@ -0,0 +1,404 @@
+package io.mcarle.strix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Internaly used by strix to aggregate increments of counter columns of one persistence unit in memory. The deltas are
+ * summed up per entity, id and attribute in {@link LongAdder LongAdders}, so concurrent increments of the same counter
+ * do not contend, and are written by the thread STRIX-COUNTERS periodically or as soon as too many counters are
+ * pending, all in one transaction with one bulk update per entity, attribute and delta.
+ * <p>
+ * The pending deltas are kept in a generation, which is replaced on every flush. Writers pin the generation while
+ * adding a delta, so the flush waits until all writers of the replaced generation are finished and no delta is lost.
+ */
+final class CounterBuffer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CounterBuffer.class);
+    private static final Map<String, CounterBuffer> BUFFERS = new ConcurrentHashMap<>();
+    private static final int MAX_IDS_PER_UPDATE = 500;
+    private static ScheduledExecutorService FLUSH_EXECUTOR;
+
+    private final String persistenceUnit;
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private volatile Generation current = new Generation();
+    private volatile long flushIntervalNanos = TimeUnit.SECONDS.toNanos(1);
+    private volatile int maxPendingCounters = 10000;
+    private volatile boolean synchronous = false;
+    private ScheduledFuture<?> periodicFlush;
+
+    private CounterBuffer(String persistenceUnit) {
+        this.persistenceUnit = persistenceUnit;
+    }
+
+    /**
+     * @param persistenceUnit The name of the persistence unit
+     * @return The counter buffer of {@code persistenceUnit}
+     */
+    static CounterBuffer of(String persistenceUnit) {
+        CounterBuffer buffer = BUFFERS.get(persistenceUnit);
+        if (buffer == null) {
+            buffer = BUFFERS.computeIfAbsent(persistenceUnit, unit -> {
+                CounterBuffer created = new CounterBuffer(unit);
+                created.schedule();
+                return created;
+            });
+        }
+        return buffer;
+    }
+
+    /**
+     * Configures the counter buffer of {@code persistenceUnit}
+     *
+     * @param persistenceUnit    The name of the persistence unit
+     * @param flushInterval      Time between two periodic flushes
+     * @param unit               Time unit of {@code flushInterval}
+     * @param maxPendingCounters Amount of pending counters, which triggers a flush
+     * @param synchronous        {@code true}, if increments should be written immediately instead of being buffered
+     */
+    static void configure(
+          String persistenceUnit,
+          long flushInterval,
+          TimeUnit unit,
+          int maxPendingCounters,
+          boolean synchronous
+    ) {
+        LOG.debug(
+              "Configure counter buffer of persistence unit {} with interval {} {}, {} pending counters, synchronous: {}",
+              persistenceUnit,
+              flushInterval,
+              unit,
+              maxPendingCounters,
+              synchronous
+        );
+        CounterBuffer buffer = of(persistenceUnit);
+        buffer.maxPendingCounters = Math.max(maxPendingCounters, 1);
+        buffer.synchronous = synchronous;
+        buffer.flushIntervalNanos = Math.max(unit.toNanos(flushInterval), TimeUnit.MILLISECONDS.toNanos(1));
+        buffer.schedule();
+        buffer.requestFlush();
+    }
+
+    /**
+     * Writes the pending counters of all persistence units and waits until they are written
+     */
+    static void flushAll() {
+        if (BUFFERS.isEmpty()) {
+            return;
+        }
+        LOG.debug("Flush counters of all persistence units");
+        try {
+            executor().submit(() -> BUFFERS.values().forEach(CounterBuffer::flush)).get();
+        } catch (ExecutionException ex) {
+            throw new PersistenceException("Could not flush counters", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Interrupted while flushing counters", ex);
+        }
+    }
+
+    /**
+     * Adds {@code delta} to the counter {@code attribute} of the entity with {@code id}. In synchronous mode, the
+     * counter is updated immediately in the transaction of the current thread or in a new one.
+     *
+     * @param entityClass The class of the entity
+     * @param id          The id of the entity
+     * @param attribute   The name of the counter attribute
+     * @param delta       The value added to the counter
+     * @throws Throwable If the counter cannot be updated in synchronous mode
+     */
+    void increment(Class<?> entityClass, Object id, String attribute, long delta) throws Throwable {
+        if (delta == 0) {
+            return;
+        }
+        Key key = new Key(entityClass, id, attribute);
+        if (synchronous) {
+            LOG.trace("Update counter {} synchronously", key);
+            StrixManager.unitOfWork(persistenceUnit, true, () -> {
+                write(PersistenceManager.getEntityManager(), Collections.singletonMap(key, delta), false);
+                return null;
+            });
+            return;
+        }
+        if (add(key, delta) >= maxPendingCounters) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * Adds {@code delta} to the pending counter {@code key}
+     *
+     * @return Amount of pending counters
+     */
+    private int add(Key key, long delta) {
+        Generation generation;
+        while (true) {
+            generation = current;
+            generation.writers.increment();
+            if (generation == current) {
+                break;
+            }
+            generation.writers.decrement();
+        }
+        try {
+            LongAdder adder = generation.deltas.get(key);
+            if (adder == null) {
+                adder = generation.deltas.computeIfAbsent(key, k -> new LongAdder());
+            }
+            adder.add(delta);
+            return generation.deltas.size();
+        } finally {
+            generation.writers.decrement();
+        }
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            executor().execute(() -> {
+                flushRequested.set(false);
+                if (StrixManager.STARTED) {
+                    flush();
+                }
+            });
+        }
+    }
+
+    private synchronized void schedule() {
+        if (periodicFlush != null) {
+            periodicFlush.cancel(false);
+        }
+        periodicFlush = executor().scheduleWithFixedDelay(() -> {
+            if (StrixManager.STARTED) {
+                flush();
+            }
+        }, flushIntervalNanos, flushIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Writes the pending counters in one transaction. If the transaction fails, the counters are kept pending. Must
+     * only be called by the thread STRIX-COUNTERS.
+     */
+    private void flush() {
+        Generation flushed = current;
+        if (flushed.deltas.isEmpty()) {
+            return;
+        }
+        current = new Generation();
+        while (flushed.writers.sum() != 0) {
+            Thread.yield();
+        }
+        Map<Key, Long> deltas = new HashMap<>();
+        flushed.deltas.forEach((key, adder) -> {
+            long sum = adder.sum();
+            if (sum != 0) {
+                deltas.put(key, sum);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            StrixManager.executeInNewTransaction(persistenceUnit, "CounterBuffer", em -> {
+                write(em, deltas, true);
+                return null;
+            });
+            LOG.debug("Flushed {} counters of persistence unit {}", deltas.size(), persistenceUnit);
+        } catch (Throwable t) {
+            LOG.warn(
+                  "Could not flush {} counters of persistence unit {}, keep them pending",
+                  deltas.size(),
+                  persistenceUnit,
+                  t
+            );
+            deltas.forEach(this::add);
+        }
+    }
+
+    /**
+     * Updates the counters with one bulk update per entity, attribute and delta
+     *
+     * @param em          The {@link EntityManager} of the transaction
+     * @param deltas      The deltas of the counters
+     * @param skipInvalid {@code true}, if counters of unknown entities or attributes should be dropped. Otherwise an
+     *                    {@link IllegalArgumentException} is thrown.
+     */
+    private static void write(EntityManager em, Map<Key, Long> deltas, boolean skipInvalid) {
+        Map<Update, List<Object>> updates = new HashMap<>();
+        deltas.forEach((key, delta) -> updates
+              .computeIfAbsent(new Update(key.entityClass, key.attribute, delta), update -> new ArrayList<>())
+              .add(key.id)
+        );
+        updates.forEach((update, ids) -> {
+            Query query;
+            try {
+                query = update.createQuery(em);
+            } catch (IllegalArgumentException ex) {
+                if (!skipInvalid) {
+                    throw ex;
+                }
+                LOG.error("Drop {} invalid counters {}", ids.size(), update, ex);
+                return;
+            }
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_UPDATE) {
+                query.setParameter("ids", ids.subList(from, Math.min(from + MAX_IDS_PER_UPDATE, ids.size())))
+                      .executeUpdate();
+            }
+        });
+    }
+
+    private static synchronized ScheduledExecutorService executor() {
+        if (FLUSH_EXECUTOR == null) {
+            FLUSH_EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "STRIX-COUNTERS");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return FLUSH_EXECUTOR;
+    }
+
+    /**
+     * The pending deltas and the amount of threads currently adding to them
+     */
+    private static final class Generation {
+
+        private final Map<Key, LongAdder> deltas = new ConcurrentHashMap<>();
+        private final LongAdder writers = new LongAdder();
+    }
+
+    /**
+     * Identifies a counter by entity, id and attribute
+     */
+    private static final class Key {
+
+        private final Class<?> entityClass;
+        private final Object id;
+        private final String attribute;
+
+        private Key(Class<?> entityClass, Object id, String attribute) {
+            this.entityClass = entityClass;
+            this.id = id;
+            this.attribute = attribute;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return entityClass.equals(key.entityClass) && id.equals(key.id) && attribute.equals(key.attribute);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * entityClass.hashCode() + id.hashCode()) + attribute.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return entityClass.getSimpleName() + "#" + id + "." + attribute;
+        }
+    }
+
+    /**
+     * One bulk update adding the same delta to the same attribute of several entities
+     */
+    private static final class Update {
+
+        private final Class<?> entityClass;
+        private final String attribute;
+        private final long delta;
+
+        private Update(Class<?> entityClass, String attribute, long delta) {
+            this.entityClass = entityClass;
+            this.attribute = attribute;
+            this.delta = delta;
+        }
+
+        /**
+         * Creates the bulk update with the delta converted to the type of the attribute
+         *
+         * @param em The {@link EntityManager} of the transaction
+         * @return The query, whose parameter {@code ids} must still be set
+         * @throws IllegalArgumentException If the entity or the attribute is unknown or no number
+         */
+        private Query createQuery(EntityManager em) {
+            EntityType<?> type = em.getMetamodel().entity(entityClass);
+            Class<?> attributeType = type.getAttribute(attribute).getJavaType();
+            String idAttribute = type.getSingularAttributes().stream()
+                  .filter(SingularAttribute::isId)
+                  .map(SingularAttribute::getName)
+                  .findFirst()
+                  .orElseThrow(() -> new IllegalArgumentException(entityClass + " has no single id attribute"));
+            return em.createQuery(
+                  "UPDATE " + type.getName() + " e SET e." + attribute + " = e." + attribute + " + :delta"
+                        + " WHERE e." + idAttribute + " IN :ids"
+            ).setParameter("delta", convert(attributeType));
+        }
+
+        private Object convert(Class<?> attributeType) {
+            if (attributeType == long.class || attributeType == Long.class) {
+                return delta;
+            } else if (attributeType == int.class || attributeType == Integer.class) {
+                return Math.toIntExact(delta);
+            } else if (attributeType == short.class || attributeType == Short.class) {
+                return (short) delta;
+            } else if (attributeType == double.class || attributeType == Double.class) {
+                return (double) delta;
+            } else if (attributeType == BigInteger.class) {
+                return BigInteger.valueOf(delta);
+            } else if (attributeType == BigDecimal.class) {
+                return BigDecimal.valueOf(delta);
+            }
+            throw new IllegalArgumentException("Counter " + this + " has no supported number type: " + attributeType);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Update)) {
+                return false;
+            }
+            Update update = (Update) o;
+            return delta == update.delta && entityClass.equals(update.entityClass) && attribute.equals(update.attribute);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(entityClass, attribute, delta);
+        }
+
+        @Override
+        public String toString() {
+            return entityClass.getSimpleName() + "." + attribute + " += " + delta;
+        }
+    }
+}
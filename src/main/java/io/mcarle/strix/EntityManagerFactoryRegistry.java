@@ -0,0 +1,404 @@
+package io.mcarle.strix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Internaly used by strix to cache the {@link EntityManagerFactory} per persistence unit and tenant. The registry can be
+ * bounded by the amount of factories and their idle time. An evicted factory will not be used for new transactions
+ * and will be closed as soon as all transactions using it are finished.
+ */
+final class EntityManagerFactoryRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityManagerFactoryRegistry.class);
+    private static final Map<Key, Entry> ENTRIES = new ConcurrentHashMap<>();
+    private static final Map<Key, CompletableFuture<Entry>> PENDING = new ConcurrentHashMap<>();
+    private static final Set<Entry> DRAINING = ConcurrentHashMap.newKeySet();
+    private static final AtomicLong CREATED = new AtomicLong();
+    private static final AtomicLong EVICTED = new AtomicLong();
+    private static volatile int MAX_FACTORIES = 0;
+    private static volatile long MAX_IDLE_NANOS = 0;
+    private static ScheduledExecutorService IDLE_EVICTOR;
+
+    /**
+     * Acquires the {@link EntityManagerFactory} of {@code persistenceUnit} and {@code tenant}. If not already cached,
+     * the factory will be created with {@code factoryCreator}. Every acquired entry must be released with
+     * {@link Entry#release()}.
+     *
+     * @param persistenceUnit The name of the persistence unit
+     * @param tenant          The tenant key or {@code null}
+     * @param factoryCreator  Creates the factory, if there is none cached
+     * @return The acquired entry
+     */
+    static Entry acquire(String persistenceUnit, String tenant, Supplier<EntityManagerFactory> factoryCreator) {
+        Key key = new Key(persistenceUnit, tenant);
+        while (true) {
+            Entry entry = ENTRIES.get(key);
+            boolean created = false;
+            if (entry == null) {
+                CompletableFuture<Entry> creation = new CompletableFuture<>();
+                CompletableFuture<Entry> pending = PENDING.putIfAbsent(key, creation);
+                if (pending != null) {
+                    LOG.trace("EntityManagerFactory is created concurrently, wait for it");
+                    entry = awaitCreation(pending);
+                } else {
+                    try {
+                        // Another thread may have published its factory and finished its creation in the meantime
+                        entry = ENTRIES.get(key);
+                        if (entry == null) {
+                            Entry newEntry = create(key, factoryCreator);
+                            entry = ENTRIES.putIfAbsent(key, newEntry);
+                            if (entry == null) {
+                                CREATED.incrementAndGet();
+                                entry = newEntry;
+                                created = true;
+                            } else {
+                                LOG.debug("EntityManagerFactory was registered concurrently, close own one");
+                                newEntry.close();
+                            }
+                        }
+                        creation.complete(entry);
+                    } catch (RuntimeException | Error ex) {
+                        creation.completeExceptionally(ex);
+                        throw ex;
+                    } finally {
+                        PENDING.remove(key, creation);
+                    }
+                }
+            }
+            if (entry.tryAcquire()) {
+                if (created) {
+                    evictExceedingFactories();
+                }
+                return entry;
+            }
+            LOG.trace("EntityManagerFactory was evicted concurrently, retry");
+        }
+    }
+
+    /**
+     * Creates the factory outside of the registry, as the bootstrap is slow and must not block the other keys.
+     *
+     * @param key            The key of the factory
+     * @param factoryCreator Creates the factory
+     * @return The not yet registered entry
+     */
+    private static Entry create(Key key, Supplier<EntityManagerFactory> factoryCreator) {
+        LOG.debug("Create new EntityManagerFactory for persistence unit {} and tenant {}", key.persistenceUnit, key.tenant);
+        return new Entry(key, factoryCreator.get());
+    }
+
+    /**
+     * Waits for the creation of a factory started by another thread.
+     *
+     * @param creation The pending creation
+     * @return The registered entry
+     */
+    private static Entry awaitCreation(CompletableFuture<Entry> creation) {
+        try {
+            return creation.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Puts {@code factory} into the registry. A previously registered factory of the same persistence unit and tenant
+     * gets evicted, i.e. new transactions will use {@code factory} and the previous one is closed, as soon as all of its
+     * in-flight transactions are finished.
+     *
+     * @param persistenceUnit The name of the persistence unit
+     * @param tenant          The tenant key or {@code null}
+     * @param factory         The new factory
+     */
+    static void replace(String persistenceUnit, String tenant, EntityManagerFactory factory) {
+        Key key = new Key(persistenceUnit, tenant);
+        CREATED.incrementAndGet();
+        Entry previous = ENTRIES.put(key, new Entry(key, factory));
+        if (previous != null) {
+            LOG.debug("Replace EntityManagerFactory for persistence unit {} and tenant {}", persistenceUnit, tenant);
+            EVICTED.incrementAndGet();
+            retire(previous);
+        }
+        evictExceedingFactories();
+    }
+
+    /**
+     * Checks if there is an open factory for {@code persistenceUnit}, regardless of the tenant
+     *
+     * @param persistenceUnit The name of the persistence unit
+     * @return {@code true}, if there is at least one open factory. Otherwise {@code false}.
+     */
+    static boolean contains(String persistenceUnit) {
+        return ENTRIES.keySet().stream().anyMatch(key -> key.persistenceUnit.equals(persistenceUnit));
+    }
+
+    /**
+     * @param persistenceUnit The name of the persistence unit
+     * @return Amount of open factories of {@code persistenceUnit}, regardless of the tenant
+     */
+    static int countOpen(String persistenceUnit) {
+        return (int) ENTRIES.keySet().stream().filter(key -> key.persistenceUnit.equals(persistenceUnit)).count();
+    }
+
+    /**
+     * @param persistenceUnit The name of the persistence unit
+     * @return Amount of evicted factories of {@code persistenceUnit}, which are still used by in-flight transactions
+     */
+    static int countDraining(String persistenceUnit) {
+        return (int) DRAINING.stream().filter(entry -> entry.key.persistenceUnit.equals(persistenceUnit)).count();
+    }
+
+    /**
+     * Evicts all factories of {@code persistenceUnit}, which belong to a tenant
+     *
+     * @param persistenceUnit The name of the persistence unit
+     */
+    static void evictTenantsOfPersistenceUnit(String persistenceUnit) {
+        evictMatching(key -> key.tenant != null && key.persistenceUnit.equals(persistenceUnit));
+    }
+
+    /**
+     * Evicts all factories of {@code persistenceUnit}, regardless of the tenant
+     *
+     * @param persistenceUnit The name of the persistence unit
+     */
+    static void evictPersistenceUnit(String persistenceUnit) {
+        evictMatching(key -> key.persistenceUnit.equals(persistenceUnit));
+    }
+
+    /**
+     * Evicts all factories of {@code tenant}
+     *
+     * @param tenant The tenant key
+     */
+    static void evictTenant(String tenant) {
+        evictMatching(key -> Objects.equals(key.tenant, tenant));
+    }
+
+    /**
+     * Limits the registry. A limit less or equal to {@code 0} means no limit.
+     *
+     * @param maxFactories Maximum amount of open factories. If exceeded, the least recently used factory gets evicted.
+     * @param maxIdleTime  Maximum time a factory may be unused before it gets evicted
+     * @param unit         Time unit of {@code maxIdleTime}
+     */
+    static synchronized void limit(int maxFactories, long maxIdleTime, TimeUnit unit) {
+        LOG.debug("Limit EntityManagerFactories to {} and idle time to {} {}", maxFactories, maxIdleTime, unit);
+        MAX_FACTORIES = Math.max(maxFactories, 0);
+        MAX_IDLE_NANOS = Math.max(unit.toNanos(maxIdleTime), 0);
+        if (IDLE_EVICTOR != null) {
+            IDLE_EVICTOR.shutdownNow();
+            IDLE_EVICTOR = null;
+        }
+        if (MAX_IDLE_NANOS > 0) {
+            long period = Math.max(TimeUnit.NANOSECONDS.toMillis(MAX_IDLE_NANOS) / 2, 1);
+            IDLE_EVICTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "STRIX-EVICT");
+                thread.setDaemon(true);
+                return thread;
+            });
+            IDLE_EVICTOR.scheduleWithFixedDelay(
+                  EntityManagerFactoryRegistry::evictIdleFactories,
+                  period,
+                  period,
+                  TimeUnit.MILLISECONDS
+            );
+        }
+        evictExceedingFactories();
+    }
+
+    /**
+     * Closes all factories immediately, regardless of running transactions, and resets the statistics.
+     */
+    static void closeAll() {
+        LOG.debug("Close all EntityManagerFactories");
+        ENTRIES.values().forEach(DRAINING::add);
+        ENTRIES.clear();
+        DRAINING.forEach(Entry::close);
+        DRAINING.clear();
+        CREATED.set(0);
+        EVICTED.set(0);
+    }
+
+    /**
+     * @return A snapshot of the registry
+     */
+    static EntityManagerFactoryStatistics statistics() {
+        return new EntityManagerFactoryStatistics(ENTRIES.size(), DRAINING.size(), CREATED.get(), EVICTED.get());
+    }
+
+    static void evictIdleFactories() {
+        long maxIdleNanos = MAX_IDLE_NANOS;
+        if (maxIdleNanos <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        ENTRIES.values().stream()
+              .filter(entry -> entry.leases.get() == 0 && now - entry.lastAccess > maxIdleNanos)
+              .forEach(EntityManagerFactoryRegistry::evict);
+    }
+
+    private static void evictExceedingFactories() {
+        int maxFactories = MAX_FACTORIES;
+        while (maxFactories > 0 && ENTRIES.size() > maxFactories) {
+            Entry leastRecentlyUsed = null;
+            for (Entry entry : ENTRIES.values()) {
+                if (leastRecentlyUsed == null || entry.lastAccess - leastRecentlyUsed.lastAccess < 0) {
+                    leastRecentlyUsed = entry;
+                }
+            }
+            if (leastRecentlyUsed == null) {
+                return;
+            }
+            evict(leastRecentlyUsed);
+        }
+    }
+
+    private static void evictMatching(Predicate<Key> predicate) {
+        ENTRIES.values().stream()
+              .filter(entry -> predicate.test(entry.key))
+              .forEach(EntityManagerFactoryRegistry::evict);
+    }
+
+    private static void evict(Entry entry) {
+        if (ENTRIES.remove(entry.key, entry)) {
+            LOG.debug(
+                  "Evict EntityManagerFactory for persistence unit {} and tenant {}",
+                  entry.key.persistenceUnit,
+                  entry.key.tenant
+            );
+            EVICTED.incrementAndGet();
+            retire(entry);
+        }
+    }
+
+    private static void retire(Entry entry) {
+        DRAINING.add(entry);
+        entry.retired = true;
+        entry.closeIfDrained();
+    }
+
+    /**
+     * Identifies a factory or a {@link CircuitBreaker} by persistence unit and tenant
+     */
+    static final class Key {
+
+        private final String persistenceUnit;
+        private final String tenant;
+
+        Key(String persistenceUnit, String tenant) {
+            this.persistenceUnit = persistenceUnit;
+            this.tenant = tenant;
+        }
+
+        String getPersistenceUnit() {
+            return persistenceUnit;
+        }
+
+        String getTenant() {
+            return tenant;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return persistenceUnit.equals(key.persistenceUnit) && Objects.equals(tenant, key.tenant);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * persistenceUnit.hashCode() + Objects.hashCode(tenant);
+        }
+    }
+
+    /**
+     * A cached factory with the amount of transactions currently using it. A negative amount marks the factory as
+     * closed.
+     */
+    static final class Entry {
+
+        private final Key key;
+        private final EntityManagerFactory factory;
+        private final AtomicInteger leases = new AtomicInteger();
+        private volatile long lastAccess = System.nanoTime();
+        private volatile boolean retired = false;
+
+        private Entry(Key key, EntityManagerFactory factory) {
+            this.key = key;
+            this.factory = factory;
+        }
+
+        EntityManagerFactory getFactory() {
+            return factory;
+        }
+
+        /**
+         * Releases the lease acquired by {@link EntityManagerFactoryRegistry#acquire(String, String, Supplier)}
+         */
+        void release() {
+            lastAccess = System.nanoTime();
+            if (leases.decrementAndGet() == 0 && retired) {
+                closeIfDrained();
+            }
+        }
+
+        private boolean tryAcquire() {
+            while (!retired) {
+                int current = leases.get();
+                if (current < 0) {
+                    return false;
+                }
+                if (leases.compareAndSet(current, current + 1)) {
+                    lastAccess = System.nanoTime();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void closeIfDrained() {
+            if (leases.compareAndSet(0, -1)) {
+                close();
+            }
+        }
+
+        private void close() {
+            leases.set(-1);
+            DRAINING.remove(this);
+            FetchGraphs.evict(factory);
+            if (factory.isOpen()) {
+                LOG.debug("Close EntityManagerFactory for persistence unit {} and tenant {}", key.persistenceUnit, key.tenant);
+                try {
+                    factory.close();
+                } catch (RuntimeException ex) {
+                    LOG.warn("Could not close EntityManagerFactory of persistence unit {}", key.persistenceUnit, ex);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package io.mcarle.strix;
+
+/**
+ * Snapshot of the {@link javax.persistence.EntityManagerFactory} registry of strix.
+ */
+public final class EntityManagerFactoryStatistics {
+
+    private final int openFactories;
+    private final int drainingFactories;
+    private final long createdFactories;
+    private final long evictedFactories;
+
+    EntityManagerFactoryStatistics(
+          int openFactories,
+          int drainingFactories,
+          long createdFactories,
+          long evictedFactories
+    ) {
+        this.openFactories = openFactories;
+        this.drainingFactories = drainingFactories;
+        this.createdFactories = createdFactories;
+        this.evictedFactories = evictedFactories;
+    }
+
+    /**
+     * @return Amount of factories, which can be used by new transactions
+     */
+    public int getOpenFactories() {
+        return openFactories;
+    }
+
+    /**
+     * @return Amount of evicted factories, which are still used by in-flight transactions and will be closed afterwards
+     */
+    public int getDrainingFactories() {
+        return drainingFactories;
+    }
+
+    /**
+     * @return Amount of factories created since strix has been started
+     */
+    public long getCreatedFactories() {
+        return createdFactories;
+    }
+
+    /**
+     * @return Amount of factories evicted since strix has been started, because of size or idle time limits
+     */
+    public long getEvictedFactories() {
+        return evictedFactories;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityManagerFactoryStatistics{" +
+              "openFactories=" + openFactories +
+              ", drainingFactories=" + drainingFactories +
+              ", createdFactories=" + createdFactories +
+              ", evictedFactories=" + evictedFactories +
+              '}';
+    }
+}
@@ -0,0 +1,83 @@
+package io.mcarle.strix;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Internaly used by strix to wrap the {@link EntityManager} returned by {@link Strix#em()}, if the
+ * {@link Memoization}, the {@link FetchGraphs} or the {@link StaleQueryDetector} are used. There is one wrapper per
+ * bound entity manager, which decides on every invocation, if they have to be applied. So it does not matter, whether
+ * the wrapper was obtained before or after e.g. the first result got memoized. All other methods, like
+ * {@code unwrap}, {@code equals} and {@code hashCode}, are invoked on the bound entity manager.
+ */
+final class EntityManagerWrapper implements InvocationHandler {
+
+    private final EntityManager em;
+    private final TransactionContext context;
+
+    private EntityManagerWrapper(EntityManager em, TransactionContext context) {
+        this.em = em;
+        this.context = context;
+    }
+
+    /**
+     * @param em      The {@link EntityManager} bound to the current thread
+     * @param context The context of the current thread
+     * @return The wrapped {@link EntityManager}
+     */
+    static EntityManager wrap(EntityManager em, TransactionContext context) {
+        return (EntityManager) ProxySupport.proxy(em, new EntityManagerWrapper(em, context));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (name.equals("equals") && args != null && args.length == 1) {
+            return em.equals(unwrap(args[0]));
+        }
+        Memoization.beforeInvocation(context, method, args);
+        Object result = FetchGraphs.invoke(em, context, method, args);
+        if (result != null && ProxySupport.QUERY_FACTORIES.contains(name)) {
+            return wrapQuery(result, args[0]);
+        }
+        return result;
+    }
+
+    /**
+     * @param object Any object
+     * @return The wrapped entity manager, if {@code object} is a wrapper. Otherwise {@code object}.
+     */
+    private static Object unwrap(Object object) {
+        if (object != null && Proxy.isProxyClass(object.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(object);
+            if (handler instanceof EntityManagerWrapper) {
+                return ((EntityManagerWrapper) handler).em;
+            }
+        }
+        return object;
+    }
+
+    /**
+     * Wraps {@code query}, if it must be checked by the {@link StaleQueryDetector} or may invalidate memoized results
+     *
+     * @param query  The created query
+     * @param source The JPQL, SQL, name or criteria of the query
+     * @return The wrapped query or {@code query}
+     */
+    private Object wrapQuery(Object query, Object source) {
+        boolean checkStale = StaleQueryDetector.isChecked(em, context);
+        if (!checkStale && !Memoization.isUsed()) {
+            return query;
+        }
+        return ProxySupport.proxy(query, (queryProxy, queryMethod, queryArgs) -> {
+            if (checkStale) {
+                StaleQueryDetector.beforeExecution(em, queryMethod, source, context.getFlushMode());
+            }
+            Memoization.beforeQueryInvocation(context, queryMethod);
+            Object result = ProxySupport.invoke(query, queryMethod, queryArgs);
+            return result == query ? queryProxy : result;
+        });
+    }
+}
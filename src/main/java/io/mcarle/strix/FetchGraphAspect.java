@@ -0,0 +1,28 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.FetchGraph;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.DeclarePrecedence;
+
+@Aspect
+@DeclarePrecedence("io.mcarle.strix.TransactionalAspect, io.mcarle.strix.FetchGraphAspect")
+public class FetchGraphAspect {
+
+    /**
+     * If strix is started: Executes around any method, which is annotated with {@link FetchGraph}. Runs within the
+     * transaction started by the {@link TransactionalAspect}, if the method is transactional as well.
+     *
+     * @param joinPoint  The join point of AspectJ
+     * @param fetchGraph The {@link FetchGraph} annotation of the method
+     * @return The result of the aspected method
+     * @throws Throwable If the aspected method throws an exception
+     */
+    @Around("io.mcarle.strix.TransactionalAspect.isPersistenceStarted() && execution(* *(..)) && @annotation(fetchGraph)")
+    public Object aroundMethodAnnotatedWithFetchGraph(ProceedingJoinPoint joinPoint, FetchGraph fetchGraph)
+          throws Throwable {
+        return FetchGraphs.execute(joinPoint, fetchGraph);
+    }
+
+}
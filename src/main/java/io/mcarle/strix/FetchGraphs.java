@@ -0,0 +1,240 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.FetchGraph;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+import javax.persistence.Query;
+import javax.persistence.Subgraph;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.metamodel.EntityType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Internaly used by strix to apply the entity graph of methods annotated with {@link FetchGraph} to the finds and
+ * queries of the {@link EntityManager} returned by {@link Strix#em()}. The graphs are resolved once per
+ * {@link EntityManagerFactory}, i.e. per persistence unit and tenant.
+ */
+final class FetchGraphs {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FetchGraphs.class);
+    private static final String FETCH_GRAPH_HINT = "javax.persistence.fetchgraph";
+    private static final String LOAD_GRAPH_HINT = "javax.persistence.loadgraph";
+    private static final Map<EntityManagerFactory, Map<FetchGraph, Graph>> GRAPHS = new ConcurrentHashMap<>();
+
+    /**
+     * Executes the join point with {@code fetchGraph} as fetch plan of the current thread
+     *
+     * @param joinPoint  The aspectj reference to the method
+     * @param fetchGraph The {@link FetchGraph} annotation of the method
+     * @return The result of the method
+     * @throws Throwable If the method throws an exception
+     */
+    static Object execute(ProceedingJoinPoint joinPoint, FetchGraph fetchGraph) throws Throwable {
+        TransactionContext context = PersistenceManager.getContext();
+        if (context == null || context.getEntityManager() == null) {
+            LOG.trace("No entity manager bound, ignore fetch graph of {}", joinPoint.getStaticPart());
+            return joinPoint.proceed();
+        }
+        FetchGraph previous = context.getFetchGraph();
+        context.setFetchGraph(fetchGraph);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            context.setFetchGraph(previous);
+        }
+    }
+
+    /**
+     * Drops all cached graphs
+     */
+    static void reset() {
+        GRAPHS.clear();
+    }
+
+    /**
+     * Drops the cached graphs of {@code factory}, as they reference its metamodel. Called by the
+     * {@link EntityManagerFactoryRegistry}, when the factory is closed.
+     *
+     * @param factory The closed factory
+     */
+    static void evict(EntityManagerFactory factory) {
+        if (GRAPHS.remove(factory) != null) {
+            LOG.trace("Drop cached entity graphs of closed factory");
+        }
+    }
+
+    /**
+     * @param factory The factory
+     * @return {@code true}, if there are cached graphs of {@code factory}. Otherwise {@code false}.
+     */
+    static boolean isCached(EntityManagerFactory factory) {
+        return GRAPHS.containsKey(factory);
+    }
+
+    /**
+     * Invokes {@code method} on {@code em} and applies the fetch plan of the current thread, if it is a find or creates
+     * a query of the entity of the fetch plan
+     *
+     * @param em      The {@link EntityManager} bound to the current thread
+     * @param context The context of the current thread
+     * @param method  The invoked method of the {@link EntityManager}
+     * @param args    The arguments of the invocation
+     * @return The result of the invocation
+     * @throws Throwable The exception thrown by the invocation
+     */
+    static Object invoke(EntityManager em, TransactionContext context, Method method, Object[] args) throws Throwable {
+        FetchGraph fetchGraph = context.getFetchGraph();
+        if (fetchGraph == null) {
+            return ProxySupport.invoke(em, method, args);
+        }
+        Graph graph = resolve(em, fetchGraph);
+        String hint = fetchGraph.load() ? LOAD_GRAPH_HINT : FETCH_GRAPH_HINT;
+        if (method.getName().equals("find") && graph.appliesTo((Class<?>) args[0])) {
+            LOG.trace("Apply {} to find of {}", fetchGraph, args[0]);
+            return find(em, args, hint, graph.entityGraph);
+        }
+        Object result = ProxySupport.invoke(em, method, args);
+        if (result instanceof Query && graph.appliesTo(queryResultType(method.getName(), args))) {
+            LOG.trace("Apply {} to query", fetchGraph);
+            ((Query) result).setHint(hint, graph.entityGraph);
+        }
+        return result;
+    }
+
+    /**
+     * @param methodName The name of the invoked method of the {@link EntityManager}
+     * @param args       The arguments of the invocation
+     * @return The result type of the created typed JPQL or criteria query, or {@code null} if unknown
+     */
+    private static Class<?> queryResultType(String methodName, Object[] args) {
+        if (args == null || methodName.equals("createNativeQuery")) {
+            return null;
+        }
+        if (args.length == 2 && args[1] instanceof Class) {
+            return (Class<?>) args[1];
+        }
+        if (args.length == 1 && args[0] instanceof CriteriaQuery) {
+            return ((CriteriaQuery<?>) args[0]).getResultType();
+        }
+        return null;
+    }
+
+    /**
+     * Invokes the matching {@code find} method with {@code entityGraph} added to its hints
+     */
+    private static Object find(EntityManager em, Object[] args, String hint, EntityGraph<?> entityGraph) {
+        Class<?> entityClass = (Class<?>) args[0];
+        Object primaryKey = args[1];
+        LockModeType lockMode = null;
+        Map<String, Object> hints = new HashMap<>();
+        for (int i = 2; i < args.length; i++) {
+            if (args[i] instanceof LockModeType) {
+                lockMode = (LockModeType) args[i];
+            } else if (args[i] instanceof Map) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> properties = (Map<String, Object>) args[i];
+                hints.putAll(properties);
+            }
+        }
+        hints.putIfAbsent(hint, entityGraph);
+        return lockMode == null
+              ? em.find(entityClass, primaryKey, hints)
+              : em.find(entityClass, primaryKey, lockMode, hints);
+    }
+
+    /**
+     * Returns the cached entity graph of {@code fetchGraph} for the factory of {@code em} or creates it
+     *
+     * @throws IllegalArgumentException If the named graph, the entity or one of the attributes does not exist
+     */
+    private static Graph resolve(EntityManager em, FetchGraph fetchGraph) {
+        Map<FetchGraph, Graph> graphs = GRAPHS.computeIfAbsent(
+              em.getEntityManagerFactory(),
+              factory -> new ConcurrentHashMap<>()
+        );
+        Graph graph = graphs.get(fetchGraph);
+        if (graph == null) {
+            graph = fetchGraph.value().isEmpty() ? build(em, fetchGraph) : lookup(em, fetchGraph.value());
+            graphs.put(fetchGraph, graph);
+        }
+        return graph;
+    }
+
+    private static Graph lookup(EntityManager em, String name) {
+        LOG.debug("Look up named entity graph {}", name);
+        EntityGraph<?> entityGraph = em.getEntityGraph(name);
+        for (EntityType<?> type : em.getMetamodel().getEntities()) {
+            if (em.getEntityGraphs(type.getJavaType()).stream().anyMatch(graph -> name.equals(graph.getName()))) {
+                return new Graph(type.getJavaType(), entityGraph);
+            }
+        }
+        throw new IllegalArgumentException("No entity declares the entity graph " + name);
+    }
+
+    private static Graph build(EntityManager em, FetchGraph fetchGraph) {
+        if (fetchGraph.entity() == void.class) {
+            throw new IllegalArgumentException("Neither the name nor the entity of the fetch graph is defined");
+        }
+        LOG.debug("Build entity graph of {} with {}", fetchGraph.entity(), Arrays.toString(fetchGraph.attributes()));
+        EntityGraph<?> entityGraph = em.createEntityGraph(fetchGraph.entity());
+        Map<String, Subgraph<?>> subgraphs = new HashMap<>();
+        // Longer paths first, so every subgraph exists before a shorter path would add its attribute as plain node
+        String[] paths = fetchGraph.attributes().clone();
+        Arrays.sort(paths, Comparator.comparingInt(String::length).reversed());
+        for (String path : paths) {
+            if (subgraphs.containsKey(path)) {
+                continue;
+            }
+            String[] attributes = path.split("\\.");
+            Subgraph<?> parent = null;
+            String prefix = "";
+            for (int i = 0; i < attributes.length - 1; i++) {
+                prefix = prefix.isEmpty() ? attributes[i] : prefix + "." + attributes[i];
+                Subgraph<?> subgraph = subgraphs.get(prefix);
+                if (subgraph == null) {
+                    subgraph = parent == null
+                          ? entityGraph.addSubgraph(attributes[i])
+                          : parent.addSubgraph(attributes[i]);
+                    subgraphs.put(prefix, subgraph);
+                }
+                parent = subgraph;
+            }
+            String last = attributes[attributes.length - 1];
+            if (parent == null) {
+                entityGraph.addAttributeNodes(last);
+            } else {
+                parent.addAttributeNodes(last);
+            }
+        }
+        return new Graph(fetchGraph.entity(), entityGraph);
+    }
+
+    /**
+     * A resolved entity graph with its root entity
+     */
+    private static final class Graph {
+
+        private final Class<?> entityClass;
+        private final EntityGraph<?> entityGraph;
+
+        private Graph(Class<?> entityClass, EntityGraph<?> entityGraph) {
+            this.entityClass = entityClass;
+            this.entityGraph = entityGraph;
+        }
+
+        private boolean appliesTo(Class<?> type) {
+            return type != null && entityClass.isAssignableFrom(type);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package io.mcarle.strix;
+
+import org.hibernate.FlushMode;
+import org.hibernate.LockOptions;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jdbc.ReturningWork;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Synchronization;
+import java.sql.Connection;
+
+/**
+ * Internaly used by strix for hibernate specific functionality. Must only be loaded, if hibernate is present.
+ */
+final class HibernateSupport {
+
+    private static final ReturningWork<Connection> CONNECTION = connection -> connection;
+
+    static boolean isHibernate(EntityManager em) {
+        return em instanceof Session || em.getDelegate() instanceof Session;
+    }
+
+    static Connection getConnection(EntityManager em) {
+        return em.unwrap(Session.class).doReturningWork(CONNECTION);
+    }
+
+    static boolean supportsSkipLocked(EntityManager em) {
+        return em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+              .getJdbcServices()
+              .getDialect()
+              .supportsSkipLocked();
+    }
+
+    /**
+     * @return The value of the lock timeout hint, which makes hibernate skip locked rows
+     */
+    static int skipLockedTimeout() {
+        return LockOptions.SKIP_LOCKED;
+    }
+
+    /**
+     * Opens a {@link StatelessSession} on the JDBC connection of {@code em}, so it takes part in the running transaction
+     */
+    static StatelessSession openStatelessSession(EntityManager em) {
+        return em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).openStatelessSession(getConnection(em));
+    }
+
+    static void setJdbcBatchSize(EntityManager em, int jdbcBatchSize) {
+        em.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+    }
+
+    static Runnable applyFlushMode(EntityManager em, io.mcarle.strix.annotation.FlushMode flushMode) {
+        Session session = em.unwrap(Session.class);
+        FlushMode previous = session.getHibernateFlushMode();
+        session.setHibernateFlushMode(FlushMode.valueOf(flushMode.name()));
+        return () -> session.setHibernateFlushMode(previous);
+    }
+
+    static boolean isDirty(EntityManager em) {
+        return em.unwrap(Session.class).isDirty();
+    }
+
+    static void afterCompletion(EntityManager em, Runnable callback) {
+        em.unwrap(Session.class).getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                callback.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,129 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.FlushMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.PersistenceException;
+import java.sql.Connection;
+
+/**
+ * Internaly used by strix to access the JDBC connection of an {@link EntityManager}. Hibernate is supported by
+ * {@link HibernateSupport}, every other persistence provider must support {@link EntityManager#unwrap(Class)} with
+ * {@link Connection}.
+ */
+final class JdbcConnectionSupport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcConnectionSupport.class);
+    private static final boolean HIBERNATE_PRESENT = isClassPresent("org.hibernate.Session");
+
+    /**
+     * Returns the JDBC connection of {@code em}. The connection is acquired, if the {@link EntityManager} does not
+     * hold one yet.
+     *
+     * @param em The {@link EntityManager}
+     * @return The JDBC connection
+     * @throws PersistenceException If the persistence provider does not provide access to the connection
+     */
+    static Connection getConnection(EntityManager em) {
+        if (HIBERNATE_PRESENT && HibernateSupport.isHibernate(em)) {
+            return HibernateSupport.getConnection(em);
+        }
+        try {
+            return em.unwrap(Connection.class);
+        } catch (PersistenceException ex) {
+            throw new PersistenceException("Persistence provider does not provide access to the JDBC connection", ex);
+        }
+    }
+
+    /**
+     * Executes {@code callback} after the current transaction of {@code em} completed, but before its connection is
+     * released. Only supported with Hibernate, otherwise {@code false} is returned and the caller has to execute the
+     * callback after commit or rollback itself.
+     *
+     * @param em       The {@link EntityManager} with an active transaction
+     * @param callback The callback
+     * @return {@code true}, if the callback is registered. Otherwise {@code false}.
+     */
+    static boolean afterCompletion(EntityManager em, Runnable callback) {
+        if (HIBERNATE_PRESENT && HibernateSupport.isHibernate(em)) {
+            HibernateSupport.afterCompletion(em, callback);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the database of {@code em} supports {@code FOR UPDATE SKIP LOCKED}. Only known with Hibernate.
+     *
+     * @param em The {@link EntityManager}
+     * @return {@code true}, if the database is known to support skipping locked rows. Otherwise {@code false}.
+     */
+    static boolean supportsSkipLocked(EntityManager em) {
+        return HIBERNATE_PRESENT && HibernateSupport.isHibernate(em) && HibernateSupport.supportsSkipLocked(em);
+    }
+
+    /**
+     * Sets the JDBC batch size of {@code em}, so inserts and updates are sent in batches. Only supported with
+     * Hibernate, otherwise the batch size of the persistence unit is used.
+     *
+     * @param em            The {@link EntityManager}
+     * @param jdbcBatchSize The batch size
+     */
+    static void setJdbcBatchSize(EntityManager em, int jdbcBatchSize) {
+        if (isHibernate(em)) {
+            HibernateSupport.setJdbcBatchSize(em, jdbcBatchSize);
+        }
+    }
+
+    /**
+     * Sets the flush mode of {@code em}
+     *
+     * @param em        The {@link EntityManager}
+     * @param flushMode The flush mode, not {@link FlushMode#DEFAULT}
+     * @return Restores the previous flush mode
+     * @throws PersistenceException If {@link FlushMode#MANUAL} is used without hibernate
+     */
+    static Runnable applyFlushMode(EntityManager em, FlushMode flushMode) {
+        if (isHibernate(em)) {
+            return HibernateSupport.applyFlushMode(em, flushMode);
+        }
+        if (flushMode == FlushMode.MANUAL) {
+            throw new PersistenceException("Flush mode MANUAL requires hibernate as persistence provider");
+        }
+        FlushModeType previous = em.getFlushMode();
+        em.setFlushMode(flushMode == FlushMode.COMMIT ? FlushModeType.COMMIT : FlushModeType.AUTO);
+        return () -> em.setFlushMode(previous);
+    }
+
+    /**
+     * Checks if {@code em} has changes, which are not flushed yet. This dirty-checks the whole persistence context.
+     *
+     * @param em The {@link EntityManager}
+     * @return {@code true}, if there are unflushed changes. {@code false}, if there are none or if it is unknown,
+     * because the persistence provider is not hibernate.
+     */
+    static boolean isDirty(EntityManager em) {
+        return isHibernate(em) && HibernateSupport.isDirty(em);
+    }
+
+    /**
+     * @param em The {@link EntityManager}
+     * @return {@code true}, if hibernate is present and {@code em} is a hibernate session. Otherwise {@code false}.
+     */
+    static boolean isHibernate(EntityManager em) {
+        return HIBERNATE_PRESENT && HibernateSupport.isHibernate(em);
+    }
+
+    private static boolean isClassPresent(String className) {
+        try {
+            Class.forName(className, false, JdbcConnectionSupport.class.getClassLoader());
+            LOG.trace("Found {}", className);
+            return true;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package io.mcarle.strix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Internaly used by strix to record the latencies of the transactions per join point, split into the time before the
+ * commit and the time of the commit or rollback. Only a fraction of the transactions is recorded, if a sample rate less
+ * than {@code 1} is set.
+ */
+final class JoinPointStatistics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JoinPointStatistics.class);
+    private static final Map<String, JoinPointStatistics> STATISTICS = new ConcurrentHashMap<>();
+    private static volatile double SAMPLE_RATE = 1;
+
+    private final String signature;
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LatencyHistogram beforeCommit = new LatencyHistogram();
+    private final LatencyHistogram commit = new LatencyHistogram();
+
+    private JoinPointStatistics(String signature) {
+        this.signature = signature;
+    }
+
+    /**
+     * Decides, whether the current transaction of {@code signature} is recorded
+     *
+     * @param signature Describes, who started the transaction
+     * @return The statistics to record the transaction in, or {@code null} if it is not sampled
+     */
+    static JoinPointStatistics sample(String signature) {
+        double sampleRate = SAMPLE_RATE;
+        if (sampleRate <= 0 || sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return null;
+        }
+        JoinPointStatistics statistics = STATISTICS.get(signature);
+        if (statistics == null) {
+            statistics = STATISTICS.computeIfAbsent(signature, JoinPointStatistics::new);
+        }
+        return statistics;
+    }
+
+    /**
+     * @param sampleRate Fraction of transactions between {@code 0} and {@code 1}, which are recorded
+     */
+    static void setSampleRate(double sampleRate) {
+        LOG.debug("Set sample rate of transaction statistics to {}", sampleRate);
+        SAMPLE_RATE = Math.min(Math.max(sampleRate, 0), 1);
+    }
+
+    /**
+     * Removes all recorded latencies. The sample rate is kept.
+     */
+    static void reset() {
+        STATISTICS.clear();
+    }
+
+    /**
+     * @param limit Maximum amount of join points per ranking
+     * @return A snapshot of the join points with the highest 99th percentile and the highest total time
+     */
+    static TransactionStatistics report(int limit) {
+        List<MethodStatistics> snapshots = new ArrayList<>();
+        STATISTICS.values().forEach(statistics -> snapshots.add(statistics.snapshot()));
+        return new TransactionStatistics(
+              SAMPLE_RATE,
+              top(snapshots, Comparator.comparingDouble(MethodStatistics::getP99Millis), limit),
+              top(snapshots, Comparator.comparingDouble(MethodStatistics::getTotalMillis), limit)
+        );
+    }
+
+    private static List<MethodStatistics> top(
+          List<MethodStatistics> snapshots,
+          Comparator<MethodStatistics> comparator,
+          int limit
+    ) {
+        return snapshots.stream()
+              .sorted(comparator.reversed())
+              .limit(Math.max(limit, 0))
+              .collect(Collectors.toList());
+    }
+
+    /**
+     * Records one transaction
+     *
+     * @param beforeCommitNanos Time from the begin of the transaction until its commit or rollback
+     * @param commitNanos       Time of the commit or rollback
+     */
+    void record(long beforeCommitNanos, long commitNanos) {
+        total.record(beforeCommitNanos + commitNanos);
+        beforeCommit.record(beforeCommitNanos);
+        commit.record(commitNanos);
+    }
+
+    private MethodStatistics snapshot() {
+        return new MethodStatistics(
+              signature,
+              total.count(),
+              total.totalMillis(),
+              total.percentileMillis(50),
+              total.percentileMillis(99),
+              beforeCommit.percentileMillis(99),
+              commit.totalMillis(),
+              commit.percentileMillis(99)
+        );
+    }
+}
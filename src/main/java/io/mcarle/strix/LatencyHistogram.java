@@ -0,0 +1,89 @@
+package io.mcarle.strix;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Internaly used by strix to record latencies in microseconds without locks and allocations. Every power of two is
+ * split into four buckets, so a percentile is accurate to 25%.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 160;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalMicros = new LongAdder();
+
+    /**
+     * @param nanos The latency in nanoseconds
+     */
+    void record(long nanos) {
+        long micros = Math.max(nanos / 1000, 0);
+        buckets.incrementAndGet(bucket(micros));
+        totalMicros.add(micros);
+    }
+
+    /**
+     * @return Amount of recorded latencies
+     */
+    long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return Sum of all recorded latencies in milliseconds
+     */
+    double totalMillis() {
+        return totalMicros.sum() / 1000d;
+    }
+
+    /**
+     * @param percentile The percentile between {@code 0} and {@code 100}
+     * @return The upper bound of the bucket containing the percentile in milliseconds, or {@code 0} if nothing was
+     * recorded
+     */
+    double percentileMillis(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max((long) Math.ceil(count * percentile / 100), 1);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBound(i) / 1000d;
+            }
+        }
+        return upperBound(BUCKETS - 1) / 1000d;
+    }
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return Math.min((exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket, BUCKETS - 1);
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,77 @@
+package io.mcarle.strix;
+
+import java.util.Arrays;
+
+/**
+ * Report of a transaction, which is open longer than the warning threshold of the watchdog started with
+ * {@link Strix#watchTransactions(long, java.util.concurrent.TimeUnit, java.util.function.Consumer)}.
+ */
+public final class LongRunningTransaction {
+
+    private final String persistenceUnit;
+    private final String signature;
+    private final String threadName;
+    private final long elapsedMillis;
+    private final StackTraceElement[] stackTrace;
+
+    LongRunningTransaction(
+          String persistenceUnit,
+          String signature,
+          String threadName,
+          long elapsedMillis,
+          StackTraceElement[] stackTrace
+    ) {
+        this.persistenceUnit = persistenceUnit;
+        this.signature = signature;
+        this.threadName = threadName;
+        this.elapsedMillis = elapsedMillis;
+        this.stackTrace = stackTrace;
+    }
+
+    /**
+     * @return The name of the persistence unit
+     */
+    public String getPersistenceUnit() {
+        return persistenceUnit;
+    }
+
+    /**
+     * @return Signature of the method, which started the transaction
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * @return Name of the thread, which owns the transaction
+     */
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * @return Time since the transaction has been started in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return Stack of the owning thread at the time of the report, or {@code null} if it was not captured due to the
+     * rate limit
+     */
+    public StackTraceElement[] getStackTrace() {
+        return stackTrace == null ? null : stackTrace.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "LongRunningTransaction{" +
+              "persistenceUnit='" + persistenceUnit + '\'' +
+              ", signature='" + signature + '\'' +
+              ", threadName='" + threadName + '\'' +
+              ", elapsedMillis=" + elapsedMillis +
+              ", stackTrace=" + (stackTrace == null ? null : Arrays.toString(stackTrace)) +
+              '}';
+    }
+}
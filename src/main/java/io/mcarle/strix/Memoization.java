@@ -0,0 +1,203 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.Memoized;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Internaly used by strix to cache the results of methods annotated with {@link Memoized} in the
+ * {@link TransactionContext} of the running transaction.
+ */
+final class Memoization {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Memoization.class);
+    private static final Set<String> WRITES = new HashSet<>(Arrays.asList("persist", "merge", "remove"));
+    private static final Object NULL = new Object();
+    private static volatile boolean USED = false;
+
+    /**
+     * Returns the cached result of the join point, if it was already executed with equal arguments in the running
+     * transaction. Otherwise executes and caches it.
+     *
+     * @param joinPoint The aspectj reference to the memoized method
+     * @param memoized  The {@link Memoized} annotation of the method
+     * @return The cached or new result of the method
+     * @throws Throwable If the method throws an exception
+     */
+    static Object execute(ProceedingJoinPoint joinPoint, Memoized memoized) throws Throwable {
+        TransactionContext context = PersistenceManager.getContext();
+        if (context == null || !context.isTransactional()) {
+            return joinPoint.proceed();
+        }
+        Cache cache = context.getMemoCache();
+        if (cache == null) {
+            cache = new Cache();
+            context.setMemoCache(cache);
+        }
+        Key key = new Key(joinPoint.getStaticPart(), joinPoint.getArgs());
+        Entry entry = cache.entries.get(key);
+        if (entry != null) {
+            LOG.trace("Return memoized result of {}", key.staticPart);
+            return entry.result == NULL ? null : entry.result;
+        }
+        Object result = joinPoint.proceed();
+        if (context.getMemoCache() == cache) {
+            cache.put(key, new Entry(result == null ? NULL : result, memoized.invalidatedBy()));
+        }
+        return result;
+    }
+
+    /**
+     * Drops all cached results of the running transaction
+     *
+     * @param context The context of the current thread
+     */
+    static void clear(TransactionContext context) {
+        if (context.getMemoCache() != null) {
+            LOG.trace("Drop memoized results");
+            context.setMemoCache(null);
+        }
+    }
+
+    /**
+     * Forgets, that results which can be invalidated were cached
+     */
+    static void reset() {
+        USED = false;
+    }
+
+    /**
+     * @return {@code true}, if a result, which can be invalidated, was cached since strix has been started
+     */
+    static boolean isUsed() {
+        return USED;
+    }
+
+    /**
+     * Invalidates the cached results, which are invalidated by the invocation of {@code method} on the
+     * {@link EntityManager} bound to the current thread
+     *
+     * @param context The context of the current thread
+     * @param method  The invoked method of the {@link EntityManager}
+     * @param args    The arguments of the invocation
+     */
+    static void beforeInvocation(TransactionContext context, Method method, Object[] args) {
+        Cache cache = context.getMemoCache();
+        if (cache != null && cache.invalidatable > 0 && WRITES.contains(method.getName())
+              && args != null && args.length > 0 && args[0] != null) {
+            cache.invalidate(args[0].getClass());
+        }
+    }
+
+    /**
+     * Invalidates all cached results, which can be invalidated, if {@code method} executes a bulk update or delete
+     *
+     * @param context The context of the current thread
+     * @param method  The invoked method of a query
+     */
+    static void beforeQueryInvocation(TransactionContext context, Method method) {
+        Cache cache = context.getMemoCache();
+        if (cache != null && cache.invalidatable > 0 && method.getName().equals("executeUpdate")) {
+            cache.invalidate(null);
+        }
+    }
+
+    /**
+     * The cached results of one transaction
+     */
+    static final class Cache {
+
+        private final Map<Key, Entry> entries = new HashMap<>();
+        private int invalidatable = 0;
+
+        private void put(Key key, Entry entry) {
+            entries.put(key, entry);
+            if (entry.invalidatedBy.length > 0) {
+                invalidatable++;
+                USED = true;
+            }
+        }
+
+        /**
+         * Removes all entries invalidated by changes of {@code type} or by any change, if {@code type} is {@code null}
+         */
+        private void invalidate(Class<?> type) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.isInvalidatedBy(type)) {
+                    LOG.trace("Invalidate memoized result because of change of {}", type);
+                    iterator.remove();
+                    invalidatable--;
+                }
+            }
+        }
+    }
+
+    /**
+     * A cached result
+     */
+    private static final class Entry {
+
+        private final Object result;
+        private final Class<?>[] invalidatedBy;
+
+        private Entry(Object result, Class<?>[] invalidatedBy) {
+            this.result = result;
+            this.invalidatedBy = invalidatedBy;
+        }
+
+        private boolean isInvalidatedBy(Class<?> type) {
+            for (Class<?> invalidating : invalidatedBy) {
+                if (type == null || invalidating.isAssignableFrom(type)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Identifies equal calls of a join point
+     */
+    private static final class Key {
+
+        private final JoinPoint.StaticPart staticPart;
+        private final Object[] arguments;
+        private final int hashCode;
+
+        private Key(JoinPoint.StaticPart staticPart, Object[] arguments) {
+            this.staticPart = staticPart;
+            this.arguments = arguments;
+            this.hashCode = 31 * staticPart.hashCode() + Arrays.deepHashCode(arguments);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return staticPart.equals(key.staticPart) && Arrays.deepEquals(arguments, key.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
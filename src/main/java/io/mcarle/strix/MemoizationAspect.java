@@ -0,0 +1,27 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.Memoized;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.DeclarePrecedence;
+
+@Aspect
+@DeclarePrecedence("io.mcarle.strix.TransactionalAspect, io.mcarle.strix.MemoizationAspect")
+public class MemoizationAspect {
+
+    /**
+     * If strix is started: Executes around any method, which is annotated with {@link Memoized}. Runs within the
+     * transaction started by the {@link TransactionalAspect}, if the method is transactional as well.
+     *
+     * @param joinPoint The join point of AspectJ
+     * @param memoized  The {@link Memoized} annotation of the method
+     * @return The cached or new result of the aspected method
+     * @throws Throwable If the aspected method throws an exception
+     */
+    @Around("io.mcarle.strix.TransactionalAspect.isPersistenceStarted() && execution(* *(..)) && @annotation(memoized)")
+    public Object aroundMethodAnnotatedWithMemoized(ProceedingJoinPoint joinPoint, Memoized memoized) throws Throwable {
+        return Memoization.execute(joinPoint, memoized);
+    }
+
+}
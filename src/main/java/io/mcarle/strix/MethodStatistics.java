@@ -0,0 +1,107 @@
+package io.mcarle.strix;
+
+/**
+ * Snapshot of the recorded transaction latencies of one join point. Percentiles are accurate to 25%. If a sample rate
+ * less than {@code 1} is set, only the sampled transactions are included.
+ */
+public final class MethodStatistics {
+
+    private final String signature;
+    private final long calls;
+    private final double totalMillis;
+    private final double p50Millis;
+    private final double p99Millis;
+    private final double beforeCommitP99Millis;
+    private final double commitTotalMillis;
+    private final double commitP99Millis;
+
+    MethodStatistics(
+          String signature,
+          long calls,
+          double totalMillis,
+          double p50Millis,
+          double p99Millis,
+          double beforeCommitP99Millis,
+          double commitTotalMillis,
+          double commitP99Millis
+    ) {
+        this.signature = signature;
+        this.calls = calls;
+        this.totalMillis = totalMillis;
+        this.p50Millis = p50Millis;
+        this.p99Millis = p99Millis;
+        this.beforeCommitP99Millis = beforeCommitP99Millis;
+        this.commitTotalMillis = commitTotalMillis;
+        this.commitP99Millis = commitP99Millis;
+    }
+
+    /**
+     * @return Signature of the method, which started the transactions
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * @return Amount of recorded transactions
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    /**
+     * @return Sum of the durations of all recorded transactions in milliseconds
+     */
+    public double getTotalMillis() {
+        return totalMillis;
+    }
+
+    /**
+     * @return Median duration of a transaction in milliseconds
+     */
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    /**
+     * @return 99th percentile of the duration of a transaction in milliseconds
+     */
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    /**
+     * @return 99th percentile of the time from the begin of a transaction until its commit or rollback in milliseconds
+     */
+    public double getBeforeCommitP99Millis() {
+        return beforeCommitP99Millis;
+    }
+
+    /**
+     * @return Sum of the durations of all commits and rollbacks in milliseconds
+     */
+    public double getCommitTotalMillis() {
+        return commitTotalMillis;
+    }
+
+    /**
+     * @return 99th percentile of the duration of a commit or rollback in milliseconds
+     */
+    public double getCommitP99Millis() {
+        return commitP99Millis;
+    }
+
+    @Override
+    public String toString() {
+        return "MethodStatistics{" +
+              "signature='" + signature + '\'' +
+              ", calls=" + calls +
+              ", totalMillis=" + String.format("%.1f", totalMillis) +
+              ", p50Millis=" + String.format("%.3f", p50Millis) +
+              ", p99Millis=" + String.format("%.3f", p99Millis) +
+              ", beforeCommitP99Millis=" + String.format("%.3f", beforeCommitP99Millis) +
+              ", commitTotalMillis=" + String.format("%.1f", commitTotalMillis) +
+              ", commitP99Millis=" + String.format("%.3f", commitP99Millis) +
+              '}';
+    }
+}
@@ -4,27 +4,45 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.persistence.TransactionRequiredException;
+import java.util.Map;
 
 /**
  * Internaly used by strix to bind the entity manager and the persistence unit, to which the entity manager belongs, to
- * the transactional thread. After the transactional method is finished, strix unbinds everything.
+ * the transactional thread. After the transactional method is finished, strix unbinds everything. Everything is held
+ * by one {@link TransactionContext} per thread.
  */
 final class PersistenceManager {
 
     private static final Logger LOG = LoggerFactory.getLogger(PersistenceManager.class);
-    private static final ThreadLocal<String> ENTITY_MANAGER_PERSISTENCE_UNIT_STORE = new ThreadLocal<>();
-    private static final ThreadLocal<EntityManager> ENTITY_MANAGER_STORE = new ThreadLocal<>();
+    private static final ThreadLocal<TransactionContext> CONTEXT_STORE = new ThreadLocal<>();
+
+    /**
+     * Returns the context of the current thread. The context is mutable and must not be passed to other threads.
+     *
+     * @return The context of the current thread, or {@code null} if neither an entity manager nor a shard key is bound.
+     */
+    static TransactionContext getContext() {
+        return CONTEXT_STORE.get();
+    }
 
     /**
      * Bind the used persistence unit and entity manager to the current thread
      *
      * @param persistenceUnit Used persistence unit
+     * @param tenant          Used tenant or {@code null}
      * @param entityManager   Used entity manager
+     * @param transactional   {@code true}, if the entity manager is used within a transaction
      */
-    static void setEntityManager(String persistenceUnit, EntityManager entityManager) {
+    static void setEntityManager(
+          String persistenceUnit,
+          String tenant,
+          EntityManager entityManager,
+          boolean transactional
+    ) {
         LOG.trace("Bind entity manager and persistence unit ({}) to current thread", persistenceUnit);
-        ENTITY_MANAGER_PERSISTENCE_UNIT_STORE.set(persistenceUnit);
-        ENTITY_MANAGER_STORE.set(entityManager);
+        getOrCreateContext().bind(persistenceUnit, tenant, entityManager, transactional);
     }
 
     /**
@@ -32,35 +50,167 @@ final class PersistenceManager {
      */
     static void clearEntityManager() {
         LOG.trace("Unbind entity manager and persistence unit from current thread");
-        ENTITY_MANAGER_PERSISTENCE_UNIT_STORE.remove();
-        ENTITY_MANAGER_STORE.remove();
+        TransactionContext context = CONTEXT_STORE.get();
+        if (context != null) {
+            context.unbind();
+            removeIfEmpty(context);
+        }
+    }
+
+    /**
+     * Returns the persistence unit of the entity manager bound to the current thread.
+     *
+     * @return The persistence unit, or {@code null} if no entity manager is bound.
+     */
+    static String getPersistenceUnit() {
+        TransactionContext context = CONTEXT_STORE.get();
+        return context == null ? null : context.getPersistenceUnit();
     }
 
     /**
-     * Checks if there is an entity manager bound to current thread
+     * Binds the shard key to the current thread, which is used for methods without {@link
+     * io.mcarle.strix.annotation.ShardKey} parameter.
      *
-     * @return {@code true}, if an entity manager is bound to the current thread. Otherwise {@code false}.
+     * @param shardKey The shard key or {@code null} to unbind the shard key
      */
-    static boolean isEntityManagerPresent() {
-        return ENTITY_MANAGER_STORE.get() != null;
+    static void setShardKey(Object shardKey) {
+        if (shardKey != null) {
+            getOrCreateContext().setShardKey(shardKey);
+        } else {
+            TransactionContext context = CONTEXT_STORE.get();
+            if (context != null) {
+                context.setShardKey(null);
+                removeIfEmpty(context);
+            }
+        }
     }
 
     /**
-     * Checks if there is an entity manager bound to current thread and if it belongs to the delivered persistence unit
+     * Binds the tenants resolved by another thread to the current thread, so transactions started in the current thread
+     * use them instead of asking the {@link TenantResolver}.
      *
-     * @param persistenceUnit The persistence unit name to which the entity manager should belong to
-     * @return {@code true}, if the entity manager belongs to {@code persistenceUnit}. Otherwise {@code false}.
+     * @param tenants Map of persistence unit to tenant or {@code null} to unbind the tenants
      */
-    static boolean isEntityManagerFromPU(String persistenceUnit) {
-        return persistenceUnit.equals(ENTITY_MANAGER_PERSISTENCE_UNIT_STORE.get());
+    static void setTenants(Map<String, String> tenants) {
+        if (tenants != null) {
+            getOrCreateContext().setTenants(tenants);
+        } else {
+            TransactionContext context = CONTEXT_STORE.get();
+            if (context != null) {
+                context.setTenants(null);
+                removeIfEmpty(context);
+            }
+        }
     }
 
     /**
-     * Returns the entity manager bpund to the current thread.
+     * Returns the shard key bound to the current thread.
+     *
+     * @return The shard key, or {@code null} if no shard key is bound.
+     */
+    static Object getShardKey() {
+        TransactionContext context = CONTEXT_STORE.get();
+        return context == null ? null : context.getShardKey();
+    }
+
+    /**
+     * Returns the entity manager bound to the current thread. If the {@link StaleQueryDetector}, the
+     * {@link Memoization} or the {@link FetchGraphs} have to be applied, it is wrapped once per binding by the
+     * {@link EntityManagerWrapper}. Otherwise the bound entity manager is returned unchanged.
      *
      * @return The entity manager bound to the current thread, or {@code null} if no entity manager is bound.
      */
     static EntityManager getEntityManager() {
-        return ENTITY_MANAGER_STORE.get();
+        TransactionContext context = CONTEXT_STORE.get();
+        if (context == null || context.getEntityManager() == null) {
+            return null;
+        }
+        if (!isWrapped(context)) {
+            return context.getEntityManager();
+        }
+        EntityManager wrapped = context.getWrappedEntityManager();
+        if (wrapped == null) {
+            wrapped = EntityManagerWrapper.wrap(context.getEntityManager(), context);
+            context.setWrappedEntityManager(wrapped);
+        }
+        return wrapped;
+    }
+
+    /**
+     * Checks if the entity manager of {@code context} has to be wrapped: A wrapper is needed, if stale queries are
+     * detected, a fetch plan or memoized results exist, or results which can be invalidated were memoized since strix
+     * has been started. The latter ensures, that an entity manager obtained before the first result got memoized in the
+     * running transaction, still invalidates it.
+     *
+     * @param context The context of the current thread
+     * @return {@code true}, if the {@link EntityManagerWrapper} has to be used. Otherwise {@code false}.
+     */
+    private static boolean isWrapped(TransactionContext context) {
+        return context.getWrappedEntityManager() != null
+              || context.getMemoCache() != null
+              || context.getFetchGraph() != null
+              || Memoization.isUsed()
+              || StaleQueryDetector.isChecked(context.getEntityManager(), context);
+    }
+
+    /**
+     * Returns the {@link org.hibernate.StatelessSession} of the running transaction. It is opened on first access on the
+     * JDBC connection of the bound entity manager and closed, when the transaction completes. It is returned as
+     * {@link AutoCloseable}, so this class does not depend on hibernate.
+     *
+     * @return The stateless session of the current thread
+     * @throws TransactionRequiredException If there is no active transaction in the current thread
+     * @throws PersistenceException         If the persistence provider is not hibernate
+     */
+    static AutoCloseable getStatelessSession() {
+        TransactionContext context = CONTEXT_STORE.get();
+        if (context == null || !context.isTransactional()) {
+            throw new TransactionRequiredException("A StatelessSession can only be used within a transaction");
+        }
+        if (!JdbcConnectionSupport.isHibernate(context.getEntityManager())) {
+            throw new PersistenceException("A StatelessSession requires hibernate as persistence provider");
+        }
+        if (context.getStatelessSession() == null) {
+            LOG.trace("Open StatelessSession on the connection of the current transaction");
+            context.setStatelessSession(HibernateSupport.openStatelessSession(context.getEntityManager()));
+        }
+        return context.getStatelessSession();
+    }
+
+    /**
+     * Closes the {@link org.hibernate.StatelessSession} of {@code context}, if one was opened. The JDBC connection stays open.
+     *
+     * @param context The context of the current thread
+     */
+    static void closeStatelessSession(TransactionContext context) {
+        AutoCloseable statelessSession = context.getStatelessSession();
+        if (statelessSession != null) {
+            context.setStatelessSession(null);
+            LOG.trace("Close StatelessSession");
+            try {
+                statelessSession.close();
+            } catch (Exception ex) {
+                LOG.warn("Could not close StatelessSession", ex);
+            }
+        }
+    }
+
+    private static TransactionContext getOrCreateContext() {
+        TransactionContext context = CONTEXT_STORE.get();
+        if (context == null) {
+            context = new TransactionContext();
+            CONTEXT_STORE.set(context);
+        }
+        return context;
+    }
+
+    /**
+     * Removes the context from the current thread, if nothing is bound anymore. So no context is retained by threads,
+     * which are not executing a transaction (e.g. pooled threads of an application server).
+     */
+    private static void removeIfEmpty(TransactionContext context) {
+        if (context.getEntityManager() == null && context.getShardKey() == null && context.getTenants() == null) {
+            CONTEXT_STORE.remove();
+        }
     }
 }
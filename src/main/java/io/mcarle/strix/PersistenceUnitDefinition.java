@@ -0,0 +1,280 @@
+package io.mcarle.strix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import javax.persistence.SharedCacheMode;
+import javax.persistence.ValidationMode;
+import javax.persistence.spi.ClassTransformer;
+import javax.persistence.spi.PersistenceProvider;
+import javax.persistence.spi.PersistenceProviderResolverHolder;
+import javax.persistence.spi.PersistenceUnitInfo;
+import javax.persistence.spi.PersistenceUnitTransactionType;
+import javax.sql.DataSource;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Defines a persistence unit in code instead of the persistence.xml. Its {@link EntityManagerFactory} is created
+ * directly with {@link PersistenceProvider#createContainerEntityManagerFactory(PersistenceUnitInfo, Map)}, so neither
+ * the persistence.xml is parsed nor the classpath is scanned for entities. Only the listed entities are managed.
+ * <pre>
+ * Strix.startup(Strix.definePersistenceUnit("library")
+ *       .dataSource(dataSource)
+ *       .entities(Book.class, Author.class)
+ *       .property("hibernate.jdbc.batch_size", "50"));
+ * </pre>
+ */
+public final class PersistenceUnitDefinition {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PersistenceUnitDefinition.class);
+
+    private final String name;
+    private final List<String> managedClassNames = new ArrayList<>();
+    private final Map<String, String> properties = new LinkedHashMap<>();
+    private DataSource dataSource;
+    private String providerClassName;
+
+    PersistenceUnitDefinition(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param dataSource The data source, from which the connections are obtained. If not set, the connections are
+     *                   configured by the JDBC properties, e.g. {@code javax.persistence.jdbc.url}.
+     * @return this
+     */
+    public PersistenceUnitDefinition dataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+        return this;
+    }
+
+    /**
+     * @param entityClasses The entities and embeddables, which are managed by the persistence unit
+     * @return this
+     */
+    public PersistenceUnitDefinition entities(Class<?>... entityClasses) {
+        for (Class<?> entityClass : entityClasses) {
+            managedClassNames.add(entityClass.getName());
+        }
+        return this;
+    }
+
+    /**
+     * @param name  Name of a persistence property, e.g. a JDBC or provider specific setting
+     * @param value Value of the property
+     * @return this
+     */
+    public PersistenceUnitDefinition property(String name, String value) {
+        properties.put(name, value);
+        return this;
+    }
+
+    /**
+     * @param properties Persistence properties, e.g. JDBC or provider specific settings
+     * @return this
+     */
+    public PersistenceUnitDefinition properties(Map<String, String> properties) {
+        this.properties.putAll(properties);
+        return this;
+    }
+
+    /**
+     * @param providerClassName The class name of the {@link PersistenceProvider}. If not set, the first provider found
+     *                          on the classpath is used.
+     * @return this
+     */
+    public PersistenceUnitDefinition provider(String providerClassName) {
+        this.providerClassName = providerClassName;
+        return this;
+    }
+
+    /**
+     * @return The name of the persistence unit
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Creates the {@link EntityManagerFactory} of this persistence unit
+     *
+     * @param overrides Persistence properties, which override the properties of this definition, or {@code null}
+     * @return The new factory
+     * @throws PersistenceException If the provider cannot be found or the factory cannot be created
+     */
+    EntityManagerFactory createEntityManagerFactory(Map<String, String> overrides) {
+        PersistenceProvider provider = resolveProvider();
+        LOG.debug("Create EntityManagerFactory of defined persistence unit {} with {}", name, provider.getClass());
+        Properties unitProperties = new Properties();
+        unitProperties.putAll(properties);
+        PersistenceUnitInfo info = new DefinedPersistenceUnitInfo(
+              name,
+              provider.getClass().getName(),
+              dataSource,
+              Collections.unmodifiableList(new ArrayList<>(managedClassNames)),
+              unitProperties,
+              Thread.currentThread().getContextClassLoader() != null
+                    ? Thread.currentThread().getContextClassLoader()
+                    : PersistenceUnitDefinition.class.getClassLoader()
+        );
+        EntityManagerFactory factory = provider.createContainerEntityManagerFactory(
+              info,
+              overrides == null ? Collections.emptyMap() : new HashMap<>(overrides)
+        );
+        if (factory == null) {
+            throw new PersistenceException("Provider " + provider.getClass() + " cannot create persistence unit " + name);
+        }
+        return factory;
+    }
+
+    private PersistenceProvider resolveProvider() {
+        List<PersistenceProvider> providers = PersistenceProviderResolverHolder.getPersistenceProviderResolver()
+              .getPersistenceProviders();
+        for (PersistenceProvider provider : providers) {
+            if (providerClassName == null || provider.getClass().getName().equals(providerClassName)) {
+                return provider;
+            }
+        }
+        if (providerClassName == null) {
+            throw new PersistenceException("No persistence provider found for persistence unit " + name);
+        }
+        try {
+            return (PersistenceProvider) Class.forName(providerClassName).newInstance();
+        } catch (ReflectiveOperationException | ClassCastException ex) {
+            throw new PersistenceException("Persistence provider " + providerClassName + " cannot be created", ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PersistenceUnitDefinition{" +
+              "name='" + name + '\'' +
+              ", managedClassNames=" + managedClassNames +
+              ", dataSource=" + dataSource +
+              ", providerClassName='" + providerClassName + '\'' +
+              '}';
+    }
+
+    /**
+     * The {@link PersistenceUnitInfo} passed to the provider instead of parsing the persistence.xml
+     */
+    private static final class DefinedPersistenceUnitInfo implements PersistenceUnitInfo {
+
+        private final String name;
+        private final String providerClassName;
+        private final DataSource dataSource;
+        private final List<String> managedClassNames;
+        private final Properties properties;
+        private final ClassLoader classLoader;
+
+        private DefinedPersistenceUnitInfo(
+              String name,
+              String providerClassName,
+              DataSource dataSource,
+              List<String> managedClassNames,
+              Properties properties,
+              ClassLoader classLoader
+        ) {
+            this.name = name;
+            this.providerClassName = providerClassName;
+            this.dataSource = dataSource;
+            this.managedClassNames = managedClassNames;
+            this.properties = properties;
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public String getPersistenceUnitName() {
+            return name;
+        }
+
+        @Override
+        public String getPersistenceProviderClassName() {
+            return providerClassName;
+        }
+
+        @Override
+        public PersistenceUnitTransactionType getTransactionType() {
+            return PersistenceUnitTransactionType.RESOURCE_LOCAL;
+        }
+
+        @Override
+        public DataSource getJtaDataSource() {
+            return null;
+        }
+
+        @Override
+        public DataSource getNonJtaDataSource() {
+            return dataSource;
+        }
+
+        @Override
+        public List<String> getMappingFileNames() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<URL> getJarFileUrls() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public URL getPersistenceUnitRootUrl() {
+            return null;
+        }
+
+        @Override
+        public List<String> getManagedClassNames() {
+            return managedClassNames;
+        }
+
+        @Override
+        public boolean excludeUnlistedClasses() {
+            return true;
+        }
+
+        @Override
+        public SharedCacheMode getSharedCacheMode() {
+            return SharedCacheMode.UNSPECIFIED;
+        }
+
+        @Override
+        public ValidationMode getValidationMode() {
+            return ValidationMode.AUTO;
+        }
+
+        @Override
+        public Properties getProperties() {
+            return properties;
+        }
+
+        @Override
+        public String getPersistenceXMLSchemaVersion() {
+            return "2.1";
+        }
+
+        @Override
+        public ClassLoader getClassLoader() {
+            return classLoader;
+        }
+
+        @Override
+        public void addTransformer(ClassTransformer transformer) {
+            LOG.trace("Ignore class transformer of persistence unit {}", name);
+        }
+
+        @Override
+        public ClassLoader getNewTempClassLoader() {
+            return classLoader;
+        }
+    }
+}
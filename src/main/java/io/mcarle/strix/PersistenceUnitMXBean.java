@@ -0,0 +1,98 @@
+package io.mcarle.strix;
+
+/**
+ * Management interface of a persistence unit, registered by strix as
+ * {@code io.mcarle.strix:type=PersistenceUnit,name="<persistence unit>"} in the platform MBean server, as soon as the
+ * persistence unit is used the first time. The settings stay active, even if strix gets restarted.
+ */
+public interface PersistenceUnitMXBean {
+
+    /**
+     * @return The name of the persistence unit
+     */
+    String getPersistenceUnit();
+
+    /**
+     * @return Amount of currently open transactions
+     */
+    int getInFlightTransactions();
+
+    /**
+     * @return Age of the oldest open transaction in milliseconds, or {@code 0} if there is none
+     */
+    long getOldestTransactionAgeMillis();
+
+    /**
+     * @return Signature of the method, which started the oldest open transaction, or {@code null} if there is none
+     */
+    String getOldestTransactionSignature();
+
+    /**
+     * @return Amount of {@link javax.persistence.EntityManagerFactory EntityManagerFactories} of the persistence unit,
+     * which can be used by new transactions
+     */
+    int getOpenFactories();
+
+    /**
+     * @return Amount of evicted {@link javax.persistence.EntityManagerFactory EntityManagerFactories} of the
+     * persistence unit, which are still used by in-flight transactions
+     */
+    int getDrainingFactories();
+
+    /**
+     * @return Most severe state of the circuit breakers of all tenants: {@code OPEN}, {@code HALF_OPEN} or
+     * {@code CLOSED}
+     */
+    String getCircuitState();
+
+    /**
+     * @return Amount of committed transactions since strix has been started
+     */
+    long getCommits();
+
+    /**
+     * @return Amount of rollbacked transactions since strix has been started
+     */
+    long getRollbacks();
+
+    /**
+     * @return Amount of transactions, which reached their timeout, since strix has been started
+     */
+    long getTimeouts();
+
+    /**
+     * @return The timeout in milliseconds of transactions, which do not define a timeout. {@code 0} means no timeout.
+     */
+    int getDefaultTimeout();
+
+    /**
+     * @param defaultTimeout The timeout in milliseconds of transactions, which do not define a timeout. {@code 0} means
+     *                       no timeout.
+     */
+    void setDefaultTimeout(int defaultTimeout);
+
+    /**
+     * @return Maximum amount of concurrently open transactions. {@code 0} means no limit.
+     */
+    int getMaxConcurrentTransactions();
+
+    /**
+     * Limits the amount of concurrently open transactions. A new transaction waits, until another one is finished. The
+     * limit must be greater than the amount of transactions a single thread may open at once (e.g. with
+     * {@link io.mcarle.strix.annotation.Propagation#REQUIRES_NEW}), otherwise threads may wait for themselves.
+     *
+     * @param maxConcurrentTransactions Maximum amount of concurrently open transactions. {@code 0} means no limit.
+     */
+    void setMaxConcurrentTransactions(int maxConcurrentTransactions);
+
+    /**
+     * @return Fraction of transactions between {@code 0} and {@code 1}, which are logged with their duration
+     */
+    double getTraceSampleRate();
+
+    /**
+     * @param traceSampleRate Fraction of transactions between {@code 0} and {@code 1}, which are logged with their
+     *                        duration by the logger {@code io.mcarle.strix.trace}
+     */
+    void setTraceSampleRate(double traceSampleRate);
+}
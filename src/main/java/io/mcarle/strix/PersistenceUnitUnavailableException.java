@@ -0,0 +1,25 @@
+package io.mcarle.strix;
+
+import javax.persistence.PersistenceException;
+
+/**
+ * Thrown immediately instead of starting a new transaction, if the circuit breaker of a persistence unit is open, i.e.
+ * its database failed repeatedly. See
+ * {@link Strix#configureCircuitBreaker(String, int, int, long, java.util.concurrent.TimeUnit)}.
+ */
+public class PersistenceUnitUnavailableException extends PersistenceException {
+
+    private final String persistenceUnit;
+
+    public PersistenceUnitUnavailableException(String persistenceUnit, String message, Throwable cause) {
+        super(message, cause);
+        this.persistenceUnit = persistenceUnit;
+    }
+
+    /**
+     * @return The name of the unavailable persistence unit
+     */
+    public String getPersistenceUnit() {
+        return persistenceUnit;
+    }
+}
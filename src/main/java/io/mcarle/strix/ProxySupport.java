@@ -0,0 +1,74 @@
+package io.mcarle.strix;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Internaly used by strix to wrap the {@link javax.persistence.EntityManager} returned by {@link Strix#em()} and the
+ * queries created by it.
+ */
+final class ProxySupport {
+
+    /**
+     * Names of the methods of {@link javax.persistence.EntityManager}, which create a query
+     */
+    static final Set<String> QUERY_FACTORIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+          "createQuery",
+          "createNamedQuery",
+          "createNativeQuery"
+    )));
+
+    /**
+     * All interfaces implemented by a class and its superclasses, computed once per class
+     */
+    private static final ClassValue<Class<?>[]> INTERFACES = new ClassValue<Class<?>[]>() {
+        @Override
+        protected Class<?>[] computeValue(Class<?> targetClass) {
+            Set<Class<?>> interfaces = new LinkedHashSet<>();
+            for (Class<?> type = targetClass; type != null; type = type.getSuperclass()) {
+                interfaces.addAll(Arrays.asList(type.getInterfaces()));
+            }
+            return interfaces.toArray(new Class<?>[0]);
+        }
+    };
+
+    /**
+     * Creates a proxy implementing all interfaces of {@code target}, so it can still be cast to provider specific
+     * interfaces
+     *
+     * @param target  The wrapped object
+     * @param handler The handler of all invocations
+     * @return The proxy
+     */
+    static Object proxy(Object target, InvocationHandler handler) {
+        return Proxy.newProxyInstance(
+              target.getClass().getClassLoader(),
+              INTERFACES.get(target.getClass()),
+              handler
+        );
+    }
+
+    /**
+     * Invokes {@code method} on {@code target} and rethrows the exception of the method without wrapping
+     *
+     * @param target The wrapped object
+     * @param method The invoked method
+     * @param args   The arguments of the invocation
+     * @return The result of the method
+     * @throws Throwable The exception thrown by the method
+     */
+    static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.RegisteredQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Internaly used by strix to hold the registered JPQL queries. Every query is compiled, whenever an
+ * {@link EntityManagerFactory} of its persistence units is created, so invalid queries fail the bootstrap and the
+ * provider caches the query plans before the first transaction.
+ */
+final class QueryRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryRegistry.class);
+    private static final Map<String, Registration> REGISTRATIONS = new ConcurrentHashMap<>();
+
+    /**
+     * Registers {@code jpql} as {@code name}. A previous registration with the same name is replaced.
+     *
+     * @param name             The name of the query
+     * @param jpql             The JPQL of the query
+     * @param persistenceUnits The persistence units, in which the query is valid. Empty for all persistence units.
+     */
+    static void register(String name, String jpql, String... persistenceUnits) {
+        LOG.trace("Register query {}", name);
+        REGISTRATIONS.put(name, new Registration(name, jpql, new HashSet<>(Arrays.asList(persistenceUnits))));
+    }
+
+    /**
+     * Registers all {@code static final String} fields of {@code holder} annotated with {@link RegisteredQuery}
+     *
+     * @param holder The class declaring the queries
+     * @return Amount of registered queries
+     * @throws IllegalArgumentException If an annotated field is no {@code static final String}
+     */
+    static int register(Class<?> holder) {
+        int registered = 0;
+        for (Field field : holder.getDeclaredFields()) {
+            RegisteredQuery annotation = field.getAnnotation(RegisteredQuery.class);
+            if (annotation == null) {
+                continue;
+            }
+            int modifiers = field.getModifiers();
+            if (!Modifier.isStatic(modifiers) || !Modifier.isFinal(modifiers) || field.getType() != String.class) {
+                throw new IllegalArgumentException("Registered query " + field + " is no static final String");
+            }
+            String name = annotation.name().isEmpty()
+                  ? holder.getSimpleName() + "." + field.getName()
+                  : annotation.name();
+            try {
+                field.setAccessible(true);
+                register(name, (String) field.get(null), annotation.persistenceUnits());
+            } catch (IllegalAccessException ex) {
+                throw new IllegalArgumentException("Registered query " + field + " cannot be read", ex);
+            }
+            registered++;
+        }
+        return registered;
+    }
+
+    /**
+     * @param name The name of the query
+     */
+    static void unregister(String name) {
+        LOG.trace("Unregister query {}", name);
+        REGISTRATIONS.remove(name);
+    }
+
+    /**
+     * Looks up the JPQL of the query {@code name} and counts the hit
+     *
+     * @param name The name of the query
+     * @return The JPQL of the query
+     * @throws IllegalArgumentException If there is no query registered as {@code name}
+     */
+    static String lookup(String name) {
+        Registration registration = REGISTRATIONS.get(name);
+        if (registration == null) {
+            throw new IllegalArgumentException("No query registered as '" + name + "'");
+        }
+        registration.hits.increment();
+        return registration.jpql;
+    }
+
+    /**
+     * Compiles all queries valid in {@code persistenceUnit} with a new {@link EntityManager} of {@code factory}
+     *
+     * @param persistenceUnit The name of the persistence unit
+     * @param factory         The newly created factory of the persistence unit
+     * @throws PersistenceException If at least one query is invalid
+     */
+    static void prepare(String persistenceUnit, EntityManagerFactory factory) {
+        List<Registration> registrations = REGISTRATIONS.values().stream()
+              .filter(registration -> registration.isValidIn(persistenceUnit))
+              .collect(Collectors.toList());
+        if (registrations.isEmpty()) {
+            return;
+        }
+        LOG.debug("Compile {} registered queries of persistence unit {}", registrations.size(), persistenceUnit);
+        List<String> failures = new ArrayList<>();
+        EntityManager em = factory.createEntityManager();
+        try {
+            for (Registration registration : registrations) {
+                try {
+                    em.createQuery(registration.jpql);
+                } catch (RuntimeException ex) {
+                    LOG.debug("Registered query {} is invalid", registration.name, ex);
+                    failures.add(registration.name + ": " + ex.getMessage());
+                }
+            }
+        } finally {
+            em.close();
+        }
+        if (!failures.isEmpty()) {
+            throw new PersistenceException(
+                  "Invalid registered queries in persistence unit '" + persistenceUnit + "': " + failures
+            );
+        }
+    }
+
+    /**
+     * @return Snapshots of all registered queries, ordered by their hits descending
+     */
+    static List<QueryStatistics> statistics() {
+        List<QueryStatistics> statistics = REGISTRATIONS.values().stream()
+              .map(registration -> new QueryStatistics(registration.name, registration.jpql, registration.hits.sum()))
+              .sorted(Comparator.comparingLong(QueryStatistics::getHits).reversed())
+              .collect(Collectors.toList());
+        return Collections.unmodifiableList(statistics);
+    }
+
+    /**
+     * Resets the hits of all queries. The registrations are kept.
+     */
+    static void resetStatistics() {
+        REGISTRATIONS.values().forEach(registration -> registration.hits.reset());
+    }
+
+    /**
+     * A registered query
+     */
+    private static final class Registration {
+
+        private final String name;
+        private final String jpql;
+        private final Set<String> persistenceUnits;
+        private final LongAdder hits = new LongAdder();
+
+        private Registration(String name, String jpql, Set<String> persistenceUnits) {
+            this.name = name;
+            this.jpql = jpql;
+            this.persistenceUnits = persistenceUnits;
+        }
+
+        private boolean isValidIn(String persistenceUnit) {
+            return persistenceUnits.isEmpty() || persistenceUnits.contains(persistenceUnit);
+        }
+    }
+}
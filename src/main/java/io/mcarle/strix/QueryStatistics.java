@@ -0,0 +1,48 @@
+package io.mcarle.strix;
+
+/**
+ * Snapshot of a query registered with {@link Strix#registerQuery(String, String, String...)}
+ */
+public final class QueryStatistics {
+
+    private final String name;
+    private final String jpql;
+    private final long hits;
+
+    QueryStatistics(String name, String jpql, long hits) {
+        this.name = name;
+        this.jpql = jpql;
+        this.hits = hits;
+    }
+
+    /**
+     * @return The name of the query
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The JPQL of the query
+     */
+    public String getJpql() {
+        return jpql;
+    }
+
+    /**
+     * @return Amount of queries created with {@link Strix#query(String)} or {@link Strix#query(String, Class)} since
+     * strix has been started
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryStatistics{" +
+              "name='" + name + '\'' +
+              ", jpql='" + jpql + '\'' +
+              ", hits=" + hits +
+              '}';
+    }
+}
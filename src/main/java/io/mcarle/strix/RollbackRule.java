@@ -0,0 +1,80 @@
+package io.mcarle.strix;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * JUnit rule, which executes every test in a transaction of one persistence unit and rollbacks it afterwards, so the
+ * schema does not need to be recreated between tests. Strix is started on first use and kept running until the JVM
+ * exits, so the {@link javax.persistence.EntityManagerFactory} is only created once.
+ * <pre>
+ * &#64;Rule
+ * public RollbackRule rollbackRule = new RollbackRule("library");
+ * </pre>
+ * Transactional methods called by the test join the transaction. Methods requiring a new transaction run in a
+ * savepoint of the test transaction instead, so they see its changes and their changes are rollbacked as well.
+ * Transactions of other persistence units or started in other threads are committed as usual.
+ */
+public final class RollbackRule implements TestRule {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RollbackRule.class);
+    private static boolean SHUTDOWN_HOOK_REGISTERED = false;
+
+    private final String persistenceUnit;
+    private final Map<String, Map<String, String>> persistenceProperties;
+    private final String defaultPersistenceUnit;
+
+    /**
+     * @param persistenceUnit The persistence unit of the test transaction
+     */
+    public RollbackRule(String persistenceUnit) {
+        this(persistenceUnit, null, null);
+    }
+
+    /**
+     * @param persistenceUnit        The persistence unit of the test transaction
+     * @param persistenceProperties  see {@link Strix#startup(Map)}, used if strix is not running yet
+     * @param defaultPersistenceUnit see {@link Strix#startup(String)}, used if strix is not running yet
+     */
+    public RollbackRule(
+          String persistenceUnit,
+          Map<String, Map<String, String>> persistenceProperties,
+          String defaultPersistenceUnit
+    ) {
+        this.persistenceUnit = persistenceUnit;
+        this.persistenceProperties = persistenceProperties;
+        this.defaultPersistenceUnit = defaultPersistenceUnit;
+    }
+
+    @Override
+    public Statement apply(Statement base, Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                startupOnce();
+                LOG.trace("Execute {} in a transaction, which will be rollbacked", description);
+                StrixManager.executeAndRollback(persistenceUnit, base::evaluate);
+            }
+        };
+    }
+
+    /**
+     * Starts strix, if it is not running, and shuts it down, when the JVM exits
+     */
+    private void startupOnce() {
+        synchronized (RollbackRule.class) {
+            if (!StrixManager.STARTED) {
+                Strix.startup(persistenceProperties, defaultPersistenceUnit);
+            }
+            if (!SHUTDOWN_HOOK_REGISTERED) {
+                Runtime.getRuntime().addShutdownHook(new Thread(Strix::shutdown, "STRIX-SHUTDOWN"));
+                SHUTDOWN_HOOK_REGISTERED = true;
+            }
+        }
+    }
+}
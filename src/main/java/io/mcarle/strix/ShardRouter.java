@@ -0,0 +1,141 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.ShardKey;
+import io.mcarle.strix.sharding.CrossShardTransactionException;
+import io.mcarle.strix.sharding.ShardingStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Internaly used by strix to route transactions of a sharded logical persistence unit to one of its shards.
+ */
+final class ShardRouter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardRouter.class);
+    private static final Map<String, ShardingStrategy> STRATEGIES = new ConcurrentHashMap<>();
+    private static final Map<String, String> LOGICAL_PERSISTENCE_UNITS = new ConcurrentHashMap<>();
+
+    /**
+     * Registers {@code strategy} for the logical persistence unit {@code persistenceUnit}
+     *
+     * @param persistenceUnit The name of the logical persistence unit
+     * @param strategy        The strategy selecting one of the shards
+     */
+    static void register(String persistenceUnit, ShardingStrategy strategy) {
+        LOG.trace("Register sharding strategy for persistence unit {}", persistenceUnit);
+        unregister(persistenceUnit);
+        strategy.getShards().forEach(shard -> LOGICAL_PERSISTENCE_UNITS.put(shard, persistenceUnit));
+        STRATEGIES.put(persistenceUnit, strategy);
+    }
+
+    /**
+     * Removes the strategy of the logical persistence unit {@code persistenceUnit}
+     *
+     * @param persistenceUnit The name of the logical persistence unit
+     */
+    static void unregister(String persistenceUnit) {
+        ShardingStrategy strategy = STRATEGIES.remove(persistenceUnit);
+        if (strategy != null) {
+            LOG.trace("Unregister sharding strategy for persistence unit {}", persistenceUnit);
+            strategy.getShards().forEach(shard -> LOGICAL_PERSISTENCE_UNITS.remove(shard, persistenceUnit));
+        }
+    }
+
+    /**
+     * @param persistenceUnit The name of the logical persistence unit
+     * @return The shards of the logical persistence unit
+     * @throws IllegalArgumentException If {@code persistenceUnit} is not sharded
+     */
+    static List<String> getShards(String persistenceUnit) {
+        ShardingStrategy strategy = STRATEGIES.get(persistenceUnit);
+        if (strategy == null) {
+            throw new IllegalArgumentException("Persistence unit '" + persistenceUnit + "' is not sharded");
+        }
+        return strategy.getShards();
+    }
+
+    /**
+     * Routes the execution of {@code method} to a shard, if {@code persistenceUnit} is sharded. The shard key is
+     * taken from the parameter annotated with {@link ShardKey} or, if there is none, from the current thread. Without
+     * any shard key, a nested call stays on the shard of the running transaction.
+     *
+     * @param persistenceUnit        The persistence unit defined by {@link io.mcarle.strix.annotation.Transactional}
+     * @param defaultPersistenceUnit The default persistence unit, used if {@code persistenceUnit} is empty
+     * @param method                 The executed transactional method
+     * @param shardKeyArgument       The value of the parameter annotated with {@link ShardKey}
+     * @return The selected shard, or {@code persistenceUnit} if it is not sharded
+     * @throws IllegalStateException If the persistence unit is sharded, but no shard key is available
+     */
+    static String route(
+          String persistenceUnit,
+          String defaultPersistenceUnit,
+          TransactionalMethod method,
+          Object shardKeyArgument
+    ) {
+        if (STRATEGIES.isEmpty()) {
+            return persistenceUnit;
+        }
+        String logicalPersistenceUnit = persistenceUnit.isEmpty() && defaultPersistenceUnit != null
+              ? defaultPersistenceUnit
+              : persistenceUnit;
+        ShardingStrategy strategy = STRATEGIES.get(logicalPersistenceUnit);
+        if (strategy == null) {
+            return persistenceUnit;
+        }
+        Object shardKey = method.hasShardKeyParameter() ? shardKeyArgument : PersistenceManager.getShardKey();
+        if (shardKey == null) {
+            String currentShard = getCurrentShard(logicalPersistenceUnit);
+            if (currentShard != null) {
+                LOG.trace("Route nested call of persistence unit {} to {}", logicalPersistenceUnit, currentShard);
+                return currentShard;
+            }
+            throw new IllegalStateException(
+                  "No shard key for sharded persistence unit '" + logicalPersistenceUnit + "' in " + method
+            );
+        }
+        String shard = strategy.selectShard(shardKey);
+        LOG.trace("Route shard key {} of persistence unit {} to {}", shardKey, logicalPersistenceUnit, shard);
+        return shard;
+    }
+
+    /**
+     * @param logicalPersistenceUnit The name of the logical persistence unit
+     * @return The shard bound to the current thread, if it belongs to {@code logicalPersistenceUnit}, else {@code null}
+     */
+    private static String getCurrentShard(String logicalPersistenceUnit) {
+        TransactionContext context = PersistenceManager.getContext();
+        if (context == null || context.getPersistenceUnit() == null) {
+            return null;
+        }
+        return logicalPersistenceUnit.equals(LOGICAL_PERSISTENCE_UNITS.get(context.getPersistenceUnit()))
+              ? context.getPersistenceUnit()
+              : null;
+    }
+
+    /**
+     * Ensures, that a transaction of {@code currentPersistenceUnit} does not call a method of another shard of the same
+     * logical persistence unit.
+     *
+     * @param currentPersistenceUnit The persistence unit of the running transaction
+     * @param newPersistenceUnit     The persistence unit of the called method
+     * @throws CrossShardTransactionException If both are different shards of the same logical persistence unit
+     */
+    static void checkSameShard(String currentPersistenceUnit, String newPersistenceUnit) {
+        if (LOGICAL_PERSISTENCE_UNITS.isEmpty()) {
+            return;
+        }
+        String logicalPersistenceUnit = LOGICAL_PERSISTENCE_UNITS.get(newPersistenceUnit);
+        if (logicalPersistenceUnit != null
+              && logicalPersistenceUnit.equals(LOGICAL_PERSISTENCE_UNITS.get(currentPersistenceUnit))
+              && !newPersistenceUnit.equals(currentPersistenceUnit)) {
+            throw new CrossShardTransactionException(
+                  "Transaction on shard '" + currentPersistenceUnit + "' must not access shard '" + newPersistenceUnit
+                        + "' of persistence unit '" + logicalPersistenceUnit + "'"
+            );
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package io.mcarle.strix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.touk.throwing.ThrowingSupplier;
+
+import javax.persistence.PersistenceException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Internaly used by strix to coalesce concurrent calls of read-only methods with
+ * {@link io.mcarle.strix.annotation.Transactional#singleFlight()}. Calls with the same method, arguments, persistence
+ * unit and tenant share one in-flight execution.
+ */
+final class SingleFlight {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SingleFlight.class);
+    private static final Map<Key, CompletableFuture<Object>> FLIGHTS = new ConcurrentHashMap<>();
+
+    /**
+     * Executes {@code execution}, if there is no in-flight execution of an equal call. Otherwise waits up to
+     * {@link TransactionalMethod#getSingleFlightMaxWait()} for its result and executes {@code execution} on its own,
+     * if the in-flight execution takes longer.
+     *
+     * @param method          The descriptor of the aspected method
+     * @param persistenceUnit The persistence unit returned by {@link StrixManager#route(TransactionalMethod, Object)}
+     * @param arguments       The arguments of the call
+     * @param execution       Executes the method in its transactional context
+     * @return The result of the own or the in-flight execution
+     * @throws Throwable The exception thrown by the own or the in-flight execution
+     */
+    static Object execute(
+          TransactionalMethod method,
+          String persistenceUnit,
+          Object[] arguments,
+          ThrowingSupplier<Object, Throwable> execution
+    ) throws Throwable {
+        Key key = new Key(method, persistenceUnit, StrixManager.resolveTenant(persistenceUnit), arguments);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = FLIGHTS.putIfAbsent(key, flight);
+        if (inFlight == null) {
+            try {
+                Object result = execution.get();
+                flight.complete(result);
+                return result;
+            } catch (Throwable t) {
+                flight.completeExceptionally(t);
+                throw t;
+            } finally {
+                FLIGHTS.remove(key, flight);
+            }
+        }
+        LOG.trace("Wait for in-flight execution of {}", method);
+        try {
+            return inFlight.get(method.getSingleFlightMaxWait(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            throw ex.getCause();
+        } catch (TimeoutException ex) {
+            LOG.debug(
+                  "In-flight execution of {} takes longer than {}ms, execute on its own",
+                  method,
+                  method.getSingleFlightMaxWait()
+            );
+            return execution.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Interrupted while waiting for in-flight execution of " + method, ex);
+        }
+    }
+
+    /**
+     * Identifies equal calls
+     */
+    private static final class Key {
+
+        private final TransactionalMethod method;
+        private final String persistenceUnit;
+        private final String tenant;
+        private final Object[] arguments;
+        private final int hashCode;
+
+        private Key(TransactionalMethod method, String persistenceUnit, String tenant, Object[] arguments) {
+            this.method = method;
+            this.persistenceUnit = persistenceUnit;
+            this.tenant = tenant;
+            this.arguments = arguments;
+            this.hashCode = 31 * (31 * (31 * method.getMethod().hashCode() + persistenceUnit.hashCode())
+                  + Objects.hashCode(tenant)) + Arrays.deepHashCode(arguments);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return method.getMethod().equals(key.method.getMethod())
+                  && persistenceUnit.equals(key.persistenceUnit)
+                  && Objects.equals(tenant, key.tenant)
+                  && Arrays.deepEquals(arguments, key.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.FlushMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Internaly used by strix to find queries, which may read stale data, because they are executed in a transaction with
+ * {@link FlushMode#COMMIT} or {@link FlushMode#MANUAL} while the persistence context has unflushed changes. With
+ * {@link FlushMode#AUTO} these changes would have been flushed before the query. As every query execution dirty-checks
+ * the whole persistence context, the detection is meant for debugging only and is disabled by default. Only supported
+ * with hibernate.
+ */
+final class StaleQueryDetector {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StaleQueryDetector.class);
+    private static final Set<String> QUERY_EXECUTIONS = new HashSet<>(Arrays.asList(
+          "getResultList",
+          "getSingleResult",
+          "getResultStream",
+          "list",
+          "uniqueResult",
+          "uniqueResultOptional",
+          "stream",
+          "scroll"
+    ));
+    private static final AtomicLong DETECTED = new AtomicLong();
+    private static volatile boolean ENABLED = false;
+
+    /**
+     * @param enabled {@code true}, if queries should be checked. Otherwise {@code false}.
+     */
+    static void setEnabled(boolean enabled) {
+        LOG.debug("Set detection of stale queries to {}", enabled);
+        ENABLED = enabled;
+    }
+
+    /**
+     * @return Amount of detected queries since strix has been started
+     */
+    static long detected() {
+        return DETECTED.get();
+    }
+
+    static void reset() {
+        DETECTED.set(0);
+    }
+
+    /**
+     * Checks if the queries of {@code em} must be checked, i.e. the detection is enabled and the running transaction
+     * does not flush before queries
+     *
+     * @param em      The {@link EntityManager} bound to the current thread
+     * @param context The context of the current thread
+     * @return {@code true}, if the queries must be checked. Otherwise {@code false}.
+     */
+    static boolean isChecked(EntityManager em, TransactionContext context) {
+        FlushMode flushMode = context.getFlushMode();
+        return ENABLED
+              && (flushMode == FlushMode.COMMIT || flushMode == FlushMode.MANUAL)
+              && JdbcConnectionSupport.isHibernate(em);
+    }
+
+    /**
+     * Checks the persistence context before a query is executed
+     *
+     * @param em        The {@link EntityManager}, which created the query
+     * @param method    The invoked method of the query
+     * @param source    The JPQL, SQL, name or criteria of the query
+     * @param flushMode The flush mode of the running transaction
+     */
+    static void beforeExecution(EntityManager em, Method method, Object source, FlushMode flushMode) {
+        if (QUERY_EXECUTIONS.contains(method.getName()) && em.isOpen() && JdbcConnectionSupport.isDirty(em)) {
+            DETECTED.incrementAndGet();
+            LOG.warn(
+                  "Query '{}' may read stale data, as the persistence context has changes, which flush mode {} "
+                        + "does not flush before queries",
+                  source,
+                  flushMode
+            );
+        }
+    }
+}
@@ -1,10 +1,23 @@
 package io.mcarle.strix;
 
+import io.mcarle.strix.sharding.ShardingStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import pl.touk.throwing.ThrowingSupplier;
 
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Provides methods to start and stop strix, as well as getting the {@link EntityManager}.
@@ -58,6 +71,48 @@ public final class Strix {
         StrixManager.startup(persistenceProperties, defaultPersistenceUnit);
     }
 
+    /**
+     * Starts strix with persistence units defined in code, which need no persistence.xml. If exactly one persistence
+     * unit is defined, it will be the default persistence unit.
+     *
+     * @param definitions The persistence units, created with {@link #definePersistenceUnit(String)}
+     */
+    public static void startup(PersistenceUnitDefinition... definitions) {
+        startup(null, definitions.length == 1 ? definitions[0].getName() : null, Arrays.asList(definitions));
+    }
+
+    /**
+     * Starts strix. Combines {@link #startup(Map, String)} and {@link #startup(PersistenceUnitDefinition...)}.
+     *
+     * @param persistenceProperties  see {@link #startup(Map)}
+     * @param defaultPersistenceUnit see {@link #startup(String)}
+     * @param definitions            see {@link #startup(PersistenceUnitDefinition...)}
+     */
+    public static void startup(
+          Map<String, Map<String, String>> persistenceProperties,
+          String defaultPersistenceUnit,
+          Collection<PersistenceUnitDefinition> definitions
+    ) {
+        LOG.info(
+              "Starts strix with default persistence unit '{}', custom persistence properties '{}' and definitions '{}'",
+              defaultPersistenceUnit,
+              persistenceProperties,
+              definitions
+        );
+        StrixManager.startup(persistenceProperties, defaultPersistenceUnit, definitions);
+    }
+
+    /**
+     * Defines a persistence unit in code, which is passed to {@link #startup(PersistenceUnitDefinition...)}. See
+     * {@link PersistenceUnitDefinition} for details.
+     *
+     * @param persistenceUnit The name of the persistence unit
+     * @return The definition of the persistence unit
+     */
+    public static PersistenceUnitDefinition definePersistenceUnit(String persistenceUnit) {
+        return new PersistenceUnitDefinition(persistenceUnit);
+    }
+
     /**
      * Shutdown strix and closes any open {@link javax.persistence.EntityManagerFactory}
      */
@@ -66,6 +121,508 @@ public final class Strix {
         StrixManager.shutdown();
     }
 
+    /**
+     * Adds a persistence unit while strix is running. The {@link javax.persistence.EntityManagerFactory} will be created
+     * in the background, so other persistence units are not affected.
+     *
+     * @param persistenceUnit       The name of the persistence unit
+     * @param persistenceProperties The persistence properties, which override the ones from the persistence.xml
+     * @return Future, which completes as soon as the persistence unit is ready to use
+     * @throws IllegalStateException If the persistence unit is already configured or in use
+     */
+    public static CompletableFuture<Void> addPersistenceUnit(
+          String persistenceUnit,
+          Map<String, String> persistenceProperties
+    ) {
+        LOG.info("Add persistence unit '{}' with properties '{}'", persistenceUnit, persistenceProperties);
+        return StrixManager.addPersistenceUnit(persistenceUnit, persistenceProperties);
+    }
+
+    /**
+     * Replaces the persistence properties of a persistence unit while strix is running. The new
+     * {@link javax.persistence.EntityManagerFactory} will be created in the background and afterwards used by all new
+     * transactions. The old factory will be closed, as soon as all of its in-flight transactions are finished.
+     *
+     * @param persistenceUnit       The name of the persistence unit
+     * @param persistenceProperties The persistence properties, which override the ones from the persistence.xml
+     * @return Future, which completes as soon as new transactions use the new properties
+     */
+    public static CompletableFuture<Void> replacePersistenceUnit(
+          String persistenceUnit,
+          Map<String, String> persistenceProperties
+    ) {
+        LOG.info("Replace persistence unit '{}' with properties '{}'", persistenceUnit, persistenceProperties);
+        return StrixManager.replacePersistenceUnit(persistenceUnit, persistenceProperties);
+    }
+
+    /**
+     * Removes the persistence properties of a persistence unit while strix is running. Its
+     * {@link javax.persistence.EntityManagerFactory EntityManagerFactories} will be closed, as soon as all of their
+     * in-flight transactions are finished.
+     *
+     * @param persistenceUnit The name of the persistence unit
+     */
+    public static void removePersistenceUnit(String persistenceUnit) {
+        LOG.info("Remove persistence unit '{}'", persistenceUnit);
+        StrixManager.removePersistenceUnit(persistenceUnit);
+    }
+
+    /**
+     * Sets the {@link TenantResolver}, so every new transaction uses the {@link javax.persistence.EntityManagerFactory}
+     * of its tenant. The resolver stays active, even if strix gets restarted.
+     *
+     * @param tenantResolver The resolver or {@code null}, if no tenants should be used
+     */
+    public static void setTenantResolver(TenantResolver tenantResolver) {
+        LOG.info("Set tenant resolver '{}'", tenantResolver);
+        StrixManager.setTenantResolver(tenantResolver);
+    }
+
+    /**
+     * Limits the amount of open {@link javax.persistence.EntityManagerFactory EntityManagerFactories}. If a limit is
+     * exceeded, the least recently used or idle factory will be evicted and closed, as soon as all of its in-flight
+     * transactions are finished. A limit less or equal to {@code 0} means no limit. The limits stay active, even if
+     * strix gets restarted.
+     *
+     * @param maxFactories Maximum amount of open factories
+     * @param maxIdleTime  Maximum time a factory may be unused
+     * @param unit         Time unit of {@code maxIdleTime}
+     */
+    public static void limitEntityManagerFactories(int maxFactories, long maxIdleTime, TimeUnit unit) {
+        LOG.info("Limit EntityManagerFactories to {} with maximum idle time of {} {}", maxFactories, maxIdleTime, unit);
+        EntityManagerFactoryRegistry.limit(maxFactories, maxIdleTime, unit);
+    }
+
+    /**
+     * Evicts all {@link javax.persistence.EntityManagerFactory EntityManagerFactories} of {@code tenant}. They will be
+     * closed, as soon as all of their in-flight transactions are finished.
+     *
+     * @param tenant The tenant key, as returned by the {@link TenantResolver}
+     */
+    public static void releaseTenant(String tenant) {
+        LOG.info("Release tenant '{}'", tenant);
+        EntityManagerFactoryRegistry.evictTenant(tenant);
+    }
+
+    /**
+     * @return A snapshot of the open {@link javax.persistence.EntityManagerFactory EntityManagerFactories}
+     */
+    public static EntityManagerFactoryStatistics factoryStatistics() {
+        return EntityManagerFactoryRegistry.statistics();
+    }
+
+    /**
+     * @return The ten join points with the most expensive transactions by 99th percentile and by total time since strix
+     * has been started
+     */
+    public static TransactionStatistics stats() {
+        return stats(10);
+    }
+
+    /**
+     * @param limit Maximum amount of join points per ranking
+     * @return The join points with the most expensive transactions by 99th percentile and by total time since strix has
+     * been started
+     */
+    public static TransactionStatistics stats(int limit) {
+        return JoinPointStatistics.report(limit);
+    }
+
+    /**
+     * Sets the fraction of transactions, whose latency is recorded for {@link #stats()}. Defaults to {@code 1}, i.e.
+     * every transaction is recorded. The sample rate stays active, even if strix gets restarted.
+     *
+     * @param sampleRate Fraction of transactions between {@code 0} and {@code 1}
+     */
+    public static void setStatisticsSampleRate(double sampleRate) {
+        LOG.info("Set sample rate of transaction statistics to {}", sampleRate);
+        JoinPointStatistics.setSampleRate(sampleRate);
+    }
+
+    /**
+     * Enables or disables the detection of queries, which may read stale data: If a transaction with
+     * {@link io.mcarle.strix.annotation.FlushMode#COMMIT} or {@link io.mcarle.strix.annotation.FlushMode#MANUAL}
+     * executes a query created with {@link #em()} while the persistence context has unflushed changes, a warning is
+     * logged. As the whole persistence context is dirty-checked before every query, it should only be enabled for
+     * debugging. Only supported with hibernate. The detection stays active, even if strix gets restarted.
+     *
+     * @param enabled {@code true}, if queries should be checked. Otherwise {@code false}.
+     */
+    public static void setStaleQueryDetection(boolean enabled) {
+        LOG.info("Set detection of stale queries to {}", enabled);
+        StaleQueryDetector.setEnabled(enabled);
+    }
+
+    /**
+     * Configures the circuit breaker of {@code persistenceUnit}: After {@code failureThreshold} consecutive failures to
+     * create the {@link javax.persistence.EntityManagerFactory} or to begin a transaction, new transactions fail
+     * immediately with a {@link PersistenceUnitUnavailableException} for {@code openDuration}. Afterwards
+     * {@code halfOpenProbes} transactions are let through. If they succeed, the persistence unit is used again,
+     * otherwise the circuit opens again. A failed creation of the factory opens the circuit at once and is retried in
+     * the background every {@code openDuration}. If a {@link TenantResolver} is set, every tenant has its own circuit
+     * with this configuration. The configuration stays active, even if strix gets restarted.
+     *
+     * @param persistenceUnit  The name of the persistence unit
+     * @param failureThreshold Amount of consecutive failures, which open the circuit. A value less or equal to
+     *                         {@code 0} disables the circuit breaker, which is the default.
+     * @param halfOpenProbes   Amount of successful probe transactions, which close the circuit again
+     * @param openDuration     Time the circuit stays open
+     * @param unit             Time unit of {@code openDuration}
+     */
+    public static void configureCircuitBreaker(
+          String persistenceUnit,
+          int failureThreshold,
+          int halfOpenProbes,
+          long openDuration,
+          TimeUnit unit
+    ) {
+        LOG.info(
+              "Configure circuit breaker of persistence unit '{}' with threshold {}, {} probes and open duration {} {}",
+              persistenceUnit,
+              failureThreshold,
+              halfOpenProbes,
+              openDuration,
+              unit
+        );
+        CircuitBreaker.configure(persistenceUnit, failureThreshold, halfOpenProbes, openDuration, unit);
+    }
+
+    /**
+     * Adds {@code delta} to the counter attribute {@code attribute} of the entity with {@code id}. The increments are
+     * summed up in memory and written periodically, all pending counters of a persistence unit in one transaction, so
+     * concurrent increments of the same row do not wait for its lock. Pending counters are written on
+     * {@link #shutdown()}, but get lost, if the JVM terminates before. The counters are written with bulk updates, so
+     * neither the version of the entities is incremented nor loaded entities are refreshed.
+     *
+     * @param persistenceUnit The name of the persistence unit
+     * @param entityClass     The class of the entity
+     * @param id              The id of the entity
+     * @param attribute       The name of the counter attribute
+     * @param delta           The value added to the counter
+     * @see #configureCounterBuffer(String, long, TimeUnit, int, boolean)
+     */
+    public static void increment(String persistenceUnit, Class<?> entityClass, Object id, String attribute, long delta) {
+        LOG.trace("Increment {}#{}.{} by {}", entityClass.getSimpleName(), id, attribute, delta);
+        try {
+            CounterBuffer.of(persistenceUnit).increment(entityClass, id, attribute, delta);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable t) {
+            throw new PersistenceException(t);
+        }
+    }
+
+    /**
+     * Configures, when the counters incremented with {@link #increment(String, Class, Object, String, long)} are
+     * written. Defaults to every second or as soon as {@code 10000} counters are pending. The configuration stays
+     * active, even if strix gets restarted.
+     *
+     * @param persistenceUnit    The name of the persistence unit
+     * @param flushInterval      Time between two periodic writes
+     * @param unit               Time unit of {@code flushInterval}
+     * @param maxPendingCounters Amount of pending counters, which are written immediately
+     * @param synchronous        {@code true}, if every increment should be written immediately in the transaction of
+     *                           the current thread or in a new one instead of being buffered
+     */
+    public static void configureCounterBuffer(
+          String persistenceUnit,
+          long flushInterval,
+          TimeUnit unit,
+          int maxPendingCounters,
+          boolean synchronous
+    ) {
+        LOG.info(
+              "Configure counter buffer of persistence unit '{}' with interval {} {}, {} pending counters, synchronous: {}",
+              persistenceUnit,
+              flushInterval,
+              unit,
+              maxPendingCounters,
+              synchronous
+        );
+        CounterBuffer.configure(persistenceUnit, flushInterval, unit, maxPendingCounters, synchronous);
+    }
+
+    /**
+     * Writes all pending counters and waits until they are written
+     */
+    public static void flushCounters() {
+        LOG.info("Flush pending counters");
+        CounterBuffer.flushAll();
+    }
+
+    /**
+     * Returns the management interface of {@code persistenceUnit}, which is also registered in the platform MBean
+     * server. It shows the open transactions and statistics and allows to change settings at runtime.
+     *
+     * @param persistenceUnit The name of the persistence unit
+     * @return The management interface of {@code persistenceUnit}
+     */
+    public static PersistenceUnitMXBean management(String persistenceUnit) {
+        return UnitMonitor.of(persistenceUnit);
+    }
+
+    /**
+     * Starts a watchdog, which reports every transaction open longer than {@code warnAfter} once with a warning, the
+     * signature of the method which started it and the stack of its thread. Stacks are captured at most once per second.
+     * The watchdog never ends a transaction, use {@link io.mcarle.strix.annotation.Transactional#timeout()} for that. It
+     * stays active, even if strix gets restarted.
+     *
+     * @param warnAfter Time a transaction may be open, before it gets reported. A value less or equal to {@code 0}
+     *                  stops the watchdog.
+     * @param unit      Time unit of {@code warnAfter}
+     */
+    public static void watchTransactions(long warnAfter, TimeUnit unit) {
+        watchTransactions(warnAfter, unit, null);
+    }
+
+    /**
+     * Starts a watchdog like {@link #watchTransactions(long, TimeUnit)}, which additionally passes every report to
+     * {@code listener}.
+     *
+     * @param warnAfter Time a transaction may be open, before it gets reported. A value less or equal to {@code 0}
+     *                  stops the watchdog.
+     * @param unit      Time unit of {@code warnAfter}
+     * @param listener  Gets every report on the thread of the watchdog, or {@code null}
+     */
+    public static void watchTransactions(long warnAfter, TimeUnit unit, Consumer<LongRunningTransaction> listener) {
+        LOG.info("Watch transactions open longer than {} {}", warnAfter, unit);
+        TransactionWatchdog.watch(warnAfter, unit, listener);
+    }
+
+    /**
+     * Shards the logical persistence unit {@code persistenceUnit}, i.e. every method annotated with
+     * {@link io.mcarle.strix.annotation.Transactional} using {@code persistenceUnit} will be executed on the shard
+     * selected by {@code strategy}. The shard key is taken from the parameter annotated with
+     * {@link io.mcarle.strix.annotation.ShardKey} or from {@link #withShardKey(Object, ThrowingSupplier)}. The
+     * registration stays active, even if strix gets restarted.
+     *
+     * @param persistenceUnit The name of the logical persistence unit
+     * @param strategy        The strategy selecting one of the shards
+     */
+    public static void registerSharding(String persistenceUnit, ShardingStrategy strategy) {
+        LOG.info("Register sharding of persistence unit '{}' on shards {}", persistenceUnit, strategy.getShards());
+        ShardRouter.register(persistenceUnit, strategy);
+    }
+
+    /**
+     * Removes the sharding of the logical persistence unit {@code persistenceUnit}
+     *
+     * @param persistenceUnit The name of the logical persistence unit
+     */
+    public static void unregisterSharding(String persistenceUnit) {
+        LOG.info("Unregister sharding of persistence unit '{}'", persistenceUnit);
+        ShardRouter.unregister(persistenceUnit);
+    }
+
+    /**
+     * Registers the JPQL query {@code jpql} as {@code name}, so it can be executed with {@link #query(String, Class)}.
+     * The query is compiled, whenever an {@link javax.persistence.EntityManagerFactory} of one of its persistence units
+     * is created, so the provider caches its plan before the first transaction and an invalid query fails the bootstrap.
+     * Queries should therefore be registered before strix is started. The registration stays active, even if strix gets
+     * restarted.
+     *
+     * @param name             The name of the query
+     * @param jpql             The JPQL of the query
+     * @param persistenceUnits The persistence units, in which the query is valid. Empty for all persistence units.
+     */
+    public static void registerQuery(String name, String jpql, String... persistenceUnits) {
+        LOG.info("Register query '{}'", name);
+        QueryRegistry.register(name, jpql, persistenceUnits);
+    }
+
+    /**
+     * Registers all constants of {@code holder} annotated with {@link io.mcarle.strix.annotation.RegisteredQuery}. See
+     * {@link #registerQuery(String, String, String...)} for details.
+     *
+     * @param holder The class declaring the queries
+     * @throws IllegalArgumentException If an annotated field is no {@code static final String}
+     */
+    public static void registerQueries(Class<?> holder) {
+        LOG.info("Register queries of '{}'", holder);
+        int registered = QueryRegistry.register(holder);
+        LOG.debug("Registered {} queries of '{}'", registered, holder);
+    }
+
+    /**
+     * Removes the registration of the query {@code name}
+     *
+     * @param name The name of the query
+     */
+    public static void unregisterQuery(String name) {
+        LOG.info("Unregister query '{}'", name);
+        QueryRegistry.unregister(name);
+    }
+
+    /**
+     * Creates the registered query {@code name} with the {@link EntityManager} returned by {@link #em()}
+     *
+     * @param name The name of the query
+     * @return The query
+     * @throws IllegalArgumentException If there is no query registered as {@code name}
+     */
+    public static Query query(String name) {
+        LOG.trace("Create registered query '{}'", name);
+        return em().createQuery(QueryRegistry.lookup(name));
+    }
+
+    /**
+     * Creates the registered query {@code name} with the {@link EntityManager} returned by {@link #em()}
+     *
+     * @param name        The name of the query
+     * @param resultClass The type of the query result
+     * @param <T>         The type of the query result
+     * @return The query
+     * @throws IllegalArgumentException If there is no query registered as {@code name} or its result does not match
+     *                                  {@code resultClass}
+     */
+    public static <T> TypedQuery<T> query(String name, Class<T> resultClass) {
+        LOG.trace("Create registered query '{}'", name);
+        return em().createQuery(QueryRegistry.lookup(name), resultClass);
+    }
+
+    /**
+     * @return Snapshots of all registered queries with their hits since strix has been started, ordered by their hits
+     * descending
+     */
+    public static List<QueryStatistics> queryStatistics() {
+        return QueryRegistry.statistics();
+    }
+
+    /**
+     * Binds {@code shardKey} to the current thread while executing {@code supplier}. All transactional methods without
+     * {@link io.mcarle.strix.annotation.ShardKey} parameter will use this shard key.
+     *
+     * @param shardKey The shard key
+     * @param supplier The supplier, which should be executed
+     * @param <T>      Type of the result
+     * @param <E>      Type of the exception thrown by {@code supplier}
+     * @return The result of {@code supplier}
+     * @throws E If {@code supplier} throws an exception
+     */
+    public static <T, E extends Throwable> T withShardKey(Object shardKey, ThrowingSupplier<T, E> supplier) throws E {
+        Object previousShardKey = PersistenceManager.getShardKey();
+        PersistenceManager.setShardKey(shardKey);
+        try {
+            return supplier.get();
+        } finally {
+            PersistenceManager.setShardKey(previousShardKey);
+        }
+    }
+
+    /**
+     * Executes {@code supplier} in a unit of work, e.g. a web request. One {@link EntityManager} of
+     * {@code persistenceUnit} is kept open for the whole unit and is joined by all methods annotated with
+     * {@link io.mcarle.strix.annotation.Transactional} of the same persistence unit, so they share the first-level cache
+     * and loaded entities stay managed between the calls. If {@code transactional} is {@code true}, the unit of work runs
+     * in one transaction, which is rollbacked if {@code supplier} throws an exception. Otherwise each transactional
+     * method called within commits its own transaction on the shared {@link EntityManager}.
+     *
+     * @param persistenceUnit The name of the persistence unit or an empty string for the default persistence unit
+     * @param transactional   {@code true}, if the whole unit of work should run in one transaction
+     * @param supplier        The supplier, which should be executed
+     * @param <T>             Type of the result
+     * @param <E>             Type of the exception thrown by {@code supplier}
+     * @return The result of {@code supplier}
+     * @throws E If {@code supplier} throws an exception
+     */
+    public static <T, E extends Throwable> T unitOfWork(
+          String persistenceUnit,
+          boolean transactional,
+          ThrowingSupplier<T, E> supplier
+    ) throws E {
+        LOG.trace("Unit of work on persistence unit '{}', transactional: {}", persistenceUnit, transactional);
+        try {
+            @SuppressWarnings("unchecked")
+            T result = (T) StrixManager.unitOfWork(persistenceUnit, transactional, supplier);
+            return result;
+        } catch (Throwable t) {
+            throw Strix.<E>sneakyThrow(t);
+        }
+    }
+
+    /**
+     * Executes independent read-only tasks in parallel. See {@link #parallelRead(String, long, TimeUnit, List)}.
+     *
+     * @param persistenceUnit The name of the persistence unit
+     * @param timeout         The deadline of all tasks
+     * @param unit            Time unit of {@code timeout}
+     * @param tasks           The tasks, which should be executed
+     * @param <T>             Type of the results of the tasks
+     * @return The results of the tasks in the order of {@code tasks}
+     */
+    @SafeVarargs
+    public static <T> List<T> parallelRead(
+          String persistenceUnit,
+          long timeout,
+          TimeUnit unit,
+          Function<EntityManager, ? extends T>... tasks
+    ) {
+        return parallelRead(persistenceUnit, timeout, unit, Arrays.asList(tasks));
+    }
+
+    /**
+     * Executes independent read-only tasks in parallel, each in its own read-only transaction with its own
+     * {@link EntityManager} of {@code persistenceUnit}, as an {@link EntityManager} must not be shared between threads.
+     * Virtual threads are used, if the JVM supports them. The caller waits, until all tasks are finished. If a task
+     * fails or the deadline is reached, the remaining tasks are cancelled.
+     *
+     * @param persistenceUnit The name of the persistence unit
+     * @param timeout         The deadline of all tasks
+     * @param unit            Time unit of {@code timeout}
+     * @param tasks           The tasks, which should be executed
+     * @param <T>             Type of the results of the tasks
+     * @return The results of the tasks in the order of {@code tasks}
+     * @throws javax.persistence.QueryTimeoutException If the deadline is reached
+     */
+    public static <T> List<T> parallelRead(
+          String persistenceUnit,
+          long timeout,
+          TimeUnit unit,
+          List<? extends Function<EntityManager, ? extends T>> tasks
+    ) {
+        LOG.trace("Parallel read of {} tasks on persistence unit '{}'", tasks.size(), persistenceUnit);
+        try {
+            return StrixManager.parallelRead(persistenceUnit, unit.toMillis(timeout), tasks);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable t) {
+            throw new PersistenceException(t);
+        }
+    }
+
+    /**
+     * Executes {@code function} in a read-only transaction on every shard of {@code persistenceUnit} in parallel.
+     *
+     * @param persistenceUnit The name of the sharded logical persistence unit
+     * @param function        The function, which will be executed with the {@link EntityManager} of every shard
+     * @param <T>             Type of the result of {@code function}
+     * @return The results of {@code function} in the order of {@link ShardingStrategy#getShards()}
+     * @throws IllegalArgumentException If {@code persistenceUnit} is not sharded
+     */
+    public static <T> List<T> scatterGather(String persistenceUnit, Function<EntityManager, T> function) {
+        LOG.trace("Scatter-gather on persistence unit '{}'", persistenceUnit);
+        try {
+            return StrixManager.scatterGather(persistenceUnit, function);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable t) {
+            throw new PersistenceException(t);
+        }
+    }
+
+    /**
+     * Starts a query, which claims rows of {@code entityClass} used as work queue within the current transaction. See
+     * {@link ClaimQuery} for details.
+     *
+     * @param entityClass The entity class of the work queue
+     * @param <T>         The type of the entity
+     * @return The query, which claims the rows with {@link ClaimQuery#fetch(int)}
+     */
+    public static <T> ClaimQuery<T> claim(Class<T> entityClass) {
+        LOG.trace("Claim rows of {}", entityClass);
+        return new ClaimQuery<>(entityClass);
+    }
+
     /**
      * Get the {@link EntityManager} for the current thread.
      *
@@ -75,4 +632,25 @@ public final class Strix {
         LOG.trace("Get EntityManager");
         return PersistenceManager.getEntityManager();
     }
+
+    /**
+     * Starts a parallel import into {@code persistenceUnit}, which writes every chunk of the source in its own
+     * transaction. See {@link BulkImport} for details.
+     *
+     * @param persistenceUnit The name of the persistence unit or an empty string for the default persistence unit
+     * @param <T>             The type of the imported entities
+     * @return The import, which is started with {@link BulkImport#run(Iterator)}
+     */
+    public static <T> BulkImport<T> bulkImport(String persistenceUnit) {
+        LOG.trace("Bulk import into persistence unit '{}'", persistenceUnit);
+        return new BulkImport<>(persistenceUnit);
+    }
+
+    /**
+     * Rethrows {@code t} without wrapping, as the unit of work only throws, what its supplier throws.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> E sneakyThrow(Throwable t) throws E {
+        throw (E) t;
+    }
 }
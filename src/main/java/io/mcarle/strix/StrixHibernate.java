@@ -0,0 +1,31 @@
+package io.mcarle.strix;
+
+import org.hibernate.StatelessSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+
+/**
+ * Provides hibernate specific methods of strix. Must only be used, if hibernate is the persistence provider.
+ */
+public final class StrixHibernate {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StrixHibernate.class);
+
+    /**
+     * Get the hibernate {@link StatelessSession} for the current thread. It uses the JDBC connection and transaction of
+     * the current {@link EntityManager}, but has no first-level cache, dirty checking or cascading, so it suits inserting
+     * or streaming many entities. Changes made with the {@link EntityManager} must be flushed, before they are visible
+     * to the stateless session. The session is closed, when the transaction completes.
+     *
+     * @return The stateless session of the running transaction
+     * @throws javax.persistence.TransactionRequiredException If there is no active transaction in the current thread
+     * @throws PersistenceException                           If the persistence provider is not hibernate
+     */
+    public static StatelessSession stateless() {
+        LOG.trace("Get StatelessSession");
+        return (StatelessSession) PersistenceManager.getStatelessSession();
+    }
+}
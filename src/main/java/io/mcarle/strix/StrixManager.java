@@ -1,20 +1,44 @@
 package io.mcarle.strix;
 
+import io.mcarle.strix.annotation.FlushMode;
+import io.mcarle.strix.annotation.Isolation;
+import io.mcarle.strix.annotation.Propagation;
 import io.mcarle.strix.annotation.Transactional;
-import org.aspectj.lang.ProceedingJoinPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.touk.throwing.ThrowingFunction;
+import pl.touk.throwing.ThrowingRunnable;
+import pl.touk.throwing.ThrowingSupplier;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
 import javax.persistence.Persistence;
+import javax.persistence.PersistenceException;
+import javax.persistence.QueryTimeoutException;
+import javax.persistence.TransactionRequiredException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Strix's main logic.
@@ -22,11 +46,12 @@ import java.util.concurrent.FutureTask;
 final class StrixManager {
 
     private static final Logger LOG = LoggerFactory.getLogger(TransactionalAspect.class);
-    private static final Map<String, EntityManagerFactory> SESSION_FACTORY_STORE = new ConcurrentHashMap<>();
     private static final Map<String, Map<String, String>> PERSISTENCE_PROPERTIES = new ConcurrentHashMap<>();
+    private static final Map<String, PersistenceUnitDefinition> DEFINITIONS = new ConcurrentHashMap<>();
     private static final String STRIX_DEFAULT_PERSISTENCE_UNIT = "DUMMY_VALUE";
-    static boolean STARTED = false;
+    static volatile boolean STARTED = false;
     private static String DEFAULT_PERSISTENCE_UNIT = STRIX_DEFAULT_PERSISTENCE_UNIT;
+    private static volatile TenantResolver TENANT_RESOLVER = null;
 
     /**
      * Start strix with additional persistence properties and a default persistence unit.
@@ -35,6 +60,22 @@ final class StrixManager {
      * @param defaultPersistenceUnit The default persistence unit
      */
     static void startup(Map<String, Map<String, String>> persistenceProperties, String defaultPersistenceUnit) {
+        startup(persistenceProperties, defaultPersistenceUnit, Collections.emptyList());
+    }
+
+    /**
+     * Start strix with additional persistence properties, a default persistence unit and persistence units defined in
+     * code.
+     *
+     * @param persistenceProperties  Map of persistence unit to persistence properties map
+     * @param defaultPersistenceUnit The default persistence unit
+     * @param definitions            Persistence units, which are not defined in the persistence.xml
+     */
+    static void startup(
+          Map<String, Map<String, String>> persistenceProperties,
+          String defaultPersistenceUnit,
+          Collection<PersistenceUnitDefinition> definitions
+    ) {
         LOG.trace("Startup strix");
         if (STARTED) {
             LOG.trace("Strix already running, shutdown");
@@ -49,6 +90,10 @@ final class StrixManager {
                   PERSISTENCE_PROPERTIES.put(key, Collections.unmodifiableMap(persistenceProperties.get(key)))
             );
         }
+        definitions.forEach(definition -> {
+            LOG.trace("Save definition of persistence unit '{}'", definition.getName());
+            DEFINITIONS.put(definition.getName(), definition);
+        });
         STARTED = true;
         LOG.info("Strix started");
     }
@@ -58,74 +103,638 @@ final class StrixManager {
      */
     static void shutdown() {
         LOG.trace("Shutdown strix");
+        if (STARTED) {
+            LOG.debug("Flush pending counters");
+            CounterBuffer.flushAll();
+        }
         STARTED = false;
         LOG.info("Close all open EntityManagerFactories.");
-        SESSION_FACTORY_STORE.values().forEach(EntityManagerFactory::close);
-        SESSION_FACTORY_STORE.clear();
+        EntityManagerFactoryRegistry.closeAll();
+        UnitMonitor.resetStatistics();
+        JoinPointStatistics.reset();
+        StaleQueryDetector.reset();
+        QueryRegistry.resetStatistics();
+        FetchGraphs.reset();
+        Memoization.reset();
+        CircuitBreaker.resetAll();
         LOG.debug("Restore initial default values");
         DEFAULT_PERSISTENCE_UNIT = STRIX_DEFAULT_PERSISTENCE_UNIT;
         PERSISTENCE_PROPERTIES.clear();
+        DEFINITIONS.clear();
+    }
+
+    /**
+     * Adds a persistence unit to a running strix. The {@link EntityManagerFactory} will be created in the background.
+     *
+     * @param persistenceUnit       The name of the persistence unit
+     * @param persistenceProperties The persistence properties, which override the ones from the persistence.xml
+     * @return Future, which completes as soon as the persistence unit can be used
+     * @throws IllegalStateException If the persistence unit is already configured or in use
+     */
+    static CompletableFuture<Void> addPersistenceUnit(String persistenceUnit, Map<String, String> persistenceProperties) {
+        LOG.trace("Add persistence unit {}", persistenceUnit);
+        if (PERSISTENCE_PROPERTIES.containsKey(persistenceUnit)
+              || DEFINITIONS.containsKey(persistenceUnit)
+              || EntityManagerFactoryRegistry.contains(persistenceUnit)) {
+            throw new IllegalStateException("Persistence unit '" + persistenceUnit + "' already exists");
+        }
+        return replacePersistenceUnit(persistenceUnit, persistenceProperties);
+    }
+
+    /**
+     * Replaces the persistence properties of a persistence unit. The new {@link EntityManagerFactory} will be created in
+     * the background, while the old one is still used. Afterwards all new transactions will use the new factory and the
+     * old one will be closed, as soon as all of its in-flight transactions are finished.
+     *
+     * @param persistenceUnit       The name of the persistence unit
+     * @param persistenceProperties The persistence properties, which override the ones from the persistence.xml
+     * @return Future, which completes as soon as new transactions use the new factory
+     */
+    static CompletableFuture<Void> replacePersistenceUnit(
+          String persistenceUnit,
+          Map<String, String> persistenceProperties
+    ) {
+        LOG.trace("Replace persistence unit {}", persistenceUnit);
+        final Map<String, String> properties = persistenceProperties == null
+              ? Collections.emptyMap()
+              : Collections.unmodifiableMap(new HashMap<>(persistenceProperties));
+        return CompletableFuture.runAsync(() -> {
+            LOG.debug("Create new EntityManagerFactory for persistence unit {} in background", persistenceUnit);
+            EntityManagerFactory factory = createEntityManagerFactory(persistenceUnit, properties);
+            if (!STARTED) {
+                factory.close();
+                throw new IllegalStateException("Strix was shut down while creating persistence unit " + persistenceUnit);
+            }
+            PERSISTENCE_PROPERTIES.put(persistenceUnit, properties);
+            EntityManagerFactoryRegistry.replace(persistenceUnit, null, factory);
+            EntityManagerFactoryRegistry.evictTenantsOfPersistenceUnit(persistenceUnit);
+            if (!STARTED) {
+                // shutdown() ran concurrently and may have missed the new factory
+                removePersistenceUnit(persistenceUnit);
+                throw new IllegalStateException("Strix was shut down while creating persistence unit " + persistenceUnit);
+            }
+            LOG.info("Persistence unit {} replaced", persistenceUnit);
+        }, runnable -> {
+            Thread thread = new Thread(runnable, "STRIX-BOOTSTRAP");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    /**
+     * Removes the persistence properties of a persistence unit and evicts all of its {@link EntityManagerFactory
+     * EntityManagerFactories}. They will be closed, as soon as all of their in-flight transactions are finished.
+     *
+     * @param persistenceUnit The name of the persistence unit
+     */
+    static void removePersistenceUnit(String persistenceUnit) {
+        LOG.trace("Remove persistence unit {}", persistenceUnit);
+        PERSISTENCE_PROPERTIES.remove(persistenceUnit);
+        EntityManagerFactoryRegistry.evictPersistenceUnit(persistenceUnit);
+    }
+
+    /**
+     * Sets the {@link TenantResolver}, which will be asked for the tenant whenever a new transaction starts. The resolver
+     * is kept on {@link #shutdown()}.
+     *
+     * @param tenantResolver The resolver or {@code null}, if no tenants should be used
+     */
+    static void setTenantResolver(TenantResolver tenantResolver) {
+        LOG.trace("Set tenant resolver to '{}'", tenantResolver);
+        TENANT_RESOLVER = tenantResolver;
+    }
+
+    /**
+     * Resolves the tenant of a new transaction on {@code persistenceUnit} in the current thread. If the current thread
+     * was started by strix, the tenant resolved by the starting thread is used.
+     *
+     * @param persistenceUnit The name of the persistence unit
+     * @return The tenant key or {@code null}, if no {@link TenantResolver} is set or no tenant is used
+     */
+    static String resolveTenant(String persistenceUnit) {
+        TenantResolver tenantResolver = TENANT_RESOLVER;
+        if (tenantResolver == null) {
+            return null;
+        }
+        String unit = resolvePersistenceUnit(persistenceUnit);
+        TransactionContext context = PersistenceManager.getContext();
+        if (context != null && context.getTenants() != null && context.getTenants().containsKey(unit)) {
+            return context.getTenants().get(unit);
+        }
+        return tenantResolver.resolveTenant(unit);
+    }
+
+    /**
+     * Resolves the tenants of {@code persistenceUnits} in the current thread, so they can be bound with
+     * {@link PersistenceManager#setTenants(Map)} to a thread started by strix. A {@link TenantResolver} usually depends
+     * on the current thread, e.g. a request scope, and cannot resolve the tenant in such a thread.
+     *
+     * @param persistenceUnits The names of the persistence units used in the started thread
+     * @return Map of persistence unit to tenant or {@code null}, if no {@link TenantResolver} is set
+     */
+    static Map<String, String> captureTenants(String... persistenceUnits) {
+        if (TENANT_RESOLVER == null) {
+            return null;
+        }
+        TransactionContext context = PersistenceManager.getContext();
+        Map<String, String> tenants = context == null || context.getTenants() == null
+              ? new HashMap<>()
+              : new HashMap<>(context.getTenants());
+        for (String persistenceUnit : persistenceUnits) {
+            tenants.put(resolvePersistenceUnit(persistenceUnit), resolveTenant(persistenceUnit));
+        }
+        return tenants;
+    }
+
+    /**
+     * Routes the execution of {@code method} to the persistence unit, which should be used. Only differs from the
+     * persistence unit of the {@link Transactional} annotation, if it is sharded.
+     *
+     * @param method   The descriptor of the aspected method
+     * @param shardKey The value of the parameter annotated with {@link io.mcarle.strix.annotation.ShardKey}
+     * @return The persistence unit, in which the method should be executed
+     */
+    static String route(TransactionalMethod method, Object shardKey) {
+        return ShardRouter.route(method.getPersistenceUnit(), DEFAULT_PERSISTENCE_UNIT, method, shardKey);
+    }
+
+    /**
+     * Checks if the execution of {@code method} joins the entity manager bound to the current thread, as defined by
+     * the {@link Propagation} of the method. This is the most frequent case, so it needs only one thread local lookup
+     * and does not allocate.
+     *
+     * @param method          The descriptor of the aspected method
+     * @param persistenceUnit The persistence unit returned by {@link #route(TransactionalMethod, Object)}
+     * @return {@code true}, if the method can be executed directly. Otherwise {@code false}.
+     */
+    static boolean joinsCurrentTransaction(TransactionalMethod method, String persistenceUnit) {
+        TransactionContext context = PersistenceManager.getContext();
+        if (context == null || !context.isJoinable(persistenceUnit)) {
+            return false;
+        }
+        Isolation isolation = method.getIsolation();
+        return joinsContext(method, context)
+              && (isolation == Isolation.DEFAULT || isolation == context.getIsolation() || !context.isTransactional());
+    }
+
+    /**
+     * Checks if the {@link Propagation} of {@code method} allows to use the entity manager of {@code context}
+     */
+    private static boolean joinsContext(TransactionalMethod method, TransactionContext context) {
+        switch (method.getPropagation()) {
+            case REQUIRED:
+            case MANDATORY:
+                return context.isTransactional();
+            case SUPPORTS:
+                return true;
+            case NEVER:
+            case NOT_SUPPORTED:
+                return !context.isTransactional();
+            default:
+                return false;
+        }
     }
 
     /**
      * Called whenever from the {@link TransactionalAspect} and ensures that the method runs in a transactional context,
      * i.e. ensures there is an open {@link EntityManager} when invoking {@link Strix#em()}.
      *
-     * @param joinPoint     The aspectj reference to the aspected method
-     * @param transactional The {@link Transactional} annotation of the aspected method
+     * @param method          The descriptor of the aspected method
+     * @param persistenceUnit The persistence unit returned by {@link #route(TransactionalMethod, Object)}
+     * @param invocation      The invocation of the aspected method
      * @return The result of the aspected method
      * @throws Throwable If the aspected method throws an exception
      */
     static Object handleTransactionalMethodExecution(
-          ProceedingJoinPoint joinPoint,
-          Transactional transactional
+          TransactionalMethod method,
+          String persistenceUnit,
+          TransactionalInvocation<?> invocation
     ) throws Throwable {
+        if (joinsCurrentTransaction(method, persistenceUnit)) {
+            LOG.trace("Already inside a transactional context, proceed method execution");
+            return invocation.proceed();
+        }
         LOG.trace("Handle @Transactional method execution");
-        String persistenceUnit = transactional.persistenceUnit();
-        if (!PersistenceManager.isEntityManagerPresent()) {
-            LOG.debug("No transaction active in current thread");
+        TransactionContext context = PersistenceManager.getContext();
+        if (context != null && context.isJoinable(persistenceUnit) && joinsContext(method, context)) {
+            LOG.trace("Join transaction with different isolation level");
+            checkIsolation(method, context);
+            return invocation.proceed();
+        }
+        boolean entityManagerPresent = context != null && context.getEntityManager() != null;
+        switch (method.getPropagation()) {
+            case MANDATORY:
+                throw new TransactionRequiredException(
+                      "No transaction of persistence unit '" + persistenceUnit + "' active for " + method
+                );
+            case NEVER:
+                if (entityManagerPresent && context.isTransactional()) {
+                    throw new IllegalStateException("Transaction active, but not allowed for " + method);
+                }
+                return executeWithoutTransaction(method, persistenceUnit, invocation, entityManagerPresent);
+            case SUPPORTS:
+            case NOT_SUPPORTED:
+                return executeWithoutTransaction(method, persistenceUnit, invocation, entityManagerPresent);
+            case REQUIRED:
+                if (entityManagerPresent && context.isJoinable(persistenceUnit)) {
+                    LOG.debug("Begin transaction on the non-transactional EntityManager of the current thread");
+                    return executeWithTransactionOnBoundEntityManager(invocation, method, context);
+                } else if (entityManagerPresent) {
+                    ShardRouter.checkSameShard(context.getPersistenceUnit(), persistenceUnit);
+                }
+                return executeWithNewTransaction(method, persistenceUnit, invocation, entityManagerPresent);
+            case REQUIRES_NEW:
+                if (entityManagerPresent && context.isSavepointNesting() && context.isJoinable(persistenceUnit)) {
+                    return executeInSavepoint(invocation, method, context);
+                }
+                return executeWithNewTransaction(method, persistenceUnit, invocation, entityManagerPresent);
+            default:
+                return executeWithNewTransaction(method, persistenceUnit, invocation, entityManagerPresent);
+        }
+    }
 
-            Class<? extends Throwable>[] noRollbackFor = transactional.noRollbackFor();
-            boolean readOnly = transactional.readOnly();
-            final int timeoutTime = transactional.timeout();
+    /**
+     * Executes the aspected method in a new transaction. If the current thread already has an {@link EntityManager},
+     * the method will be executed in its own thread.
+     */
+    private static Object executeWithNewTransaction(
+          TransactionalMethod method,
+          String persistenceUnit,
+          TransactionalInvocation<?> invocation,
+          boolean entityManagerPresent
+    ) throws Throwable {
+        if (entityManagerPresent) {
+            return executeInOwnThread(method, persistenceUnit, invocation);
+        }
+        LOG.debug("No transaction active in current thread");
+        return executeWithTransaction(
+              (em) -> invocation.proceed(),
+              method.getSignature(),
+              persistenceUnit,
+              method.getTimeout(),
+              method.getNoRollbackFor(),
+              method.isReadOnly(),
+              method.getIsolation(),
+              method.getFlushMode()
+        );
+    }
 
+    /**
+     * Executes the aspected method with a non-transactional {@link EntityManager}. If the current thread already has
+     * an {@link EntityManager}, the method will be executed in its own thread.
+     */
+    private static Object executeWithoutTransaction(
+          TransactionalMethod method,
+          String persistenceUnit,
+          TransactionalInvocation<?> invocation,
+          boolean entityManagerPresent
+    ) throws Throwable {
+        if (entityManagerPresent) {
+            return executeInOwnThread(method, persistenceUnit, invocation);
+        }
+        LOG.debug("Execute without transaction, as defined by propagation {}", method.getPropagation());
+        return executeWithSession((em) -> invocation.proceed(), persistenceUnit, false);
+    }
+
+    /**
+     * Suspends the context of the current thread by executing the aspected method in its own thread
+     */
+    private static Object executeInOwnThread(
+          TransactionalMethod method,
+          String persistenceUnit,
+          TransactionalInvocation<?> invocation
+    ) throws Throwable {
+        LOG.debug(
+              "New EntityManager needed, as propagation ({}) or different peristence unit ({}) defined.",
+              method.getPropagation(),
+              persistenceUnit
+        );
+        LOG.trace("Start execution in own thread");
+        return awaitResult(startInOwnThread(
+              persistenceUnit,
+              () -> handleTransactionalMethodExecution(method, persistenceUnit, invocation)
+        ));
+    }
+
+    /**
+     * Executes {@code supplier} in a unit of work, i.e. binds one {@link EntityManager} of {@code persistenceUnit} to
+     * the current thread, which is joined by all methods annotated with {@link Transactional} called within. If
+     * {@code transactional} is {@code false}, each of those methods begins and commits its own transaction on the shared
+     * {@link EntityManager}. If a unit of work of the same persistence unit is already active, it is joined. If the
+     * active unit of work is not transactional, but {@code transactional} is {@code true}, a transaction is begun on its
+     * {@link EntityManager}, so its managed entities stay visible.
+     *
+     * @param persistenceUnit The name of the persistence unit
+     * @param transactional   {@code true}, if the whole unit of work should run in one transaction
+     * @param supplier        The supplier, which should be executed
+     * @return The result of {@code supplier}
+     * @throws Throwable If {@code supplier} throws an exception
+     */
+    static Object unitOfWork(
+          String persistenceUnit,
+          boolean transactional,
+          ThrowingSupplier<?, ? extends Throwable> supplier
+    ) throws Throwable {
+        TransactionContext context = PersistenceManager.getContext();
+        if (context != null && context.isJoinable(persistenceUnit) && (context.isTransactional() || !transactional)) {
+            LOG.trace("Join unit of work of persistence unit {}", persistenceUnit);
+            return supplier.get();
+        }
+        if (context != null && context.isJoinable(persistenceUnit)) {
+            LOG.trace("Begin transaction in unit of work of persistence unit {}", persistenceUnit);
+            context.setTransactional(true);
+            try {
+                return executeInTransaction(
+                      context.getEntityManager(),
+                      (em) -> supplier.get(),
+                      "Strix.unitOfWork",
+                      0,
+                      new Class[0],
+                      false,
+                      Isolation.DEFAULT,
+                      FlushMode.DEFAULT
+                );
+            } finally {
+                context.setTransactional(false);
+            }
+        }
+        if (context != null && context.getEntityManager() != null) {
+            LOG.debug("Start unit of work of persistence unit {} in own thread", persistenceUnit);
+            return awaitResult(startInOwnThread(
+                  persistenceUnit,
+                  () -> unitOfWork(persistenceUnit, transactional, supplier)
+            ));
+        }
+        LOG.debug("Start unit of work of persistence unit {}, transactional: {}", persistenceUnit, transactional);
+        if (transactional) {
             return executeWithTransaction(
-                  (em) -> joinPoint.proceed(),
+                  (em) -> supplier.get(),
+                  "Strix.unitOfWork",
                   persistenceUnit,
-                  timeoutTime,
-                  noRollbackFor,
-                  readOnly
+                  0,
+                  new Class[0],
+                  false,
+                  Isolation.DEFAULT,
+                  FlushMode.DEFAULT
             );
-        } else if (!PersistenceManager.isEntityManagerFromPU(persistenceUnit) || transactional.requiresNew()) {
-            LOG.debug(
-                  "New EntityManager needed, as requiresNew ({}) or different peristence unit ({}) defined.",
-                  transactional.requiresNew(),
-                  persistenceUnit
-            );
-            FutureTask<Object> future = new FutureTask<>(() -> {
-                try {
-                    return handleTransactionalMethodExecution(joinPoint, transactional);
-                } catch (Exception ex) {
-                    throw ex;
-                } catch (Throwable ex) {
-                    throw new TransactionalExecutionException(ex);
+        }
+        return executeWithSession((em) -> supplier.get(), persistenceUnit, false);
+    }
+
+    /**
+     * Executes {@code function} in a read-only transaction on every shard of the logical persistence unit
+     * {@code persistenceUnit}. The shards are queried in parallel, each in its own thread.
+     *
+     * @param persistenceUnit The name of the sharded logical persistence unit
+     * @param function        The function, which will be executed for every shard
+     * @param <T>             Type of the result of {@code function}
+     * @return The results of {@code function} in the order of the shards
+     * @throws Throwable If {@code function} throws an exception on any shard
+     */
+    static <T> List<T> scatterGather(String persistenceUnit, Function<EntityManager, T> function) throws Throwable {
+        LOG.trace("Scatter-gather over shards of persistence unit {}", persistenceUnit);
+        List<FutureTask<Object>> futures = new ArrayList<>();
+        for (String shard : ShardRouter.getShards(persistenceUnit)) {
+            futures.add(startInOwnThread(shard, () -> executeWithTransaction(
+                  em -> function.apply(PersistenceManager.getEntityManager()),
+                  "Strix.scatterGather",
+                  shard,
+                  0,
+                  new Class[0],
+                  true,
+                  Isolation.DEFAULT,
+                  FlushMode.DEFAULT
+            )));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (FutureTask<Object> future : futures) {
+            @SuppressWarnings("unchecked")
+            T result = (T) awaitResult(future);
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Executes every task in its own read-only transaction of {@code persistenceUnit}. The tasks run in parallel, each
+     * in its own thread with its own {@link EntityManager}. If a task fails or the deadline is reached, the remaining
+     * tasks are cancelled, i.e. their threads are interrupted and their {@link EntityManager EntityManagers} closed.
+     *
+     * @param persistenceUnit The name of the persistence unit
+     * @param timeout         The deadline of all tasks in milliseconds
+     * @param tasks           The tasks, which should be executed
+     * @param <T>             Type of the results of the tasks
+     * @return The results of the tasks in the order of {@code tasks}
+     * @throws Throwable The exception of the first failed task
+     */
+    static <T> List<T> parallelRead(
+          String persistenceUnit,
+          long timeout,
+          List<? extends Function<EntityManager, ? extends T>> tasks
+    ) throws Throwable {
+        LOG.trace("Parallel read of {} tasks on persistence unit {}", tasks.size(), persistenceUnit);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        Set<EntityManager> running = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(
+              Math.max(tasks.size(), 1),
+              ThreadSupport.threadFactory("STRIX-READ-")
+        );
+        CompletionService<Object> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Object>> futures = new ArrayList<>(tasks.size());
+        Map<String, String> tenants = captureTenants(persistenceUnit);
+        boolean finished = false;
+        try {
+            for (Function<EntityManager, ? extends T> task : tasks) {
+                futures.add(completion.submit(() -> {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        throw new QueryTimeoutException("Deadline of parallel read reached before task started");
+                    }
+                    PersistenceManager.setTenants(tenants);
+                    try {
+                        return executeWithTransaction(
+                              em -> {
+                                  running.add(em);
+                                  try {
+                                      return task.apply(PersistenceManager.getEntityManager());
+                                  } finally {
+                                      running.remove(em);
+                                  }
+                              },
+                              "Strix.parallelRead",
+                              persistenceUnit,
+                              (int) Math.min(remaining, Integer.MAX_VALUE),
+                              new Class[0],
+                              true,
+                              Isolation.DEFAULT,
+                              FlushMode.DEFAULT
+                        );
+                    } catch (Exception ex) {
+                        throw ex;
+                    } catch (Throwable ex) {
+                        throw new TransactionalExecutionException(ex);
+                    } finally {
+                        PersistenceManager.setTenants(null);
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                Future<Object> done = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    throw new QueryTimeoutException(
+                          "Parallel read on persistence unit '" + persistenceUnit + "' exceeded " + timeout + "ms"
+                    );
                 }
-            });
-            try {
-                LOG.trace("Start execution in own thread");
-                Thread thread = new Thread(future);
-                thread.start();
-                return future.get(); // Waits, till the thread finishes
-            } catch (ExecutionException ee) {
-                if (ee.getCause() instanceof TransactionalExecutionException) {
-                    throw ee.getCause().getCause();
-                } else {
-                    throw ee.getCause();
+                awaitResult(done);
+            }
+            List<T> results = new ArrayList<>(futures.size());
+            for (Future<Object> future : futures) {
+                @SuppressWarnings("unchecked")
+                T result = (T) future.get();
+                results.add(result);
+            }
+            finished = true;
+            return results;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Interrupted while waiting for parallel read", ex);
+        } finally {
+            if (!finished) {
+                LOG.debug("Cancel parallel read on persistence unit {}", persistenceUnit);
+                futures.forEach(future -> future.cancel(true));
+                running.forEach(StrixManager::cancel);
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Rollbacks the transaction of {@code em} and closes it, while it may still be used by another thread
+     *
+     * @param em The {@link EntityManager} of a cancelled task
+     */
+    private static void cancel(EntityManager em) {
+        try {
+            if (em.isOpen()) {
+                if (em.getTransaction().isActive()) {
+                    LOG.trace("Mark the transaction to rollbackOnly");
+                    em.getTransaction().setRollbackOnly();
                 }
+                LOG.trace("Close EntityManager");
+                em.close();
+            }
+        } catch (RuntimeException ex) {
+            LOG.trace("Could not cancel EntityManager", ex);
+        }
+    }
+
+    /**
+     * Executes {@code runnable} in a new transaction of {@code persistenceUnit}, which is always rollbacked afterwards.
+     * Methods requiring a new transaction of the same persistence unit run in a savepoint of that transaction, so their
+     * changes are rollbacked as well.
+     *
+     * @param persistenceUnit The name of the persistence unit
+     * @param runnable        The runnable, which should be executed
+     * @throws Throwable If {@code runnable} throws an exception
+     */
+    static void executeAndRollback(String persistenceUnit, ThrowingRunnable<Throwable> runnable) throws Throwable {
+        executeWithTransaction(
+              (em) -> {
+                  PersistenceManager.getContext().setSavepointNesting(true);
+                  try {
+                      runnable.run();
+                  } finally {
+                      if (em.isOpen() && em.getTransaction().isActive()) {
+                          LOG.trace("Mark the transaction to rollbackOnly");
+                          em.getTransaction().setRollbackOnly();
+                      }
+                  }
+                  return null;
+              },
+              "RollbackRule",
+              persistenceUnit,
+              0,
+              new Class[0],
+              false,
+              Isolation.DEFAULT,
+              FlushMode.DEFAULT
+        );
+    }
+
+    /**
+     * Executes {@code function} in a new transaction of {@code persistenceUnit}. The current thread must not have an
+     * {@link EntityManager} bound.
+     *
+     * @param persistenceUnit The name of the persistence unit
+     * @param signature       Describes, who started the transaction
+     * @param function        The function, which should be executed
+     * @return The result of {@code function}
+     * @throws Throwable If {@code function} throws an exception
+     */
+    static Object executeInNewTransaction(
+          String persistenceUnit,
+          String signature,
+          ThrowingFunction<EntityManager, Object, Throwable> function
+    ) throws Throwable {
+        return executeWithTransaction(
+              function,
+              signature,
+              persistenceUnit,
+              0,
+              new Class[0],
+              false,
+              Isolation.DEFAULT,
+              FlushMode.DEFAULT
+        );
+    }
+
+    /**
+     * Starts a new thread, in which {@code supplier} will be executed. The tenant of {@code persistenceUnit} is resolved
+     * in the current thread and used by the new thread.
+     *
+     * @param persistenceUnit The persistence unit used by {@code supplier}
+     * @param supplier        The supplier, which should be executed
+     * @return The future of the result of {@code supplier}
+     */
+    private static FutureTask<Object> startInOwnThread(
+          String persistenceUnit,
+          ThrowingSupplier<Object, Throwable> supplier
+    ) {
+        Map<String, String> tenants = captureTenants(persistenceUnit);
+        FutureTask<Object> future = new FutureTask<>(() -> {
+            PersistenceManager.setTenants(tenants);
+            try {
+                return supplier.get();
+            } catch (Exception ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new TransactionalExecutionException(ex);
+            } finally {
+                PersistenceManager.setTenants(null);
+            }
+        });
+        Thread thread = new Thread(future);
+        thread.start();
+        return future;
+    }
+
+    /**
+     * Waits for the result of a future created by {@link #startInOwnThread(String, ThrowingSupplier)} or
+     * {@link #parallelRead(String, long, List)}
+     *
+     * @param future The future
+     * @return The result of the future
+     * @throws Throwable The exception thrown within the future
+     */
+    private static Object awaitResult(Future<Object> future) throws Throwable {
+        try {
+            return future.get(); // Waits, till the thread finishes
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof TransactionalExecutionException) {
+                throw ee.getCause().getCause();
+            } else {
+                throw ee.getCause();
             }
-        } else {
-            LOG.trace("Already inside a transactional context, proceed method execution");
-            return joinPoint.proceed();
         }
     }
 
@@ -185,70 +794,277 @@ final class StrixManager {
      * @param function        The function, in which the aspected method will be executed
      * @param persistenceUnit The persistence unit to identify the {@link EntityManagerFactory} from which the
      *                        {@link EntityManager} will be created.
+     * @param transactional   {@code true}, if {@code function} executes a transaction on the {@link EntityManager}
      * @return The result of the aspected method
      * @throws Throwable If the aspected method throws an exception
      */
     private static Object executeWithSession(
           ThrowingFunction<EntityManager, Object, Throwable> function,
-          String persistenceUnit
+          String persistenceUnit,
+          boolean transactional
     ) throws Throwable {
         LOG.trace("Create new EntityManager from persistence unit {}", persistenceUnit);
-        EntityManager em = getEntityManagerFactory(persistenceUnit).createEntityManager();
+        String tenant = resolveTenant(persistenceUnit);
+        CircuitBreaker breaker = CircuitBreaker.of(resolvePersistenceUnit(persistenceUnit), tenant);
+        boolean probe = breaker.acquire();
         try {
-            PersistenceManager.setEntityManager(persistenceUnit, em);
-            return function.apply(em);
+            EntityManagerFactoryRegistry.Entry factory = acquireEntityManagerFactory(persistenceUnit, tenant, breaker);
+            try {
+                EntityManager em = createEntityManager(factory, breaker);
+                if (!transactional) {
+                    breaker.onSuccess();
+                }
+                try {
+                    PersistenceManager.setEntityManager(persistenceUnit, tenant, em, transactional);
+                    return function.apply(em);
+                } finally {
+                    PersistenceManager.clearEntityManager();
+                    if (em.isOpen()) {
+                        LOG.trace("Close EntityManager");
+                        em.close();
+                    }
+                }
+            } finally {
+                factory.release();
+            }
         } finally {
-            PersistenceManager.clearEntityManager();
-            if (em.isOpen()) {
-                LOG.trace("Close EntityManager");
-                em.close();
+            if (probe) {
+                breaker.releaseProbe();
             }
         }
     }
 
+    /**
+     * Creates a new {@link EntityManager} and records a failure in {@code breaker}, if it cannot be created
+     */
+    private static EntityManager createEntityManager(EntityManagerFactoryRegistry.Entry factory, CircuitBreaker breaker) {
+        try {
+            return factory.getFactory().createEntityManager();
+        } catch (RuntimeException ex) {
+            breaker.onFailure(ex);
+            throw ex;
+        }
+    }
+
     /**
      * Executes the aspected method within a transaction, i.e. opens and commits or rollbacks an
      * {@link EntityTransaction} before and after execution.
      *
      * @param function        The function, which should be executed
+     * @param signature       Describes, who started the transaction
      * @param persistenceUnit The persistence unit to identify the {@link EntityManagerFactory} from which the
      *                        {@link EntityManager} will be created.
      * @param timeoutTime     The specified timeout time
      * @param noRollbackFor   The specified list of exceptions
      * @param readOnly        The specified value for read-only
+     * @param isolation       The specified isolation level
+     * @param flushMode       The specified flush mode
      * @return The result of the aspected method
      * @throws Throwable If the aspected method throws an exception
      */
     private static Object executeWithTransaction(
           ThrowingFunction<EntityManager, Object, Throwable> function,
+          String signature,
           String persistenceUnit,
           int timeoutTime,
           Class<? extends Throwable>[] noRollbackFor,
-          boolean readOnly
+          boolean readOnly,
+          Isolation isolation,
+          FlushMode flushMode
     ) throws Throwable {
-        return executeWithSession((em) -> {
-            EntityTransaction transaction = em.getTransaction(); // Will never be invoked on JTA EM
-            boolean rollback = false;
-            Thread timeoutThread = null;
+        return executeWithSession(
+              (em) -> executeInTransaction(
+                    em,
+                    function,
+                    signature,
+                    timeoutTime,
+                    noRollbackFor,
+                    readOnly,
+                    isolation,
+                    flushMode
+              ),
+              persistenceUnit,
+              true
+        );
+    }
+
+    /**
+     * Begins a transaction on the non-transactional {@link EntityManager} bound to the current thread, e.g. by a
+     * method with {@link Propagation#SUPPORTS}, and executes the aspected method within.
+     *
+     * @param invocation The invocation of the aspected method
+     * @param method     The descriptor of the aspected method
+     * @param context    The context of the current thread
+     * @return The result of the aspected method
+     * @throws Throwable If the aspected method throws an exception
+     */
+    private static Object executeWithTransactionOnBoundEntityManager(
+          TransactionalInvocation<?> invocation,
+          TransactionalMethod method,
+          TransactionContext context
+    ) throws Throwable {
+        context.setTransactional(true);
+        try {
+            return executeInTransaction(
+                  context.getEntityManager(),
+                  (em) -> invocation.proceed(),
+                  method.getSignature(),
+                  method.getTimeout(),
+                  method.getNoRollbackFor(),
+                  method.isReadOnly(),
+                  method.getIsolation(),
+                  method.getFlushMode()
+            );
+        } finally {
+            context.setTransactional(false);
+        }
+    }
+
+    /**
+     * Executes the aspected method, which requires a new transaction, in a savepoint of the transaction bound to the
+     * current thread. Used by {@link #executeAndRollback(String, ThrowingRunnable)}, so the changes are visible to the
+     * outer transaction and rollbacked with it. The timeout and isolation level of the method are ignored. A read-only
+     * method is always rollbacked to the savepoint, but the persistence context is only cleared, if it has changes.
+     *
+     * @param invocation The invocation of the aspected method
+     * @param method     The descriptor of the aspected method
+     * @param context    The context of the current thread
+     * @return The result of the aspected method
+     * @throws Throwable If the aspected method throws an exception
+     */
+    private static Object executeInSavepoint(
+          TransactionalInvocation<?> invocation,
+          TransactionalMethod method,
+          TransactionContext context
+    ) throws Throwable {
+        EntityManager em = context.getEntityManager();
+        em.flush();
+        Connection connection = JdbcConnectionSupport.getConnection(em);
+        LOG.trace("Set savepoint instead of starting a new transaction");
+        Savepoint savepoint = connection.setSavepoint();
+        boolean readOnly = method.isReadOnly();
+        boolean rollback = false;
+        try {
+            Object result = invocation.proceed();
+            if (readOnly) {
+                // Only changes in the persistence context must be discarded, the loaded entities stay managed
+                rollback = !JdbcConnectionSupport.isHibernate(em) || JdbcConnectionSupport.isDirty(em);
+            } else {
+                em.flush();
+            }
+            return result;
+        } catch (Throwable t) {
+            rollback = readOnly || checkNeedForRollback(method.getNoRollbackFor(), t);
+            throw t;
+        } finally {
             try {
-                LOG.trace("Start a new transaction");
-                transaction.begin();
-                if (readOnly) {
-                    LOG.trace("Set transaction to be read-only");
-                    transaction.setRollbackOnly();
-                }
-                if (timeoutTime > 0) {
-                    timeoutThread = startTimeoutChecker(timeoutTime, em, transaction);
+                if (rollback) {
+                    LOG.trace("Rollback to savepoint");
+                    connection.rollback(savepoint);
+                    em.clear();
+                    Memoization.clear(context);
+                } else if (readOnly) {
+                    LOG.trace("Rollback to savepoint of read-only method without changes");
+                    connection.rollback(savepoint);
+                } else {
+                    LOG.trace("Release savepoint");
+                    connection.releaseSavepoint(savepoint);
                 }
-                return function.apply(em);
-            } catch (Throwable t) {
-                rollback = checkNeedForRollback(noRollbackFor, t);
-                throw t;
-            } finally {
-                if (timeoutThread != null && timeoutThread.isAlive()) {
-                    LOG.trace("Interrupt timeout thread");
-                    timeoutThread.interrupt();
+            } catch (SQLException ex) {
+                throw new PersistenceException("Could not complete savepoint", ex);
+            }
+        }
+    }
+
+    /**
+     * Opens and commits or rollbacks an {@link EntityTransaction} on {@code em} before and after the execution of
+     * {@code function}. If an isolation level is specified, it is set on the JDBC connection before the transaction
+     * begins and restored after the transaction is completed. The same applies to the flush mode of {@code em}. The
+     * transaction is registered in the {@link UnitMonitor} of its persistence unit, which may also define a default
+     * timeout. Its latency is recorded in the {@link JoinPointStatistics} of {@code signature}.
+     *
+     * @param em            The {@link EntityManager}, on which the transaction is executed
+     * @param function      The function, which should be executed
+     * @param signature     Describes, who started the transaction
+     * @param timeoutTime   The specified timeout time
+     * @param noRollbackFor The specified list of exceptions
+     * @param readOnly      The specified value for read-only
+     * @param isolation     The specified isolation level
+     * @param flushMode     The specified flush mode
+     * @return The result of {@code function}
+     * @throws Throwable If {@code function} throws an exception
+     */
+    private static Object executeInTransaction(
+          EntityManager em,
+          ThrowingFunction<EntityManager, Object, Throwable> function,
+          String signature,
+          int timeoutTime,
+          Class<? extends Throwable>[] noRollbackFor,
+          boolean readOnly,
+          Isolation isolation,
+          FlushMode flushMode
+    ) throws Throwable {
+        EntityTransaction transaction = em.getTransaction(); // Will never be invoked on JTA EM
+        TransactionContext context = PersistenceManager.getContext();
+        Isolation previousIsolation = context.getIsolation();
+        FlushMode previousFlushMode = context.getFlushMode();
+        Runnable restoreIsolation = null;
+        Runnable restoreFlushMode = null;
+        boolean rollback = false;
+        boolean committed = false;
+        Thread timeoutThread = null;
+        String persistenceUnit = resolvePersistenceUnit(context.getPersistenceUnit());
+        UnitMonitor monitor = UnitMonitor.of(persistenceUnit);
+        CircuitBreaker breaker = CircuitBreaker.of(persistenceUnit, context.getTenant());
+        UnitMonitor.OpenTransaction openTransaction = monitor.start(signature);
+        int timeout = timeoutTime > 0 ? timeoutTime : monitor.getDefaultTimeout();
+        JoinPointStatistics statistics = JoinPointStatistics.sample(signature);
+        long started = statistics != null ? System.nanoTime() : 0;
+        long completionStarted = 0;
+        try {
+            try {
+                if (isolation != Isolation.DEFAULT) {
+                    restoreIsolation = applyIsolation(em, isolation);
                 }
+                LOG.trace("Start a new transaction");
+                transaction.begin();
+            } catch (RuntimeException ex) {
+                breaker.onFailure(ex);
+                throw ex;
+            }
+            breaker.onSuccess();
+            context.setIsolation(isolation);
+            if (restoreIsolation != null && JdbcConnectionSupport.afterCompletion(em, restoreIsolation)) {
+                restoreIsolation = null;
+            }
+            if (flushMode != FlushMode.DEFAULT) {
+                LOG.trace("Set flush mode to {}", flushMode);
+                restoreFlushMode = JdbcConnectionSupport.applyFlushMode(em, flushMode);
+                context.setFlushMode(flushMode);
+            }
+            if (readOnly) {
+                LOG.trace("Set transaction to be read-only");
+                transaction.setRollbackOnly();
+            }
+            if (timeout > 0) {
+                timeoutThread = startTimeoutChecker(timeout, em, transaction);
+            }
+            return function.apply(em);
+        } catch (Throwable t) {
+            rollback = checkNeedForRollback(noRollbackFor, t);
+            throw t;
+        } finally {
+            boolean timedOut = timeoutThread != null && (!timeoutThread.isAlive() || !em.isOpen());
+            if (timeoutThread != null && timeoutThread.isAlive()) {
+                LOG.trace("Interrupt timeout thread");
+                timeoutThread.interrupt();
+            }
+            PersistenceManager.closeStatelessSession(context);
+            Memoization.clear(context);
+            if (statistics != null) {
+                completionStarted = System.nanoTime();
+            }
+            try {
                 if (em.isOpen() && transaction.isActive()) {
                     if (rollback || transaction.getRollbackOnly()) {
                         LOG.trace(
@@ -260,33 +1076,151 @@ final class StrixManager {
                     } else {
                         LOG.trace("Commit transaction");
                         transaction.commit();
+                        committed = true;
                     }
                 }
+            } finally {
+                monitor.finish(openTransaction, committed, timedOut);
+                if (statistics != null) {
+                    statistics.record(completionStarted - started, System.nanoTime() - completionStarted);
+                }
+                context.setIsolation(previousIsolation);
+                context.setFlushMode(previousFlushMode);
+                if (restoreFlushMode != null && em.isOpen()) {
+                    restoreFlushMode.run();
+                }
+                if (restoreIsolation != null) {
+                    restoreIsolation.run();
+                }
             }
-        }, persistenceUnit);
+        }
     }
 
     /**
-     * Opens an {@link EntityManagerFactory} for the provided {@code persistenceUnit} if not already opened/cached.
+     * Sets the isolation level of the JDBC connection of {@code em}
      *
-     * @param persistenceUnit The name of the persistence unit
-     * @return The {@link EntityManagerFactory} for {@code persistenceUnit}
+     * @param em        The {@link EntityManager} without an active transaction
+     * @param isolation The isolation level
+     * @return Restores the previous isolation level, or {@code null} if the isolation level was not changed
      */
-    private static synchronized EntityManagerFactory getEntityManagerFactory(String persistenceUnit) {
-        if (persistenceUnit.isEmpty() && DEFAULT_PERSISTENCE_UNIT != null) {
-            persistenceUnit = DEFAULT_PERSISTENCE_UNIT;
+    private static Runnable applyIsolation(EntityManager em, Isolation isolation) {
+        Connection connection = JdbcConnectionSupport.getConnection(em);
+        try {
+            int previousLevel = connection.getTransactionIsolation();
+            if (previousLevel == isolation.getLevel()) {
+                return null;
+            }
+            LOG.trace("Set isolation level to {}", isolation);
+            connection.setTransactionIsolation(isolation.getLevel());
+            return () -> {
+                try {
+                    LOG.trace("Restore isolation level {}", previousLevel);
+                    connection.setTransactionIsolation(previousLevel);
+                } catch (SQLException ex) {
+                    LOG.warn("Could not restore isolation level of JDBC connection", ex);
+                }
+            };
+        } catch (SQLException ex) {
+            throw new PersistenceException("Could not set isolation level " + isolation, ex);
         }
-        if (!SESSION_FACTORY_STORE.containsKey(persistenceUnit)) {
-            LOG.debug("Create new EntityManagerFactory for persistence unit {}", persistenceUnit);
-            SESSION_FACTORY_STORE.put(
-                  persistenceUnit,
-                  Persistence.createEntityManagerFactory(
-                        persistenceUnit.isEmpty() ? null : persistenceUnit,
-                        PERSISTENCE_PROPERTIES.get(persistenceUnit)
-                  )
+    }
+
+    /**
+     * Ensures, that {@code method} does not require a stricter isolation level than the running transaction it joins.
+     * If the transaction uses the default isolation level, the actual level is read from the JDBC connection once.
+     *
+     * @param method  The descriptor of the aspected method
+     * @param context The context of the current thread with a running transaction
+     * @throws IllegalStateException If {@code method} requires a stricter isolation level
+     */
+    private static void checkIsolation(TransactionalMethod method, TransactionContext context) {
+        Isolation current = context.getIsolation();
+        if (current == Isolation.DEFAULT) {
+            try {
+                current = Isolation.of(
+                      JdbcConnectionSupport.getConnection(context.getEntityManager()).getTransactionIsolation()
+                );
+            } catch (SQLException ex) {
+                throw new PersistenceException("Could not read isolation level", ex);
+            }
+            context.setIsolation(current);
+        }
+        if (method.getIsolation().isStricterThan(current)) {
+            throw new IllegalStateException(
+                  method + " requires isolation level " + method.getIsolation()
+                        + ", but joins a transaction with isolation level " + current
             );
         }
-        return SESSION_FACTORY_STORE.get(persistenceUnit);
+    }
+
+    /**
+     * @param persistenceUnit The name of the persistence unit or an empty string
+     * @return The default persistence unit, if {@code persistenceUnit} is empty and a default is set. Otherwise
+     * {@code persistenceUnit}.
+     */
+    private static String resolvePersistenceUnit(String persistenceUnit) {
+        return persistenceUnit.isEmpty() && DEFAULT_PERSISTENCE_UNIT != null ? DEFAULT_PERSISTENCE_UNIT : persistenceUnit;
+    }
+
+    /**
+     * Acquires the {@link EntityManagerFactory} for the provided {@code persistenceUnit} and {@code tenant}. Opens the
+     * factory, if not already opened/cached.
+     *
+     * @param persistenceUnit The name of the persistence unit
+     * @param tenant          The tenant of the current transaction or {@code null}
+     * @param breaker         The circuit breaker of the persistence unit and tenant, which is opened if the factory
+     *                        cannot be created
+     * @return The registry entry of the {@link EntityManagerFactory}, which must be released after usage
+     */
+    private static EntityManagerFactoryRegistry.Entry acquireEntityManagerFactory(
+          String persistenceUnit,
+          String tenant,
+          CircuitBreaker breaker
+    ) {
+        final String unit = resolvePersistenceUnit(persistenceUnit);
+        final TenantResolver tenantResolver = TENANT_RESOLVER;
+        Supplier<EntityManagerFactory> factoryCreator = () -> {
+            Map<String, String> properties = PERSISTENCE_PROPERTIES.get(unit);
+            if (tenant != null && tenantResolver != null) {
+                LOG.trace("Merge persistence properties of tenant {}", tenant);
+                properties = properties == null ? new HashMap<>() : new HashMap<>(properties);
+                properties.putAll(tenantResolver.tenantProperties(unit, tenant));
+            }
+            return createEntityManagerFactory(unit, properties);
+        };
+        try {
+            return EntityManagerFactoryRegistry.acquire(unit, tenant, factoryCreator);
+        } catch (RuntimeException ex) {
+            breaker.onBootstrapFailure(factoryCreator, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Creates a new {@link EntityManagerFactory} for {@code persistenceUnit}. Persistence units defined in code are
+     * bootstrapped directly by their provider, all others from the persistence.xml. The registered queries are compiled
+     * before the factory is returned.
+     *
+     * @param persistenceUnit The name of the persistence unit or an empty string
+     * @param properties      The persistence properties, which override the ones of the persistence unit, or
+     *                        {@code null}
+     * @return The new factory
+     */
+    private static EntityManagerFactory createEntityManagerFactory(
+          String persistenceUnit,
+          Map<String, String> properties
+    ) {
+        PersistenceUnitDefinition definition = DEFINITIONS.get(persistenceUnit);
+        EntityManagerFactory factory = definition != null
+              ? definition.createEntityManagerFactory(properties)
+              : Persistence.createEntityManagerFactory(persistenceUnit.isEmpty() ? null : persistenceUnit, properties);
+        try {
+            QueryRegistry.prepare(persistenceUnit, factory);
+        } catch (RuntimeException ex) {
+            factory.close();
+            throw ex;
+        }
+        return factory;
     }
 
     /**
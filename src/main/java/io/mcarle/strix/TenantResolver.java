@@ -0,0 +1,35 @@
+package io.mcarle.strix;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Resolves the tenant for a new transaction. Strix keeps one {@link javax.persistence.EntityManagerFactory} per
+ * persistence unit and tenant, so every tenant gets its own connection pool and database.
+ */
+@FunctionalInterface
+public interface TenantResolver {
+
+    /**
+     * Resolves the tenant, for which a new transaction on {@code persistenceUnit} should be started. Will be called
+     * once per transaction on the thread that calls the transactional method, and once more for methods with
+     * {@link io.mcarle.strix.annotation.Transactional#singleFlight()}. If strix executes the transaction in its own
+     * thread, e.g. for {@code requiresNew}, the tenant is resolved before on the calling thread.
+     *
+     * @param persistenceUnit The persistence unit of the new transaction
+     * @return The tenant key or {@code null}, if the persistence unit should be used without a tenant
+     */
+    String resolveTenant(String persistenceUnit);
+
+    /**
+     * Provides the persistence properties of {@code tenant}, which will override the properties of the persistence
+     * unit (from the persistence.xml and {@link Strix#startup(Map)}).
+     *
+     * @param persistenceUnit The persistence unit
+     * @param tenant          The tenant key returned by {@link #resolveTenant(String)}
+     * @return Map of persistence properties
+     */
+    default Map<String, String> tenantProperties(String persistenceUnit, String tenant) {
+        return Collections.emptyMap();
+    }
+}
@@ -0,0 +1,52 @@
+package io.mcarle.strix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Internaly used by strix to create the worker threads of parallel executions. Virtual threads are used, if the JVM
+ * supports them.
+ */
+final class ThreadSupport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ThreadSupport.class);
+    private static final boolean VIRTUAL_THREADS_SUPPORTED = createVirtualThreadFactory("STRIX-") != null;
+
+    /**
+     * @param prefix The prefix of the thread names, followed by a counter
+     * @return A factory creating virtual threads, if supported, or otherwise daemon platform threads
+     */
+    static ThreadFactory threadFactory(String prefix) {
+        ThreadFactory virtualThreadFactory = VIRTUAL_THREADS_SUPPORTED ? createVirtualThreadFactory(prefix) : null;
+        if (virtualThreadFactory != null) {
+            return virtualThreadFactory;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Creates a factory for virtual threads by reflection, as strix is compiled for Java 8
+     *
+     * @param prefix The prefix of the thread names, followed by a counter
+     * @return The factory, or {@code null} if the JVM does not support virtual threads
+     */
+    private static ThreadFactory createVirtualThreadFactory(String prefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            LOG.trace("Virtual threads not supported, use platform threads");
+            return null;
+        }
+    }
+}
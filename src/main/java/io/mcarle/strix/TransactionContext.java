@@ -0,0 +1,186 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.FetchGraph;
+import io.mcarle.strix.annotation.FlushMode;
+import io.mcarle.strix.annotation.Isolation;
+
+import javax.persistence.EntityManager;
+import java.util.Map;
+
+/**
+ * Internaly used by strix to hold the transactional state of a single thread. There is exactly one mutable instance per
+ * thread, so checking whether a call joins the running transaction needs only one thread local lookup.
+ */
+final class TransactionContext {
+
+    private String persistenceUnit;
+    private String tenant;
+    private EntityManager entityManager;
+    private EntityManager wrappedEntityManager;
+    private boolean transactional;
+    private boolean savepointNesting;
+    private Isolation isolation = Isolation.DEFAULT;
+    private FlushMode flushMode = FlushMode.DEFAULT;
+    private Object shardKey;
+    private Map<String, String> tenants;
+    private AutoCloseable statelessSession;
+    private Memoization.Cache memoCache;
+    private FetchGraph fetchGraph;
+
+    /**
+     * Checks if a method of {@code persistenceUnit}, which does not require a new transaction, can use the entity
+     * manager of this context.
+     *
+     * @param persistenceUnit The persistence unit of the method
+     * @return {@code true}, if an entity manager of {@code persistenceUnit} is bound. Otherwise {@code false}.
+     */
+    boolean isJoinable(String persistenceUnit) {
+        String current = this.persistenceUnit;
+        return entityManager != null && (current == persistenceUnit || persistenceUnit.equals(current));
+    }
+
+    void bind(String persistenceUnit, String tenant, EntityManager entityManager, boolean transactional) {
+        this.persistenceUnit = persistenceUnit;
+        this.tenant = tenant;
+        this.entityManager = entityManager;
+        this.wrappedEntityManager = null;
+        this.transactional = transactional;
+    }
+
+    void unbind() {
+        this.persistenceUnit = null;
+        this.tenant = null;
+        this.entityManager = null;
+        this.wrappedEntityManager = null;
+        this.transactional = false;
+        this.savepointNesting = false;
+        this.isolation = Isolation.DEFAULT;
+        this.flushMode = FlushMode.DEFAULT;
+        this.memoCache = null;
+        this.fetchGraph = null;
+    }
+
+    /**
+     * @return The tenant of the bound entity manager, or {@code null} if no tenant is used
+     */
+    String getTenant() {
+        return tenant;
+    }
+
+    /**
+     * @return {@code true}, if the bound entity manager is used within a transaction. Otherwise {@code false}.
+     */
+    boolean isTransactional() {
+        return transactional;
+    }
+
+    void setTransactional(boolean transactional) {
+        this.transactional = transactional;
+    }
+
+    /**
+     * @return {@code true}, if methods requiring a new transaction should run in a savepoint of the running transaction
+     * instead. Otherwise {@code false}.
+     */
+    boolean isSavepointNesting() {
+        return savepointNesting;
+    }
+
+    void setSavepointNesting(boolean savepointNesting) {
+        this.savepointNesting = savepointNesting;
+    }
+
+    String getPersistenceUnit() {
+        return persistenceUnit;
+    }
+
+    EntityManager getEntityManager() {
+        return entityManager;
+    }
+
+    /**
+     * @return The {@link EntityManagerWrapper} of the bound entity manager, or {@code null} if not yet created
+     */
+    EntityManager getWrappedEntityManager() {
+        return wrappedEntityManager;
+    }
+
+    void setWrappedEntityManager(EntityManager wrappedEntityManager) {
+        this.wrappedEntityManager = wrappedEntityManager;
+    }
+
+    /**
+     * @return The isolation level of the running transaction, or {@link Isolation#DEFAULT} if not known
+     */
+    Isolation getIsolation() {
+        return isolation;
+    }
+
+    void setIsolation(Isolation isolation) {
+        this.isolation = isolation;
+    }
+
+    /**
+     * @return The flush mode of the running transaction, or {@link FlushMode#DEFAULT} if not set
+     */
+    FlushMode getFlushMode() {
+        return flushMode;
+    }
+
+    void setFlushMode(FlushMode flushMode) {
+        this.flushMode = flushMode;
+    }
+
+    /**
+     * @return The stateless session opened on the connection of the running transaction, or {@code null}
+     */
+    AutoCloseable getStatelessSession() {
+        return statelessSession;
+    }
+
+    void setStatelessSession(AutoCloseable statelessSession) {
+        this.statelessSession = statelessSession;
+    }
+
+    /**
+     * @return The results of {@link io.mcarle.strix.annotation.Memoized} methods cached in the running transaction, or
+     * {@code null}
+     */
+    Memoization.Cache getMemoCache() {
+        return memoCache;
+    }
+
+    void setMemoCache(Memoization.Cache memoCache) {
+        this.memoCache = memoCache;
+    }
+
+    /**
+     * @return The fetch plan of the currently executed method annotated with {@link FetchGraph}, or {@code null}
+     */
+    FetchGraph getFetchGraph() {
+        return fetchGraph;
+    }
+
+    void setFetchGraph(FetchGraph fetchGraph) {
+        this.fetchGraph = fetchGraph;
+    }
+
+    Object getShardKey() {
+        return shardKey;
+    }
+
+    void setShardKey(Object shardKey) {
+        this.shardKey = shardKey;
+    }
+
+    /**
+     * @return The tenants per persistence unit resolved by the thread, which started this thread, or {@code null}
+     */
+    Map<String, String> getTenants() {
+        return tenants;
+    }
+
+    void setTenants(Map<String, String> tenants) {
+        this.tenants = tenants;
+    }
+}
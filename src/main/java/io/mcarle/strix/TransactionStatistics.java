@@ -0,0 +1,50 @@
+package io.mcarle.strix;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Snapshot of the join points with the most expensive transactions, as returned by {@link Strix#stats()}.
+ */
+public final class TransactionStatistics {
+
+    private final double sampleRate;
+    private final List<MethodStatistics> slowestByP99;
+    private final List<MethodStatistics> slowestByTotal;
+
+    TransactionStatistics(double sampleRate, List<MethodStatistics> slowestByP99, List<MethodStatistics> slowestByTotal) {
+        this.sampleRate = sampleRate;
+        this.slowestByP99 = Collections.unmodifiableList(slowestByP99);
+        this.slowestByTotal = Collections.unmodifiableList(slowestByTotal);
+    }
+
+    /**
+     * @return Fraction of transactions, which were recorded
+     */
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @return The join points ordered descending by the 99th percentile of their transaction duration
+     */
+    public List<MethodStatistics> getSlowestByP99() {
+        return slowestByP99;
+    }
+
+    /**
+     * @return The join points ordered descending by the sum of their transaction durations
+     */
+    public List<MethodStatistics> getSlowestByTotal() {
+        return slowestByTotal;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionStatistics{" +
+              "sampleRate=" + sampleRate +
+              ", slowestByP99=" + slowestByP99 +
+              ", slowestByTotal=" + slowestByTotal +
+              '}';
+    }
+}
@@ -0,0 +1,114 @@
+package io.mcarle.strix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Internaly used by strix to report transactions, which are open longer than a warning threshold. A single thread
+ * periodically scans the open transactions of all {@link UnitMonitor monitors} and reports every transaction once. The
+ * stack of the owning thread is captured at most once per {@link #STACK_CAPTURE_INTERVAL_NANOS}, as capturing stops the
+ * thread for a moment. The watchdog never interrupts or rollbacks a transaction.
+ */
+final class TransactionWatchdog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TransactionWatchdog.class);
+    private static final long STACK_CAPTURE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static ScheduledExecutorService SCANNER;
+    private static volatile long WARN_AFTER_MILLIS = 0;
+    private static volatile Consumer<LongRunningTransaction> LISTENER = null;
+    private static long lastStackCapture = System.nanoTime() - STACK_CAPTURE_INTERVAL_NANOS;
+
+    /**
+     * Starts, restarts or stops the watchdog
+     *
+     * @param warnAfter Time a transaction may be open, before it gets reported. A value less or equal to {@code 0}
+     *                  stops the watchdog.
+     * @param unit      Time unit of {@code warnAfter}
+     * @param listener  Gets every report in addition to the log, or {@code null}
+     */
+    static synchronized void watch(long warnAfter, TimeUnit unit, Consumer<LongRunningTransaction> listener) {
+        LOG.debug("Watch transactions open longer than {} {}", warnAfter, unit);
+        WARN_AFTER_MILLIS = Math.max(unit.toMillis(warnAfter), 0);
+        LISTENER = listener;
+        if (SCANNER != null) {
+            SCANNER.shutdownNow();
+            SCANNER = null;
+        }
+        if (WARN_AFTER_MILLIS > 0) {
+            long period = Math.min(Math.max(WARN_AFTER_MILLIS / 2, 10), 1000);
+            SCANNER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "STRIX-WATCHDOG");
+                thread.setDaemon(true);
+                return thread;
+            });
+            SCANNER.scheduleWithFixedDelay(TransactionWatchdog::scan, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    static void scan() {
+        long warnAfterMillis = WARN_AFTER_MILLIS;
+        if (warnAfterMillis <= 0) {
+            return;
+        }
+        for (UnitMonitor monitor : UnitMonitor.all()) {
+            for (UnitMonitor.OpenTransaction transaction : monitor.getOpenTransactions()) {
+                long elapsedMillis = transaction.getAgeMillis();
+                if (elapsedMillis >= warnAfterMillis && transaction.markReported()) {
+                    try {
+                        report(monitor.getPersistenceUnit(), transaction, elapsedMillis);
+                    } catch (RuntimeException ex) {
+                        LOG.warn("Could not report long running transaction of {}", transaction.getSignature(), ex);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void report(String persistenceUnit, UnitMonitor.OpenTransaction transaction, long elapsedMillis) {
+        Thread thread = transaction.getThread();
+        LongRunningTransaction report = new LongRunningTransaction(
+              persistenceUnit,
+              transaction.getSignature(),
+              thread.getName(),
+              elapsedMillis,
+              mayCaptureStack() ? thread.getStackTrace() : null
+        );
+        if (report.getStackTrace() != null) {
+            Throwable stack = new Throwable("Stack of thread " + thread.getName());
+            stack.setStackTrace(report.getStackTrace());
+            LOG.warn(
+                  "Transaction of {} on persistence unit {} is open for {}ms",
+                  transaction.getSignature(),
+                  persistenceUnit,
+                  elapsedMillis,
+                  stack
+            );
+        } else {
+            LOG.warn(
+                  "Transaction of {} on persistence unit {} is open for {}ms in thread {}",
+                  transaction.getSignature(),
+                  persistenceUnit,
+                  elapsedMillis,
+                  thread.getName()
+            );
+        }
+        Consumer<LongRunningTransaction> listener = LISTENER;
+        if (listener != null) {
+            listener.accept(report);
+        }
+    }
+
+    private static boolean mayCaptureStack() {
+        long now = System.nanoTime();
+        if (now - lastStackCapture < STACK_CAPTURE_INTERVAL_NANOS) {
+            return false;
+        }
+        lastStackCapture = now;
+        return true;
+    }
+}
@@ -77,7 +77,7 @@ public class TransactionalAspect {
           ProceedingJoinPoint joinPoint,
           Transactional transactional
     ) throws Throwable {
-        return StrixManager.handleTransactionalMethodExecution(joinPoint, transactional);
+        return TransactionalMethod.of(joinPoint.getStaticPart(), transactional).invoke(joinPoint);
     }
 
     /**
@@ -94,7 +94,7 @@ public class TransactionalAspect {
           ProceedingJoinPoint joinPoint,
           Transactional transactional
     ) throws Throwable {
-        return StrixManager.handleTransactionalMethodExecution(joinPoint, transactional);
+        return TransactionalMethod.of(joinPoint.getStaticPart(), transactional).invoke(joinPoint);
     }
 
 }
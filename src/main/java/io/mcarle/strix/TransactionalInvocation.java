@@ -0,0 +1,18 @@
+package io.mcarle.strix;
+
+/**
+ * The invocation of a transactional method, i.e. the call of the original method body.
+ *
+ * @param <T> Type of the result of the method
+ */
+@FunctionalInterface
+public interface TransactionalInvocation<T> {
+
+    /**
+     * Invokes the original method
+     *
+     * @return The result of the method
+     * @throws Throwable If the method throws an exception
+     */
+    T proceed() throws Throwable;
+}
@@ -0,0 +1,279 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.FlushMode;
+import io.mcarle.strix.annotation.Isolation;
+import io.mcarle.strix.annotation.NoTransaction;
+import io.mcarle.strix.annotation.Propagation;
+import io.mcarle.strix.annotation.ShardKey;
+import io.mcarle.strix.annotation.Transactional;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * A method, which is executed transactional. Everything strix needs to know about the method is resolved once, when the
+ * descriptor is created, so every invocation can directly start with the transaction handling.
+ * <p>
+ * Used by the {@link TransactionalAspect} and by the code generated by
+ * {@link io.mcarle.strix.processor.TransactionalProcessor}.
+ */
+public final class TransactionalMethod {
+
+    private static final Map<JoinPoint.StaticPart, TransactionalMethod> JOIN_POINT_STORE = new ConcurrentHashMap<>();
+    private static final int NO_SHARD_KEY_PARAMETER = -1;
+
+    private final Method method;
+    private final Transactional transactional;
+    private final String persistenceUnit;
+    private final Propagation propagation;
+    private final Isolation isolation;
+    private final FlushMode flushMode;
+    private final boolean readOnly;
+    private final int timeout;
+    private final Class<? extends Throwable>[] noRollbackFor;
+    private final boolean singleFlight;
+    private final int singleFlightMaxWait;
+    private final String signature;
+    private final int shardKeyParameter;
+
+    private TransactionalMethod(Method method, Transactional transactional) {
+        this.method = method;
+        this.transactional = transactional;
+        this.persistenceUnit = transactional.persistenceUnit();
+        this.propagation = transactional.requiresNew() ? Propagation.REQUIRES_NEW : transactional.propagation();
+        this.isolation = transactional.isolation();
+        this.flushMode = transactional.flushMode();
+        this.readOnly = transactional.readOnly();
+        this.timeout = transactional.timeout();
+        this.noRollbackFor = transactional.noRollbackFor();
+        this.signature = method.getDeclaringClass().getName() + "." + method.getName() + "(" +
+              Arrays.stream(method.getParameterTypes()).map(Class::getTypeName).collect(Collectors.joining(", ")) +
+              ")";
+        this.shardKeyParameter = findShardKeyParameter(method);
+        this.singleFlight = transactional.singleFlight();
+        this.singleFlightMaxWait = transactional.singleFlightMaxWait();
+        if (singleFlight && !readOnly) {
+            throw new IllegalStateException(signature + " must be read-only to use single-flight");
+        }
+    }
+
+    /**
+     * Resolves the descriptor of a method declared in {@code declaringClass}. The method must be annotated with
+     * {@link Transactional} or must be a public method of a class annotated with {@link Transactional}.
+     *
+     * @param declaringClass The class declaring the method
+     * @param name           The name of the method
+     * @param parameterTypes The parameter types of the method
+     * @return The descriptor of the method
+     * @throws IllegalArgumentException If the method does not exist or is not transactional
+     */
+    public static TransactionalMethod of(Class<?> declaringClass, String name, Class<?>... parameterTypes) {
+        Method method;
+        try {
+            method = declaringClass.getDeclaredMethod(name, parameterTypes);
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalArgumentException("Method " + name + " not found in " + declaringClass, ex);
+        }
+        Transactional transactional = method.getAnnotation(Transactional.class);
+        if (transactional == null && Modifier.isPublic(method.getModifiers())) {
+            transactional = declaringClass.getAnnotation(Transactional.class);
+        }
+        if (transactional == null || method.isAnnotationPresent(NoTransaction.class)) {
+            throw new IllegalArgumentException("Method " + method + " is not transactional");
+        }
+        return new TransactionalMethod(method, transactional);
+    }
+
+    /**
+     * Resolves the descriptor of a join point matched by the {@link TransactionalAspect}. The descriptor is cached, so
+     * it will only be created once per join point.
+     *
+     * @param staticPart    The static part of the join point
+     * @param transactional The {@link Transactional} annotation matched by the aspect
+     * @return The descriptor of the join point
+     */
+    static TransactionalMethod of(JoinPoint.StaticPart staticPart, Transactional transactional) {
+        TransactionalMethod transactionalMethod = JOIN_POINT_STORE.get(staticPart);
+        if (transactionalMethod == null) {
+            transactionalMethod = JOIN_POINT_STORE.computeIfAbsent(
+                  staticPart,
+                  sp -> new TransactionalMethod(((MethodSignature) sp.getSignature()).getMethod(), transactional)
+            );
+        }
+        return transactionalMethod;
+    }
+
+    /**
+     * Checks if an invocation of this method simply joins the transaction bound to the current thread. Such an
+     * invocation may call the original method directly, without creating a {@link TransactionalInvocation}.
+     *
+     * @param shardKey The value of the parameter annotated with {@link ShardKey} or {@code null}, if there is none
+     * @return {@code true}, if the invocation joins the running transaction. Otherwise {@code false}.
+     */
+    public boolean joinsCurrentTransaction(Object shardKey) {
+        return StrixManager.joinsCurrentTransaction(this, StrixManager.route(this, shardKey));
+    }
+
+    /**
+     * Executes {@code invocation} within the transactional context defined by this method
+     *
+     * @param shardKey   The value of the parameter annotated with {@link ShardKey} or {@code null}, if there is none
+     * @param invocation The invocation of the original method
+     * @param <T>        Type of the result of the method
+     * @return The result of the method
+     */
+    public <T> T invoke(Object shardKey, TransactionalInvocation<T> invocation) {
+        try {
+            @SuppressWarnings("unchecked")
+            T result = (T) StrixManager.handleTransactionalMethodExecution(
+                  this,
+                  StrixManager.route(this, shardKey),
+                  invocation
+            );
+            return result;
+        } catch (Throwable t) {
+            throw TransactionalMethod.<RuntimeException>sneakyThrow(t);
+        }
+    }
+
+    /**
+     * Executes {@code invocation} within the transactional context defined by this method. Must be used instead of
+     * {@link #invoke(Object, TransactionalInvocation)} for methods with {@link Transactional#singleFlight()}, so
+     * concurrent calls with equal {@code arguments} can be coalesced. Calls joining the running transaction are never
+     * coalesced, as they must see its changes.
+     *
+     * @param shardKey   The value of the parameter annotated with {@link ShardKey} or {@code null}, if there is none
+     * @param arguments  The arguments of the call
+     * @param invocation The invocation of the original method
+     * @param <T>        Type of the result of the method
+     * @return The result of the method
+     */
+    public <T> T invoke(Object shardKey, Object[] arguments, TransactionalInvocation<T> invocation) {
+        try {
+            String routedPersistenceUnit = StrixManager.route(this, shardKey);
+            if (StrixManager.joinsCurrentTransaction(this, routedPersistenceUnit)) {
+                return invocation.proceed();
+            }
+            @SuppressWarnings("unchecked")
+            T result = (T) SingleFlight.execute(
+                  this,
+                  routedPersistenceUnit,
+                  arguments,
+                  () -> StrixManager.handleTransactionalMethodExecution(this, routedPersistenceUnit, invocation)
+            );
+            return result;
+        } catch (Throwable t) {
+            throw TransactionalMethod.<RuntimeException>sneakyThrow(t);
+        }
+    }
+
+    /**
+     * Executes the join point within the transactional context defined by this method
+     *
+     * @param joinPoint The aspectj reference to the aspected method
+     * @return The result of the aspected method
+     * @throws Throwable If the aspected method throws an exception
+     */
+    Object invoke(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object shardKey = hasShardKeyParameter() ? joinPoint.getArgs()[shardKeyParameter] : null;
+        String routedPersistenceUnit = StrixManager.route(this, shardKey);
+        if (StrixManager.joinsCurrentTransaction(this, routedPersistenceUnit)) {
+            return joinPoint.proceed();
+        }
+        if (singleFlight) {
+            return SingleFlight.execute(
+                  this,
+                  routedPersistenceUnit,
+                  joinPoint.getArgs(),
+                  () -> StrixManager.handleTransactionalMethodExecution(this, routedPersistenceUnit, joinPoint::proceed)
+            );
+        }
+        return StrixManager.handleTransactionalMethodExecution(this, routedPersistenceUnit, joinPoint::proceed);
+    }
+
+    Method getMethod() {
+        return method;
+    }
+
+    Transactional getTransactional() {
+        return transactional;
+    }
+
+    String getPersistenceUnit() {
+        return persistenceUnit;
+    }
+
+    Propagation getPropagation() {
+        return propagation;
+    }
+
+    Isolation getIsolation() {
+        return isolation;
+    }
+
+    FlushMode getFlushMode() {
+        return flushMode;
+    }
+
+    boolean isReadOnly() {
+        return readOnly;
+    }
+
+    int getTimeout() {
+        return timeout;
+    }
+
+    Class<? extends Throwable>[] getNoRollbackFor() {
+        return noRollbackFor;
+    }
+
+    boolean isSingleFlight() {
+        return singleFlight;
+    }
+
+    int getSingleFlightMaxWait() {
+        return singleFlightMaxWait;
+    }
+
+    String getSignature() {
+        return signature;
+    }
+
+    boolean hasShardKeyParameter() {
+        return shardKeyParameter != NO_SHARD_KEY_PARAMETER;
+    }
+
+    @Override
+    public String toString() {
+        return signature;
+    }
+
+    private static int findShardKeyParameter(Method method) {
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof ShardKey) {
+                    return i;
+                }
+            }
+        }
+        return NO_SHARD_KEY_PARAMETER;
+    }
+
+    /**
+     * Rethrows {@code t} without wrapping. Generated wrappers only declare the exceptions of the original method, which
+     * are exactly the ones {@link TransactionalInvocation#proceed()} may throw.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> E sneakyThrow(Throwable t) throws E {
+        throw (E) t;
+    }
+}
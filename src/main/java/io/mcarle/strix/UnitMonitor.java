@@ -0,0 +1,336 @@
+package io.mcarle.strix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import javax.persistence.PersistenceException;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Internaly used by strix to monitor the transactions of one persistence unit and to hold its runtime settings. Every
+ * monitor is registered as {@link PersistenceUnitMXBean}.
+ */
+final class UnitMonitor implements PersistenceUnitMXBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UnitMonitor.class);
+    private static final Logger TRACE_LOG = LoggerFactory.getLogger("io.mcarle.strix.trace");
+    private static final Map<String, UnitMonitor> MONITORS = new ConcurrentHashMap<>();
+
+    private final String persistenceUnit;
+    private final Set<OpenTransaction> openTransactions = ConcurrentHashMap.newKeySet();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder rollbacks = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private volatile int defaultTimeout = 0;
+    private volatile int maxConcurrentTransactions = 0;
+    private volatile double traceSampleRate = 0;
+    private int activeTransactions = 0;
+
+    private UnitMonitor(String persistenceUnit) {
+        this.persistenceUnit = persistenceUnit;
+    }
+
+    /**
+     * Returns the monitor of {@code persistenceUnit}. The monitor is created and registered in the platform MBean
+     * server, if it does not exist yet.
+     *
+     * @param persistenceUnit The name of the persistence unit
+     * @return The monitor
+     */
+    static UnitMonitor of(String persistenceUnit) {
+        UnitMonitor monitor = MONITORS.get(persistenceUnit);
+        if (monitor == null) {
+            monitor = MONITORS.computeIfAbsent(persistenceUnit, unit -> {
+                UnitMonitor created = new UnitMonitor(unit);
+                created.register();
+                return created;
+            });
+        }
+        return monitor;
+    }
+
+    /**
+     * @return The monitors of all persistence units used so far
+     */
+    static Collection<UnitMonitor> all() {
+        return MONITORS.values();
+    }
+
+    /**
+     * Resets the statistics of all monitors. The settings are kept.
+     */
+    static void resetStatistics() {
+        MONITORS.values().forEach(monitor -> {
+            monitor.commits.reset();
+            monitor.rollbacks.reset();
+            monitor.timeouts.reset();
+        });
+    }
+
+    private void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                  new StandardMBean(this, PersistenceUnitMXBean.class, true),
+                  objectName(persistenceUnit)
+            );
+            LOG.debug("Registered MBean of persistence unit {}", persistenceUnit);
+        } catch (JMException | RuntimeException ex) {
+            LOG.warn("Could not register MBean of persistence unit {}", persistenceUnit, ex);
+        }
+    }
+
+    /**
+     * @param persistenceUnit The name of the persistence unit
+     * @return The name of the MBean of {@code persistenceUnit}
+     * @throws JMException If the name is invalid
+     */
+    static ObjectName objectName(String persistenceUnit) throws JMException {
+        return new ObjectName("io.mcarle.strix:type=PersistenceUnit,name=" + ObjectName.quote(persistenceUnit));
+    }
+
+    /**
+     * Registers a new transaction. Waits, if the maximum amount of concurrent transactions is reached. Every started
+     * transaction must be finished with {@link #finish(OpenTransaction, boolean, boolean)}. Without a limit, no slot is
+     * acquired, so transactions started before a limit was set do not count against it.
+     *
+     * @param signature Describes, who started the transaction
+     * @return The open transaction
+     * @throws PersistenceException If the thread is interrupted while waiting
+     */
+    OpenTransaction start(String signature) {
+        boolean limited = maxConcurrentTransactions > 0 && acquire();
+        OpenTransaction transaction = new OpenTransaction(
+              signature,
+              Thread.currentThread(),
+              traceSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < traceSampleRate,
+              limited
+        );
+        openTransactions.add(transaction);
+        if (transaction.traced) {
+            TRACE_LOG.info("Begin transaction of {} on persistence unit {}", signature, persistenceUnit);
+        }
+        return transaction;
+    }
+
+    /**
+     * Unregisters a transaction started with {@link #start(String)}
+     *
+     * @param transaction The open transaction
+     * @param committed   {@code true}, if the transaction was committed. Otherwise {@code false}.
+     * @param timedOut    {@code true}, if the transaction reached its timeout. Otherwise {@code false}.
+     */
+    void finish(OpenTransaction transaction, boolean committed, boolean timedOut) {
+        openTransactions.remove(transaction);
+        if (transaction.limited) {
+            release();
+        }
+        (committed ? commits : rollbacks).increment();
+        if (timedOut) {
+            timeouts.increment();
+        }
+        if (transaction.traced) {
+            TRACE_LOG.info(
+                  "{} transaction of {} on persistence unit {} after {}ms",
+                  committed ? "Committed" : "Rollbacked",
+                  transaction.signature,
+                  persistenceUnit,
+                  TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - transaction.started)
+            );
+        }
+    }
+
+    /**
+     * @return The currently open transactions
+     */
+    Collection<OpenTransaction> getOpenTransactions() {
+        return openTransactions;
+    }
+
+    /**
+     * Waits for a free transaction slot and occupies it
+     *
+     * @return {@code true}, if a slot was occupied, which must be freed with {@link #release()}. {@code false}, if the
+     * limit was removed in the meantime.
+     * @throws PersistenceException If the thread is interrupted while waiting
+     */
+    private synchronized boolean acquire() {
+        boolean interrupted = false;
+        while (maxConcurrentTransactions > 0 && activeTransactions >= maxConcurrentTransactions) {
+            LOG.trace("Wait for free transaction slot of persistence unit {}", persistenceUnit);
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Interrupted while waiting for a transaction of " + persistenceUnit);
+        }
+        if (maxConcurrentTransactions == 0) {
+            return false;
+        }
+        activeTransactions++;
+        return true;
+    }
+
+    /**
+     * Frees a transaction slot occupied by {@link #acquire()}
+     */
+    private synchronized void release() {
+        activeTransactions--;
+        notifyAll();
+    }
+
+    private OpenTransaction oldestTransaction() {
+        OpenTransaction oldest = null;
+        for (OpenTransaction transaction : openTransactions) {
+            if (oldest == null || transaction.started - oldest.started < 0) {
+                oldest = transaction;
+            }
+        }
+        return oldest;
+    }
+
+    @Override
+    public String getPersistenceUnit() {
+        return persistenceUnit;
+    }
+
+    @Override
+    public int getInFlightTransactions() {
+        return openTransactions.size();
+    }
+
+    @Override
+    public long getOldestTransactionAgeMillis() {
+        OpenTransaction oldest = oldestTransaction();
+        return oldest == null ? 0 : oldest.getAgeMillis();
+    }
+
+    @Override
+    public String getOldestTransactionSignature() {
+        OpenTransaction oldest = oldestTransaction();
+        return oldest == null ? null : oldest.signature;
+    }
+
+    @Override
+    public int getOpenFactories() {
+        return EntityManagerFactoryRegistry.countOpen(persistenceUnit);
+    }
+
+    @Override
+    public int getDrainingFactories() {
+        return EntityManagerFactoryRegistry.countDraining(persistenceUnit);
+    }
+
+    @Override
+    public String getCircuitState() {
+        return CircuitBreaker.stateOf(persistenceUnit).name();
+    }
+
+    @Override
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    @Override
+    public long getRollbacks() {
+        return rollbacks.sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public int getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    @Override
+    public void setDefaultTimeout(int defaultTimeout) {
+        LOG.info("Set default timeout of persistence unit {} to {}ms", persistenceUnit, defaultTimeout);
+        this.defaultTimeout = Math.max(defaultTimeout, 0);
+    }
+
+    @Override
+    public int getMaxConcurrentTransactions() {
+        return maxConcurrentTransactions;
+    }
+
+    @Override
+    public synchronized void setMaxConcurrentTransactions(int maxConcurrentTransactions) {
+        LOG.info("Limit concurrent transactions of persistence unit {} to {}", persistenceUnit, maxConcurrentTransactions);
+        this.maxConcurrentTransactions = Math.max(maxConcurrentTransactions, 0);
+        notifyAll();
+    }
+
+    @Override
+    public double getTraceSampleRate() {
+        return traceSampleRate;
+    }
+
+    @Override
+    public void setTraceSampleRate(double traceSampleRate) {
+        LOG.info("Set trace sample rate of persistence unit {} to {}", persistenceUnit, traceSampleRate);
+        this.traceSampleRate = Math.min(Math.max(traceSampleRate, 0), 1);
+    }
+
+    /**
+     * A transaction, which is currently open
+     */
+    static final class OpenTransaction {
+
+        private final String signature;
+        private final Thread thread;
+        private final boolean traced;
+        private final boolean limited;
+        private final long started = System.nanoTime();
+        private volatile boolean reported = false;
+
+        private OpenTransaction(String signature, Thread thread, boolean traced, boolean limited) {
+            this.signature = signature;
+            this.thread = thread;
+            this.traced = traced;
+            this.limited = limited;
+        }
+
+        String getSignature() {
+            return signature;
+        }
+
+        Thread getThread() {
+            return thread;
+        }
+
+        long getAgeMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        }
+
+        /**
+         * Marks the transaction as reported by the {@link TransactionWatchdog}
+         *
+         * @return {@code true}, if the transaction was not reported before. Otherwise {@code false}.
+         */
+        boolean markReported() {
+            if (reported) {
+                return false;
+            }
+            reported = true;
+            return true;
+        }
+    }
+}
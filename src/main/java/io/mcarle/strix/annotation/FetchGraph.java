@@ -0,0 +1,41 @@
+package io.mcarle.strix.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Defines the fetch plan of a method: While the method is executed, the entity graph is applied as hint to every
+ * {@link javax.persistence.EntityManager#find(Class, Object) find} of its entity type and to every typed JPQL or
+ * criteria query returning its entity type, which is created with the {@link javax.persistence.EntityManager}
+ * returned by {@link io.mcarle.strix.Strix#em()}. Called methods inherit the fetch plan, unless they define their own.
+ * The entity graph is either a {@link javax.persistence.NamedEntityGraph} or built from {@link #attributes()} once per
+ * persistence unit. Only effective within a transaction or unit of work and requires weaving with the aspects of strix.
+ */
+@Target(value = ElementType.METHOD)
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface FetchGraph {
+
+    /**
+     * @return The name of a {@link javax.persistence.NamedEntityGraph}. If empty, the graph is built from
+     * {@link #entity()} and {@link #attributes()}.
+     */
+    String value() default "";
+
+    /**
+     * @return The root entity of the graph built from {@link #attributes()}
+     */
+    Class<?> entity() default void.class;
+
+    /**
+     * @return The attribute paths fetched with the root entity, e.g. {@code "author"} or {@code "author.publisher"}
+     */
+    String[] attributes() default {};
+
+    /**
+     * @return {@code true}, if the graph should be applied as load graph, i.e. attributes not contained in the graph
+     * are fetched as mapped. Otherwise it is applied as fetch graph, i.e. those attributes are fetched lazily.
+     */
+    boolean load() default false;
+}
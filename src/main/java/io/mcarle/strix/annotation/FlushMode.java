@@ -0,0 +1,33 @@
+package io.mcarle.strix.annotation;
+
+/**
+ * Defines when the changes of a transaction are flushed to the database.
+ */
+public enum FlushMode {
+
+    /**
+     * Uses the flush mode of the persistence unit
+     */
+    DEFAULT,
+
+    /**
+     * Flushes before every query, which may read changed data, and on commit. Every query sees the changes of the
+     * transaction, but the persistence context is dirty-checked before each query.
+     *
+     * @see javax.persistence.FlushModeType#AUTO
+     */
+    AUTO,
+
+    /**
+     * Flushes only on commit, so queries do not see changes of the transaction, which are not flushed explicitly
+     *
+     * @see javax.persistence.FlushModeType#COMMIT
+     */
+    COMMIT,
+
+    /**
+     * Flushes only, if {@link javax.persistence.EntityManager#flush()} is called. Changes, which are not flushed
+     * explicitly, are not written on commit. Only supported with hibernate.
+     */
+    MANUAL
+}
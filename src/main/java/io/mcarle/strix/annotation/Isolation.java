@@ -0,0 +1,72 @@
+package io.mcarle.strix.annotation;
+
+import java.sql.Connection;
+
+/**
+ * Defines the isolation level of the JDBC connection used by a transaction.
+ */
+public enum Isolation {
+
+    /**
+     * Uses the default isolation level of the connection
+     */
+    DEFAULT(-1),
+
+    /**
+     * @see Connection#TRANSACTION_READ_UNCOMMITTED
+     */
+    READ_UNCOMMITTED(Connection.TRANSACTION_READ_UNCOMMITTED),
+
+    /**
+     * @see Connection#TRANSACTION_READ_COMMITTED
+     */
+    READ_COMMITTED(Connection.TRANSACTION_READ_COMMITTED),
+
+    /**
+     * @see Connection#TRANSACTION_REPEATABLE_READ
+     */
+    REPEATABLE_READ(Connection.TRANSACTION_REPEATABLE_READ),
+
+    /**
+     * @see Connection#TRANSACTION_SERIALIZABLE
+     */
+    SERIALIZABLE(Connection.TRANSACTION_SERIALIZABLE);
+
+    private final int level;
+
+    Isolation(int level) {
+        this.level = level;
+    }
+
+    /**
+     * @return The isolation level as defined by {@link Connection}, or {@code -1} for {@link #DEFAULT}
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Checks if this isolation level is stricter than {@code other}
+     *
+     * @param other The isolation level to compare to
+     * @return {@code true}, if this prevents more phenomena than {@code other}. Otherwise {@code false}.
+     */
+    public boolean isStricterThan(Isolation other) {
+        return level > other.level;
+    }
+
+    /**
+     * Resolves the isolation of a JDBC isolation level
+     *
+     * @param level The isolation level as defined by {@link Connection}
+     * @return The matching isolation or {@link #DEFAULT}, if there is none
+     */
+    public static Isolation of(int level) {
+        for (Isolation isolation : values()) {
+            if (isolation.level == level) {
+                return isolation;
+            }
+        }
+        return DEFAULT;
+    }
+}
@@ -0,0 +1,27 @@
+package io.mcarle.strix.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches the result of a method for the lifetime of the running transaction: Further calls with equal arguments within
+ * the same transaction return the cached result without executing the method. The cache is dropped on commit or
+ * rollback, so results are never shared between transactions. Outside of a transaction, the method is always executed.
+ * Exceptions are not cached. Requires weaving with the aspects of strix.
+ */
+@Target(value = ElementType.METHOD)
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface Memoized {
+
+    /**
+     * Defines the entity types, whose changes invalidate the cached results of this method. Changes are recognized, if
+     * an entity of such a type (or a subtype) is persisted, merged or removed with the
+     * {@link javax.persistence.EntityManager} returned by {@link io.mcarle.strix.Strix#em()}. A bulk update or delete
+     * executed with a query of that entity manager invalidates the cached results regardless of the types.
+     *
+     * @return The entity types, which invalidate the cached results
+     */
+    Class<?>[] invalidatedBy() default {};
+}
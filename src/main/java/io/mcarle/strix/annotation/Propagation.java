@@ -0,0 +1,44 @@
+package io.mcarle.strix.annotation;
+
+/**
+ * Defines how a {@link Transactional} method relates to the transaction of the calling thread.
+ */
+public enum Propagation {
+
+    /**
+     * Joins the running transaction of the same persistence unit or creates a new one. If the calling thread only has
+     * a non-transactional {@link javax.persistence.EntityManager} of the same persistence unit, a transaction is begun
+     * on it.
+     */
+    REQUIRED,
+
+    /**
+     * Always creates a new transaction. A running transaction is suspended, i.e. the method is executed in its own
+     * thread. Same as {@link Transactional#requiresNew()}.
+     */
+    REQUIRES_NEW,
+
+    /**
+     * Joins the running transaction of the same persistence unit. Without one, the method is executed with a
+     * non-transactional {@link javax.persistence.EntityManager}, i.e. without begin and rollback or commit.
+     */
+    SUPPORTS,
+
+    /**
+     * Joins the running transaction of the same persistence unit. Without one, a
+     * {@link javax.persistence.TransactionRequiredException} is thrown.
+     */
+    MANDATORY,
+
+    /**
+     * Executes the method with a non-transactional {@link javax.persistence.EntityManager}. If the calling thread has
+     * a running transaction, an {@link IllegalStateException} is thrown.
+     */
+    NEVER,
+
+    /**
+     * Executes the method with a non-transactional {@link javax.persistence.EntityManager}. A running transaction is
+     * suspended, i.e. the method is executed in its own thread.
+     */
+    NOT_SUPPORTED
+}
@@ -0,0 +1,28 @@
+package io.mcarle.strix.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@code static final String} constant holding a JPQL query, which is registered by
+ * {@link io.mcarle.strix.Strix#registerQueries(Class)}. The query is compiled and validated, whenever an
+ * {@link javax.persistence.EntityManagerFactory} of its persistence units is created, and can be executed with
+ * {@link io.mcarle.strix.Strix#query(String, Class)}.
+ */
+@Target(value = ElementType.FIELD)
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface RegisteredQuery {
+
+    /**
+     * @return The name of the query. Defaults to the simple name of the declaring class and the name of the field,
+     * separated by a dot, e.g. {@code BookQueries.FIND_BY_NAME}.
+     */
+    String name() default "";
+
+    /**
+     * @return The persistence units, in which the query is valid. Defaults to all persistence units.
+     */
+    String[] persistenceUnits() default {};
+}
@@ -0,0 +1,17 @@
+package io.mcarle.strix.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the parameter of a {@link Transactional} method, which is used as shard key, if the persistence unit of the
+ * method is sharded. Takes precedence over a shard key bound with
+ * {@link io.mcarle.strix.Strix#withShardKey(Object, pl.touk.throwing.ThrowingSupplier)}.
+ */
+@Target(value = ElementType.PARAMETER)
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface ShardKey {
+
+}
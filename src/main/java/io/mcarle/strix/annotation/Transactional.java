@@ -36,12 +36,36 @@ public @interface Transactional {
 
     /**
      * Defines, that the method will create and use its own transaction, i.e. it will create a new transaction whenever
-     * the method is called.
+     * the method is called. Same as {@link Propagation#REQUIRES_NEW} and overrides {@link #propagation()}.
      *
      * @return {@code true}, if a new transaction is required. Otherwise {@code false}
      */
     boolean requiresNew() default false;
 
+    /**
+     * Defines how the method relates to the transaction of the calling thread.
+     *
+     * @return The propagation of the transaction
+     */
+    Propagation propagation() default Propagation.REQUIRED;
+
+    /**
+     * Defines the isolation level of the JDBC connection, which is set when the transaction begins and restored
+     * before the connection is released. A method joining a transaction must not require a stricter isolation level
+     * than the running transaction.
+     *
+     * @return The isolation level of the transaction
+     */
+    Isolation isolation() default Isolation.DEFAULT;
+
+    /**
+     * Defines when changes are flushed to the database, which is set when the transaction begins. Methods joining the
+     * transaction inherit its flush mode, regardless of their own.
+     *
+     * @return The flush mode of the transaction
+     */
+    FlushMode flushMode() default FlushMode.DEFAULT;
+
     /**
      * Defines the time in milliseconds, after which the {@link javax.persistence.EntityTransaction} will be rollbacked
      * and the {@link javax.persistence.EntityManager} will be closed.
@@ -56,4 +80,21 @@ public @interface Transactional {
      * @return List of throwable classes, for which no rollback shall be performed
      */
     Class<? extends Throwable>[] noRollbackFor() default {};
+
+    /**
+     * Coalesces concurrent calls of this method with equal arguments, which start a new transaction: Only one of them
+     * is executed, the others wait for it and get the same (detached) result or exception. Only allowed together with
+     * {@link #readOnly()}. The result is shared between all waiting callers, so it must not be modified.
+     *
+     * @return {@code true}, if concurrent calls with equal arguments should be coalesced. Otherwise {@code false}.
+     */
+    boolean singleFlight() default false;
+
+    /**
+     * Defines the time in milliseconds a call waits for the coalesced in-flight execution, before it executes the
+     * method on its own. Only used with {@link #singleFlight()}.
+     *
+     * @return Amount of time in milliseconds
+     */
+    int singleFlightMaxWait() default 1000;
 }
@@ -0,0 +1,286 @@
+package io.mcarle.strix.processor;
+
+import io.mcarle.strix.annotation.NoTransaction;
+import io.mcarle.strix.annotation.ShardKey;
+import io.mcarle.strix.annotation.Transactional;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Generates a subclass for every class, which is annotated with {@link Transactional} or has methods annotated with
+ * {@link Transactional}. The subclass {@code Strix_<ClassName>} overrides every transactional method and calls
+ * {@link io.mcarle.strix.TransactionalMethod#invoke} with a descriptor resolved once per class. Calls joining the
+ * transaction of the current thread invoke the original method directly. Instantiating the generated subclass instead
+ * of the original class makes the methods transactional without weaving them with aspectj.
+ * <p>
+ * Private, final and static methods cannot be overridden and will not be transactional. Abstract methods are left to
+ * the implementing subclass. Do not combine generated subclasses with weaving, as every call would be handled twice.
+ * <p>
+ * The processor is not registered as a service, so it only runs, if it is passed to javac with
+ * {@code -processor io.mcarle.strix.processor.TransactionalProcessor}.
+ */
+@SupportedAnnotationTypes("io.mcarle.strix.annotation.Transactional")
+public class TransactionalProcessor extends AbstractProcessor {
+
+    static final String PREFIX = "Strix_";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> types = new LinkedHashSet<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(Transactional.class)) {
+            if (element.getKind() == ElementKind.CLASS) {
+                types.add((TypeElement) element);
+            } else if (element.getKind() == ElementKind.METHOD) {
+                types.add((TypeElement) element.getEnclosingElement());
+            }
+        }
+        types.stream().filter(this::isSubclassable).forEach(this::generate);
+        return false;
+    }
+
+    private boolean isSubclassable(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS) {
+            return false;
+        }
+        if (type.getModifiers().contains(Modifier.FINAL) || type.getModifiers().contains(Modifier.PRIVATE)) {
+            warn(type, "Final or private class cannot be subclassed, no transactional subclass generated");
+            return false;
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+            warn(type, "Inner class cannot be subclassed, no transactional subclass generated");
+            return false;
+        }
+        if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            return false;
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String className = PREFIX + binaryName(type);
+        String qualifiedClassName = packageName.isEmpty() ? className : packageName + "." + className;
+        boolean classTransactional = type.getAnnotation(Transactional.class) != null;
+
+        List<ExecutableElement> methods = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (isTransactional(method, classTransactional)) {
+                methods.add(method);
+            }
+        }
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedClassName, type).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Transactional subclass of {@link " + type.getQualifiedName() + "}, generated by strix.");
+            out.println(" */");
+            out.println(modifiers(type.getModifiers(), false) + "class " + className + typeParameters(type.getTypeParameters())
+                  + " extends " + type.getQualifiedName() + typeArguments(type.getTypeParameters()) + " {");
+            out.println();
+            for (int i = 0; i < methods.size(); i++) {
+                ExecutableElement method = methods.get(i);
+                out.println("    private static final io.mcarle.strix.TransactionalMethod STRIX_METHOD_" + i
+                      + " = io.mcarle.strix.TransactionalMethod.of(" + type.getQualifiedName() + ".class, \""
+                      + method.getSimpleName() + "\"" + parameterClasses(method) + ");");
+            }
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+                if (!constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                    out.println();
+                    out.println("    " + modifiers(constructor.getModifiers(), false) + className + "("
+                          + parameters(constructor) + ")" + throwsClause(constructor) + " {");
+                    out.println("        super(" + arguments(constructor) + ");");
+                    out.println("    }");
+                }
+            }
+            for (int i = 0; i < methods.size(); i++) {
+                ExecutableElement method = methods.get(i);
+                Transactional transactional = method.getAnnotation(Transactional.class) != null
+                      ? method.getAnnotation(Transactional.class)
+                      : type.getAnnotation(Transactional.class);
+                writeMethod(out, method, "STRIX_METHOD_" + i, transactional.singleFlight());
+            }
+            out.println("}");
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(
+                  Diagnostic.Kind.ERROR,
+                  "Could not generate transactional subclass: " + ex.getMessage(),
+                  type
+            );
+        }
+    }
+
+    private boolean isTransactional(ExecutableElement method, boolean classTransactional) {
+        Set<Modifier> modifiers = method.getModifiers();
+        if (method.getAnnotation(NoTransaction.class) != null || modifiers.contains(Modifier.STATIC)) {
+            return false;
+        }
+        boolean methodTransactional = method.getAnnotation(Transactional.class) != null;
+        if (!methodTransactional && !(classTransactional && modifiers.contains(Modifier.PUBLIC))) {
+            return false;
+        }
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL)) {
+            if (methodTransactional) {
+                warn(method, "Private or final method cannot be overridden and will not be transactional");
+            }
+            return false;
+        }
+        if (modifiers.contains(Modifier.ABSTRACT)) {
+            if (methodTransactional) {
+                warn(method, "Abstract method has no implementation to call and will not be transactional");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private void writeMethod(PrintWriter out, ExecutableElement method, String descriptor, boolean singleFlight) {
+        TypeMirror returnType = method.getReturnType();
+        boolean isVoid = returnType.getKind() == TypeKind.VOID;
+        String resultType = isVoid ? "java.lang.Void" : boxed(returnType);
+        String call = "super." + method.getSimpleName() + "(" + arguments(method) + ")";
+
+        out.println();
+        out.println("    @Override");
+        out.println("    " + modifiers(method.getModifiers(), true) + typeParameters(method.getTypeParameters())
+              + (method.getTypeParameters().isEmpty() ? "" : " ") + returnType + " " + method.getSimpleName()
+              + "(" + parameters(method) + ")" + throwsClause(method) + " {");
+        out.println("        if (" + descriptor + ".joinsCurrentTransaction(" + shardKey(method) + ")) {");
+        out.println("            " + (isVoid ? call + ";" : "return " + call + ";"));
+        if (isVoid) {
+            out.println("            return;");
+        }
+        out.println("        }");
+        out.println("        " + (isVoid ? "" : "return ") + descriptor + ".<" + resultType + ">invoke("
+              + shardKey(method) + (singleFlight ? ", new Object[]{" + arguments(method) + "}" : "") + ", () -> " + (isVoid ? "{ " + call + "; return null; }" : call) + ");");
+        out.println("    }");
+    }
+
+    private String shardKey(ExecutableElement method) {
+        for (VariableElement parameter : method.getParameters()) {
+            if (parameter.getAnnotation(ShardKey.class) != null) {
+                return parameter.getSimpleName().toString();
+            }
+        }
+        return "null";
+    }
+
+    private String boxed(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((javax.lang.model.type.PrimitiveType) type).getQualifiedName().toString();
+        }
+        return type.toString();
+    }
+
+    private String parameterClasses(ExecutableElement method) {
+        return method.getParameters().stream()
+              .map(parameter -> ", " + processingEnv.getTypeUtils().erasure(parameter.asType()) + ".class")
+              .collect(Collectors.joining());
+    }
+
+    private static String parameters(ExecutableElement executable) {
+        List<? extends VariableElement> parameters = executable.getParameters();
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < parameters.size(); i++) {
+            VariableElement parameter = parameters.get(i);
+            String type = parameter.asType().toString();
+            if (executable.isVarArgs() && i == parameters.size() - 1) {
+                type = type.substring(0, type.length() - 2) + "...";
+            }
+            result.add("final " + type + " " + parameter.getSimpleName());
+        }
+        return String.join(", ", result);
+    }
+
+    private static String arguments(ExecutableElement executable) {
+        return executable.getParameters().stream()
+              .map(parameter -> parameter.getSimpleName().toString())
+              .collect(Collectors.joining(", "));
+    }
+
+    private static String throwsClause(ExecutableElement executable) {
+        if (executable.getThrownTypes().isEmpty()) {
+            return "";
+        }
+        return " throws " + executable.getThrownTypes().stream().map(TypeMirror::toString).collect(Collectors.joining(", "));
+    }
+
+    private static String typeParameters(List<? extends TypeParameterElement> typeParameters) {
+        if (typeParameters.isEmpty()) {
+            return "";
+        }
+        return typeParameters.stream().map(typeParameter -> {
+            List<String> bounds = typeParameter.getBounds().stream()
+                  .map(TypeMirror::toString)
+                  .filter(bound -> !bound.equals("java.lang.Object"))
+                  .collect(Collectors.toList());
+            return typeParameter.getSimpleName() + (bounds.isEmpty() ? "" : " extends " + String.join(" & ", bounds));
+        }).collect(Collectors.joining(", ", "<", ">"));
+    }
+
+    private static String typeArguments(List<? extends TypeParameterElement> typeParameters) {
+        if (typeParameters.isEmpty()) {
+            return "";
+        }
+        return typeParameters.stream()
+              .map(typeParameter -> typeParameter.getSimpleName().toString())
+              .collect(Collectors.joining(", ", "<", ">"));
+    }
+
+    private static String modifiers(Set<Modifier> modifiers, boolean method) {
+        StringBuilder result = new StringBuilder();
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            result.append("public ");
+        } else if (modifiers.contains(Modifier.PROTECTED)) {
+            result.append("protected ");
+        }
+        if (!method && modifiers.contains(Modifier.ABSTRACT)) {
+            result.append("abstract ");
+        }
+        return result.toString();
+    }
+
+    private static String binaryName(TypeElement type) {
+        String name = type.getSimpleName().toString();
+        Element enclosing = type.getEnclosingElement();
+        while (!(enclosing instanceof PackageElement)) {
+            name = enclosing.getSimpleName() + "_" + name;
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name;
+    }
+
+    private void warn(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+    }
+}
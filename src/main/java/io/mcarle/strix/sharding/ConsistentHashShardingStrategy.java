@@ -0,0 +1,72 @@
+package io.mcarle.strix.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Distributes shard keys on a hash ring with virtual nodes, so adding or removing a shard only moves a small part of the
+ * keys. The hash of a key is computed from its {@link String#valueOf(Object) string representation}, which therefore must
+ * be stable.
+ */
+public final class ConsistentHashShardingStrategy implements ShardingStrategy {
+
+    private static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final List<String> shards;
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    /**
+     * @param shards The persistence units to distribute the keys on
+     */
+    public ConsistentHashShardingStrategy(List<String> shards) {
+        this(shards, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * @param shards       The persistence units to distribute the keys on
+     * @param virtualNodes The amount of positions of each shard on the hash ring
+     */
+    public ConsistentHashShardingStrategy(List<String> shards, int virtualNodes) {
+        if (shards.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("At least one shard and one virtual node needed");
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        for (String shard : shards) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(shard + "#" + i), shard);
+            }
+        }
+    }
+
+    @Override
+    public List<String> getShards() {
+        return shards;
+    }
+
+    @Override
+    public String selectShard(Object shardKey) {
+        Map.Entry<Long, String> node = ring.ceilingEntry(hash(String.valueOf(shardKey)));
+        return node == null ? ring.firstEntry().getValue() : node.getValue();
+    }
+
+    /**
+     * 64 bit FNV-1a hash with the finalizer of MurmurHash3, which is stable across JVMs and spreads similar values
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
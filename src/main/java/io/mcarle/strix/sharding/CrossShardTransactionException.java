@@ -0,0 +1,15 @@
+package io.mcarle.strix.sharding;
+
+import javax.persistence.PersistenceException;
+
+/**
+ * Thrown, if a transaction of one shard calls a transactional method, which would be routed to another shard of the same
+ * logical persistence unit. Use {@code requiresNew} or {@link io.mcarle.strix.Strix#scatterGather} to work on several
+ * shards.
+ */
+public class CrossShardTransactionException extends PersistenceException {
+
+    public CrossShardTransactionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,60 @@
+package io.mcarle.strix.sharding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Selects the shard by a lookup table. Keys, which are not contained in the table, are delegated to a fallback strategy.
+ */
+public final class LookupShardingStrategy implements ShardingStrategy {
+
+    private final Map<Object, String> table;
+    private final ShardingStrategy fallback;
+    private final List<String> shards;
+
+    /**
+     * @param table Map of shard keys to persistence units
+     */
+    public LookupShardingStrategy(Map<?, String> table) {
+        this(table, null);
+    }
+
+    /**
+     * @param table    Map of shard keys to persistence units
+     * @param fallback Strategy for keys not contained in {@code table}, or {@code null}
+     */
+    public LookupShardingStrategy(Map<?, String> table, ShardingStrategy fallback) {
+        this.table = new HashMap<>(table);
+        this.fallback = fallback;
+        Set<String> allShards = new LinkedHashSet<>(table.values());
+        if (fallback != null) {
+            allShards.addAll(fallback.getShards());
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<>(allShards));
+    }
+
+    @Override
+    public List<String> getShards() {
+        return shards;
+    }
+
+    /**
+     * @throws IllegalArgumentException If {@code shardKey} is unknown and there is no fallback
+     */
+    @Override
+    public String selectShard(Object shardKey) {
+        String shard = table.get(shardKey);
+        if (shard != null) {
+            return shard;
+        }
+        if (fallback == null) {
+            throw new IllegalArgumentException("No shard defined for key '" + shardKey + "'");
+        }
+        return fallback.selectShard(shardKey);
+    }
+}
@@ -0,0 +1,49 @@
+package io.mcarle.strix.sharding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Selects the shard by ranges of comparable shard keys. Each range starts at its lower bound (inclusive) and ends at
+ * the lower bound of the next range (exclusive).
+ *
+ * @param <K> Type of the shard keys
+ */
+public final class RangeShardingStrategy<K extends Comparable<K>> implements ShardingStrategy {
+
+    private final TreeMap<K, String> lowerBounds;
+    private final List<String> shards;
+
+    /**
+     * @param lowerBounds Map of inclusive lower bounds to the persistence unit of that range
+     */
+    public RangeShardingStrategy(Map<K, String> lowerBounds) {
+        if (lowerBounds.isEmpty()) {
+            throw new IllegalArgumentException("At least one range needed");
+        }
+        this.lowerBounds = new TreeMap<>(lowerBounds);
+        this.shards = Collections.unmodifiableList(new ArrayList<>(new LinkedHashSet<>(this.lowerBounds.values())));
+    }
+
+    @Override
+    public List<String> getShards() {
+        return shards;
+    }
+
+    /**
+     * @throws IllegalArgumentException If {@code shardKey} is lower than the lowest bound
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public String selectShard(Object shardKey) {
+        Map.Entry<K, String> range = lowerBounds.floorEntry((K) shardKey);
+        if (range == null) {
+            throw new IllegalArgumentException("No shard defined for key '" + shardKey + "'");
+        }
+        return range.getValue();
+    }
+}
@@ -0,0 +1,25 @@
+package io.mcarle.strix.sharding;
+
+import java.util.List;
+
+/**
+ * Selects one of several identical persistence units (shards) for a shard key. A strategy is registered for a logical
+ * persistence unit with {@link io.mcarle.strix.Strix#registerSharding(String, ShardingStrategy)}, so all methods
+ * annotated with {@link io.mcarle.strix.annotation.Transactional} using that logical persistence unit will be routed
+ * to the selected shard.
+ */
+public interface ShardingStrategy {
+
+    /**
+     * @return All persistence units (shards) this strategy may select
+     */
+    List<String> getShards();
+
+    /**
+     * Selects the persistence unit for {@code shardKey}. Must always return the same persistence unit for equal keys.
+     *
+     * @param shardKey The shard key, never {@code null}
+     * @return The name of the persistence unit, which is one of {@link #getShards()}
+     */
+    String selectShard(Object shardKey);
+}
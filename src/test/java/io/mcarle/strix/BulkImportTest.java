@@ -0,0 +1,169 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.entity.TestEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.PersistenceException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class BulkImportTest {
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup();
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.shutdown();
+    }
+
+    private static Stream<TestEntity> entities(int amount) {
+        return IntStream.range(0, amount).mapToObj(i -> new TestEntity());
+    }
+
+    private static long countEntities() {
+        AtomicReference<Long> count = new AtomicReference<>();
+        new PropagationManager().required(() -> count.set(
+              Strix.em().createQuery("SELECT count(e) FROM TestEntity e", Long.class).getSingleResult()
+        ));
+        return count.get();
+    }
+
+    @Test
+    public void importInChunks() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        AtomicInteger progressReports = new AtomicInteger();
+        BulkImportProgress result = Strix.<TestEntity>bulkImport("strix-pu")
+              .chunkSize(100)
+              .parallelism(4)
+              .writer((em, chunk) -> {
+                  threads.add(Thread.currentThread().getName());
+                  assertTrue(em.getTransaction().isActive());
+                  assertSame(em, Strix.em());
+                  chunk.forEach(em::persist);
+              })
+              .onProgress(progress -> progressReports.incrementAndGet())
+              .run(entities(1050));
+        assertEquals(1050, result.getRowsImported());
+        assertEquals(11, result.getChunksImported());
+        assertEquals(0, result.getChunksSkipped());
+        assertEquals(11, progressReports.get());
+        assertTrue(threads.size() <= 4);
+        assertEquals(1050, countEntities());
+    }
+
+    @Test
+    public void retryFailedChunk() {
+        AtomicInteger attempts = new AtomicInteger();
+        BulkImportProgress result = Strix.<Integer>bulkImport("strix-pu")
+              .chunkSize(10)
+              .maxRetries(1)
+              .writer((em, chunk) -> {
+                  chunk.forEach(row -> em.persist(new TestEntity()));
+                  if (attempts.incrementAndGet() == 1) {
+                      throw new IllegalStateException("expected");
+                  }
+              })
+              .run(IntStream.range(0, 10).boxed());
+        assertEquals(1, result.getRetries());
+        assertEquals(10, result.getRowsImported());
+        assertEquals(10, countEntities());
+    }
+
+    @Test
+    public void skipFailedChunk() {
+        AtomicInteger chunks = new AtomicInteger();
+        BulkImportProgress result = Strix.<TestEntity>bulkImport("strix-pu")
+              .chunkSize(10)
+              .parallelism(1)
+              .skipFailedChunks(true)
+              .writer((em, chunk) -> {
+                  chunk.forEach(em::persist);
+                  if (chunks.incrementAndGet() == 2) {
+                      throw new IllegalStateException("expected");
+                  }
+              })
+              .run(entities(30));
+        assertEquals(2, result.getChunksImported());
+        assertEquals(1, result.getChunksSkipped());
+        assertEquals(10, result.getRowsSkipped());
+        assertEquals(20, countEntities());
+    }
+
+    @Test
+    public void abortOnFailedChunk() {
+        AtomicInteger chunks = new AtomicInteger();
+        try {
+            Strix.<TestEntity>bulkImport("strix-pu")
+                  .chunkSize(10)
+                  .parallelism(1)
+                  .writer((em, chunk) -> {
+                      chunk.forEach(em::persist);
+                      if (chunks.incrementAndGet() == 2) {
+                          throw new IllegalStateException("expected");
+                      }
+                  })
+                  .run(entities(1000));
+            fail();
+        } catch (PersistenceException ex) {
+            assertEquals("expected", ex.getCause().getMessage());
+        }
+        assertEquals(2, chunks.get());
+        assertEquals(10, countEntities());
+    }
+
+    @Test
+    public void readerWaitsForWorkers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger read = new AtomicInteger();
+        Iterator<TestEntity> source = new Iterator<TestEntity>() {
+            @Override
+            public boolean hasNext() {
+                return read.get() < 1000;
+            }
+
+            @Override
+            public TestEntity next() {
+                read.incrementAndGet();
+                return new TestEntity();
+            }
+        };
+        Thread reader = new Thread(() -> Strix.<TestEntity>bulkImport("strix-pu")
+              .chunkSize(10)
+              .parallelism(2)
+              .writer((em, chunk) -> {
+                  release.await(10, TimeUnit.SECONDS);
+                  chunk.forEach(em::persist);
+              })
+              .run(source));
+        reader.start();
+        Thread.sleep(300);
+        // two chunks per worker may be queued or running, one more is read while waiting for a free slot
+        assertEquals(50, read.get());
+        release.countDown();
+        reader.join(10_000);
+        assertEquals(1000, read.get());
+        assertEquals(1000, countEntities());
+    }
+
+    @Test
+    public void importIterable() {
+        List<TestEntity> entities = Stream.generate(TestEntity::new).limit(5).collect(Collectors.toList());
+        assertEquals(5, Strix.<TestEntity>bulkImport("strix-pu").run(entities).getRowsImported());
+    }
+}
@@ -0,0 +1,232 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.entity.TestEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    private final PropagationManager propagationManager = new PropagationManager();
+    private final AtomicInteger bootstraps = new AtomicInteger();
+    private volatile String tenant = "up";
+    private volatile boolean bootstrapFails = false;
+    private Connection downDatabase;
+
+    @Before
+    public void startupPersistence() {
+        Strix.setTenantResolver(new TenantResolver() {
+            @Override
+            public String resolveTenant(String persistenceUnit) {
+                return tenant;
+            }
+
+            @Override
+            public Map<String, String> tenantProperties(String persistenceUnit, String tenant) {
+                bootstraps.incrementAndGet();
+                Map<String, String> properties = new HashMap<>();
+                if (tenant.equals("down")) {
+                    properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:strix-down;IFEXISTS=TRUE");
+                    properties.put("javax.persistence.schema-generation.database.action", "none");
+                    properties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+                    properties.put("hibernate.temp.use_jdbc_metadata_defaults", "false");
+                    properties.put("hibernate.connection.initial_pool_size", "0");
+                }
+                if (bootstrapFails) {
+                    properties.put("javax.persistence.provider", "not.existing.Provider");
+                }
+                return properties;
+            }
+        });
+        Strix.startup();
+        Strix.configureCircuitBreaker("strix-pu", 2, 1, 200, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void shutdownPersistence() throws SQLException {
+        Strix.configureCircuitBreaker("strix-pu", 0, 1, 0, TimeUnit.MILLISECONDS);
+        Strix.setTenantResolver(null);
+        Strix.shutdown();
+        if (downDatabase != null) {
+            downDatabase.close();
+        }
+    }
+
+    private void transaction() {
+        propagationManager.required(() -> Strix.em().persist(new TestEntity()));
+    }
+
+    /**
+     * Fails on begin of the transaction, while the database is down
+     */
+    private void failingBegin() {
+        propagationManager.required(() -> {
+        });
+    }
+
+    private String circuitState() {
+        return Strix.management("strix-pu").getCircuitState();
+    }
+
+    private CircuitBreaker.State circuitState(String tenant) {
+        return CircuitBreaker.of("strix-pu", tenant).getState();
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() throws Exception {
+        transaction();
+        closeDatabase();
+        for (int i = 0; i < 2; i++) {
+            try {
+                failingBegin();
+                fail();
+            } catch (PersistenceUnitUnavailableException ex) {
+                fail("Circuit opened too early");
+            } catch (RuntimeException ex) {
+                // expected failure of the database
+            }
+        }
+        assertEquals("OPEN", circuitState());
+        try {
+            failingBegin();
+            fail();
+        } catch (PersistenceUnitUnavailableException ex) {
+            assertEquals("strix-pu", ex.getPersistenceUnit());
+            assertNotNull(ex.getCause());
+        }
+    }
+
+    @Test
+    public void closesAfterSuccessfulProbe() throws Exception {
+        transaction();
+        closeDatabase();
+        for (int i = 0; i < 2; i++) {
+            try {
+                failingBegin();
+            } catch (RuntimeException ex) {
+                // expected failure of the database
+            }
+        }
+        assertEquals("OPEN", circuitState());
+        openDatabase();
+        Thread.sleep(300);
+
+        failingBegin();
+        assertEquals("CLOSED", circuitState());
+    }
+
+    @Test
+    public void circuitOfOtherTenantStaysClosed() {
+        closeDatabase();
+        for (int i = 0; i < 2; i++) {
+            try {
+                failingBegin();
+            } catch (RuntimeException ex) {
+                // expected failure of the database
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitState("down"));
+
+        tenant = "up";
+        transaction();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitState("up"));
+        assertEquals(CircuitBreaker.State.OPEN, circuitState("down"));
+        assertEquals("OPEN", circuitState());
+    }
+
+    @Test
+    public void retriesBootstrapPerTenant() throws Exception {
+        bootstrapFails = true;
+        for (String failingTenant : new String[]{"a", "b"}) {
+            tenant = failingTenant;
+            try {
+                transaction();
+                fail();
+            } catch (PersistenceUnitUnavailableException ex) {
+                fail("Circuit of tenant " + failingTenant + " opened by other tenant");
+            } catch (RuntimeException ex) {
+                // expected failure of the bootstrap
+            }
+            assertEquals(CircuitBreaker.State.OPEN, circuitState(failingTenant));
+        }
+
+        bootstrapFails = false;
+        for (int i = 0; i < 20 && !"CLOSED".equals(circuitState()); i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, circuitState("a"));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitState("b"));
+        transaction();
+    }
+
+    @Test
+    public void retriesBootstrapInBackground() throws Exception {
+        bootstrapFails = true;
+        try {
+            transaction();
+            fail();
+        } catch (PersistenceUnitUnavailableException ex) {
+            fail("Circuit opened too early");
+        } catch (RuntimeException ex) {
+            // expected failure of the bootstrap
+        }
+        assertEquals("OPEN", circuitState());
+        int bootstrapsOnRequestPath = bootstraps.get();
+        try {
+            transaction();
+            fail();
+        } catch (PersistenceUnitUnavailableException ex) {
+            // expected
+        }
+        assertEquals(bootstrapsOnRequestPath, bootstraps.get());
+
+        Thread.sleep(500);
+        assertTrue(bootstraps.get() > bootstrapsOnRequestPath);
+        assertEquals("OPEN", circuitState());
+
+        bootstrapFails = false;
+        for (int i = 0; i < 20 && !"CLOSED".equals(circuitState()); i++) {
+            Thread.sleep(100);
+        }
+        assertEquals("CLOSED", circuitState());
+        transaction();
+    }
+
+    @Test
+    public void disabledByDefault() {
+        Strix.configureCircuitBreaker("strix-pu", 0, 1, 0, TimeUnit.MILLISECONDS);
+        bootstrapFails = true;
+        for (int i = 0; i < 3; i++) {
+            try {
+                transaction();
+                fail();
+            } catch (PersistenceUnitUnavailableException ex) {
+                fail("Circuit breaker is disabled");
+            } catch (RuntimeException ex) {
+                // expected failure of the bootstrap
+            }
+        }
+        assertEquals("CLOSED", circuitState());
+    }
+
+    private void closeDatabase() {
+        tenant = "down";
+    }
+
+    /**
+     * Creates the database of tenant {@code down}, which exists as long as the connection is open
+     */
+    private void openDatabase() throws SQLException {
+        downDatabase = DriverManager.getConnection("jdbc:h2:mem:strix-down");
+    }
+}
@@ -0,0 +1,60 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.Transactional;
+import io.mcarle.strix.entity.JobEntity;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Manager, which uses the table of {@link JobEntity} in persistence unit {@code strix-pu} as work queue.
+ */
+@Transactional(persistenceUnit = "strix-pu")
+public class ClaimManager {
+
+    public void createJobs(int amount) {
+        for (int i = 0; i < amount; i++) {
+            JobEntity job = new JobEntity();
+            job.setStatus("NEW");
+            job.setPriority(i);
+            Strix.em().persist(job);
+        }
+    }
+
+    private List<JobEntity> claimNew(int maxRows) {
+        return Strix.claim(JobEntity.class)
+              .where("e.status = :status")
+              .parameter("status", "NEW")
+              .orderBy("e.priority DESC")
+              .lockTimeout(50, TimeUnit.MILLISECONDS)
+              .fetch(maxRows);
+    }
+
+    private static List<Integer> priorities(List<JobEntity> jobs) {
+        return jobs.stream().map(JobEntity::getPriority).collect(Collectors.toList());
+    }
+
+    public List<Integer> claim(int maxRows) {
+        return priorities(claimNew(maxRows));
+    }
+
+    public List<Integer> claimAndComplete(int maxRows) {
+        List<JobEntity> jobs = claimNew(maxRows);
+        jobs.forEach(job -> job.setStatus("DONE"));
+        return priorities(jobs);
+    }
+
+    public List<Integer> claimAndRollback(int maxRows) {
+        List<Integer> priorities = claimAndComplete(maxRows);
+        throw new IllegalStateException(priorities.toString());
+    }
+
+    public List<Integer> claimAndHold(int maxRows, CountDownLatch claimed, CountDownLatch release) throws InterruptedException {
+        List<Integer> priorities = claim(maxRows);
+        claimed.countDown();
+        release.await(10, TimeUnit.SECONDS);
+        return priorities;
+    }
+}
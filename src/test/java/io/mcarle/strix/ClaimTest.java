@@ -0,0 +1,79 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.entity.JobEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.TransactionRequiredException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ClaimTest {
+
+    private final ClaimManager claimManager = new ClaimManager();
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup(Collections.singletonMap(
+              "strix-pu",
+              Collections.singletonMap("javax.persistence.jdbc.url", "jdbc:h2:mem:strix1;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=100")
+        ));
+        claimManager.createJobs(5);
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.shutdown();
+    }
+
+    @Test(expected = TransactionRequiredException.class)
+    public void claimOutsideOfTransaction() {
+        Strix.claim(JobEntity.class).fetch(1);
+    }
+
+    @Test
+    public void claimInOrderMatchingCondition() {
+        assertEquals(Arrays.asList(4, 3), claimManager.claimAndComplete(2));
+        assertEquals(Arrays.asList(2, 1, 0), claimManager.claim(10));
+    }
+
+    @Test
+    public void claimSkipsLockedRows() throws Exception {
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<List<Integer>> holder = CompletableFuture.supplyAsync(() -> {
+            try {
+                return claimManager.claimAndHold(2, claimed, release);
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        try {
+            assertTrue(claimed.await(10, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList(2, 1), claimManager.claim(2));
+            assertEquals(Arrays.asList(2, 1, 0), claimManager.claim(5));
+        } finally {
+            release.countDown();
+        }
+        assertEquals(Arrays.asList(4, 3), holder.get(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(4, 3, 2, 1, 0), claimManager.claim(5));
+    }
+
+    @Test
+    public void claimedRowsReleasedOnRollback() {
+        try {
+            claimManager.claimAndRollback(5);
+            fail();
+        } catch (IllegalStateException ex) {
+            assertEquals("[4, 3, 2, 1, 0]", ex.getMessage());
+        }
+        assertEquals(Arrays.asList(4, 3, 2, 1, 0), claimManager.claim(5));
+    }
+}
@@ -0,0 +1,163 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.entity.CounterEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CounterBufferTest {
+
+    private final PropagationManager propagationManager = new PropagationManager();
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup();
+        propagationManager.required(() -> {
+            for (long id = 1; id <= 3; id++) {
+                CounterEntity entity = new CounterEntity();
+                entity.setId(id);
+                Strix.em().persist(entity);
+            }
+        });
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.configureCounterBuffer("strix-pu", 1, TimeUnit.SECONDS, 10000, false);
+        Strix.shutdown();
+    }
+
+    private CounterEntity load(long id) {
+        return Strix.unitOfWork("strix-pu", false, () -> Strix.em().find(CounterEntity.class, id));
+    }
+
+    private void awaitViews(long id, long views) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (load(id).getViews() != views && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(views, load(id).getViews());
+    }
+
+    @Test
+    public void incrementsAreBufferedUntilFlush() {
+        Strix.configureCounterBuffer("strix-pu", 1, TimeUnit.HOURS, 10000, false);
+
+        Strix.increment("strix-pu", CounterEntity.class, 1L, "views", 1);
+        Strix.increment("strix-pu", CounterEntity.class, 1L, "views", 1);
+        Strix.increment("strix-pu", CounterEntity.class, 2L, "views", 5);
+        Strix.increment("strix-pu", CounterEntity.class, 1L, "likes", -1);
+        assertEquals(0, load(1).getViews());
+
+        Strix.flushCounters();
+
+        assertEquals(2, load(1).getViews());
+        assertEquals(-1, load(1).getLikes());
+        assertEquals(5, load(2).getViews());
+        assertEquals(0, load(3).getViews());
+    }
+
+    @Test
+    public void concurrentIncrementsAreNotLost() throws InterruptedException {
+        Strix.configureCounterBuffer("strix-pu", 5, TimeUnit.MILLISECONDS, 10000, false);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 2000; j++) {
+                    Strix.increment("strix-pu", CounterEntity.class, 1L + j % 3, "views", 1);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Strix.flushCounters();
+
+        assertEquals(16000, load(1).getViews() + load(2).getViews() + load(3).getViews());
+    }
+
+    @Test
+    public void periodicFlush() throws InterruptedException {
+        Strix.configureCounterBuffer("strix-pu", 50, TimeUnit.MILLISECONDS, 10000, false);
+
+        Strix.increment("strix-pu", CounterEntity.class, 3L, "views", 7);
+
+        awaitViews(3, 7);
+    }
+
+    @Test
+    public void flushWhenTooManyCountersArePending() throws InterruptedException {
+        Strix.configureCounterBuffer("strix-pu", 1, TimeUnit.HOURS, 2, false);
+
+        Strix.increment("strix-pu", CounterEntity.class, 1L, "views", 1);
+        Strix.increment("strix-pu", CounterEntity.class, 2L, "views", 1);
+
+        awaitViews(1, 1);
+        awaitViews(2, 1);
+    }
+
+    @Test
+    public void flushOnShutdown() throws SQLException {
+        Strix.configureCounterBuffer("strix-pu", 1, TimeUnit.HOURS, 10000, false);
+
+        Strix.increment("strix-pu", CounterEntity.class, 2L, "views", 3);
+        Strix.shutdown();
+
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:strix1");
+             ResultSet resultSet = connection.createStatement()
+                   .executeQuery("SELECT views FROM CounterEntity WHERE id = 2")) {
+            assertTrue(resultSet.next());
+            assertEquals(3, resultSet.getLong(1));
+        }
+    }
+
+    @Test
+    public void synchronousIncrementsJoinTransaction() {
+        Strix.configureCounterBuffer("strix-pu", 1, TimeUnit.HOURS, 10000, true);
+
+        Strix.increment("strix-pu", CounterEntity.class, 1L, "views", 2);
+        assertEquals(2, load(1).getViews());
+
+        try {
+            propagationManager.required(() -> {
+                Strix.increment("strix-pu", CounterEntity.class, 1L, "views", 2);
+                throw new IllegalStateException();
+            });
+            fail("Should not be reached");
+        } catch (IllegalStateException ex) {
+            assertEquals(2, load(1).getViews());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void synchronousIncrementOfUnknownAttribute() {
+        Strix.configureCounterBuffer("strix-pu", 1, TimeUnit.HOURS, 10000, true);
+
+        Strix.increment("strix-pu", CounterEntity.class, 1L, "unknown", 1);
+    }
+
+    @Test
+    public void invalidCountersAreDropped() {
+        Strix.configureCounterBuffer("strix-pu", 1, TimeUnit.HOURS, 10000, false);
+
+        Strix.increment("strix-pu", CounterEntity.class, 1L, "unknown", 1);
+        Strix.increment("strix-pu", CounterEntity.class, 1L, "views", 1);
+        Strix.flushCounters();
+        Strix.flushCounters();
+
+        assertEquals(1, load(1).getViews());
+    }
+}
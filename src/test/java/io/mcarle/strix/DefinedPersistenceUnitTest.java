@@ -0,0 +1,106 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.entity.JobEntity;
+import io.mcarle.strix.entity.TestEntity;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class DefinedPersistenceUnitTest {
+
+    @After
+    public void shutdownPersistence() {
+        Strix.shutdown();
+    }
+
+    private static PersistenceUnitDefinition definition(String database) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+        return Strix.definePersistenceUnit("strix-code-pu")
+              .dataSource(dataSource)
+              .entities(TestEntity.class)
+              .property("hibernate.dialect", "org.hibernate.dialect.H2Dialect")
+              .property("javax.persistence.schema-generation.database.action", "drop-and-create");
+    }
+
+    private static long count() {
+        return Strix.unitOfWork("strix-code-pu", false, () ->
+              Strix.em().createQuery("SELECT COUNT(t) FROM TestEntity t", Long.class).getSingleResult()
+        );
+    }
+
+    @Test
+    public void persistWithDataSource() {
+        Strix.startup(definition("strix-code-1"));
+
+        Strix.unitOfWork("strix-code-pu", true, () -> {
+            Strix.em().persist(new TestEntity());
+            Strix.em().persist(new TestEntity());
+            return null;
+        });
+        assertEquals(2L, count());
+    }
+
+    @Test
+    public void definedUnitIsDefault() {
+        Strix.startup(definition("strix-code-2"));
+
+        Strix.unitOfWork("", true, () -> {
+            Strix.em().persist(new TestEntity());
+            return null;
+        });
+        assertEquals(1L, count());
+    }
+
+    @Test
+    public void onlyListedEntitiesAreManaged() {
+        Strix.startup(definition("strix-code-3"));
+
+        try {
+            Strix.unitOfWork("strix-code-pu", true, () -> {
+                Strix.em().persist(new JobEntity());
+                return null;
+            });
+            fail("Should not be reached");
+        } catch (IllegalArgumentException ex) {
+            assertEquals(0L, count());
+        }
+    }
+
+    @Test
+    public void persistWithJdbcProperties() {
+        Strix.startup(null, null, Collections.singletonList(
+              Strix.definePersistenceUnit("strix-code-pu")
+                    .entities(TestEntity.class)
+                    .provider("org.hibernate.jpa.HibernatePersistenceProvider")
+                    .property("javax.persistence.jdbc.url", "jdbc:h2:mem:strix-code-4;DB_CLOSE_DELAY=-1")
+                    .property("javax.persistence.jdbc.driver", "org.h2.Driver")
+                    .property("javax.persistence.schema-generation.database.action", "drop-and-create")
+        ));
+
+        Strix.unitOfWork("strix-code-pu", true, () -> {
+            Strix.em().persist(new TestEntity());
+            return null;
+        });
+        assertEquals(1L, count());
+    }
+
+    @Test
+    public void persistenceXmlUnitsStillAvailable() {
+        Strix.startup(null, null, Collections.singletonList(definition("strix-code-5")));
+
+        Strix.unitOfWork("strix-pu", true, () -> {
+            Strix.em().persist(new TestEntity());
+            return null;
+        });
+        Strix.unitOfWork("strix-code-pu", true, () -> {
+            Strix.em().persist(new TestEntity());
+            return null;
+        });
+        assertEquals(1L, count());
+    }
+}
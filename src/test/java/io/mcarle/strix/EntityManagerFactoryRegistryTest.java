@@ -0,0 +1,82 @@
+package io.mcarle.strix;
+
+import org.junit.After;
+import org.junit.Test;
+
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class EntityManagerFactoryRegistryTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 200;
+
+    @After
+    public void closeFactories() {
+        EntityManagerFactoryRegistry.closeAll();
+    }
+
+    private static EntityManagerFactory factory() {
+        AtomicBoolean open = new AtomicBoolean(true);
+        return (EntityManagerFactory) Proxy.newProxyInstance(
+              EntityManagerFactory.class.getClassLoader(),
+              new Class<?>[]{EntityManagerFactory.class},
+              (proxy, method, args) -> {
+                  switch (method.getName()) {
+                      case "isOpen":
+                          return open.get();
+                      case "close":
+                          open.set(false);
+                          return null;
+                      case "equals":
+                          return proxy == args[0];
+                      case "hashCode":
+                          return System.identityHashCode(proxy);
+                      default:
+                          return null;
+                  }
+              }
+        );
+    }
+
+    @Test
+    public void concurrentAcquiresCreateOneFactory() throws Exception {
+        AtomicInteger creations = new AtomicInteger();
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < ROUNDS; round++) {
+                        barrier.await(10, TimeUnit.SECONDS);
+                        EntityManagerFactoryRegistry.acquire("registry-pu", "tenant-" + round, () -> {
+                            creations.incrementAndGet();
+                            return factory();
+                        }).release();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(ROUNDS, creations.get());
+        assertEquals(ROUNDS, EntityManagerFactoryRegistry.statistics().getCreatedFactories());
+        assertEquals(ROUNDS, EntityManagerFactoryRegistry.countOpen("registry-pu"));
+    }
+}
@@ -0,0 +1,78 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.FetchGraph;
+import io.mcarle.strix.annotation.Transactional;
+import io.mcarle.strix.entity.AuthorEntity;
+import io.mcarle.strix.entity.BookEntity;
+
+import javax.persistence.TypedQuery;
+import java.util.List;
+
+/**
+ * Manager with {@link FetchGraph} methods, which load books with their lazy author.
+ */
+@Transactional(persistenceUnit = "strix-pu")
+public class FetchGraphManager {
+
+    public long createBook(String title, String authorName) {
+        AuthorEntity author = new AuthorEntity();
+        author.setName(authorName);
+        Strix.em().persist(author);
+        BookEntity book = new BookEntity();
+        book.setTitle(title);
+        book.setAuthor(author);
+        Strix.em().persist(book);
+        return book.getId();
+    }
+
+    public BookEntity find(long id) {
+        return Strix.em().find(BookEntity.class, id);
+    }
+
+    @FetchGraph("BookEntity.author")
+    public BookEntity findWithNamedGraph(long id) {
+        return Strix.em().find(BookEntity.class, id);
+    }
+
+    @FetchGraph(entity = BookEntity.class, attributes = "author")
+    public BookEntity findWithAttributes(long id) {
+        return Strix.em().find(BookEntity.class, id);
+    }
+
+    @FetchGraph(entity = BookEntity.class, attributes = "author")
+    public BookEntity findByNestedMethod(long id) {
+        return find(id);
+    }
+
+    @FetchGraph(entity = BookEntity.class, attributes = "author", load = true)
+    public List<BookEntity> listByAuthorName(String name) {
+        return Strix.em()
+              .createQuery("SELECT b FROM BookEntity b WHERE b.author.name = :name", BookEntity.class)
+              .setParameter("name", name)
+              .getResultList();
+    }
+
+    public List<BookEntity> listByAuthorNameWithoutGraph(String name) {
+        return Strix.em()
+              .createQuery("SELECT b FROM BookEntity b WHERE b.author.name = :name", BookEntity.class)
+              .setParameter("name", name)
+              .getResultList();
+    }
+
+    @FetchGraph(entity = BookEntity.class, attributes = "author")
+    public long countAndFindAuthor(long authorId) {
+        Strix.em().find(AuthorEntity.class, authorId);
+        return Strix.em().createQuery("SELECT COUNT(b) FROM BookEntity b", Long.class).getSingleResult();
+    }
+
+    @FetchGraph(entity = BookEntity.class, attributes = "author")
+    public Object queryHint() {
+        TypedQuery<BookEntity> query = Strix.em().createQuery("SELECT b FROM BookEntity b", BookEntity.class);
+        return query.getHints().get("javax.persistence.fetchgraph");
+    }
+
+    @FetchGraph(entity = BookEntity.class, attributes = "unknown")
+    public BookEntity findWithUnknownAttribute(long id) {
+        return Strix.em().find(BookEntity.class, id);
+    }
+}
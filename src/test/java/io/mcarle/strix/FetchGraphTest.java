@@ -0,0 +1,165 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.entity.BookEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class FetchGraphTest {
+
+    private final FetchGraphManager fetchGraphManager = new FetchGraphManager();
+    private final PropagationManager propagationManager = new PropagationManager();
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup();
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.shutdown();
+        Strix.setTenantResolver(null);
+    }
+
+    private EntityManagerFactory factory() {
+        AtomicReference<EntityManagerFactory> factory = new AtomicReference<>();
+        propagationManager.required(() -> factory.set(Strix.em().getEntityManagerFactory()));
+        return factory.get();
+    }
+
+    private static boolean isAuthorLoaded(BookEntity book) {
+        return Persistence.getPersistenceUtil().isLoaded(book.getAuthor());
+    }
+
+    @Test
+    public void withoutFetchGraphAuthorIsLazy() {
+        long id = fetchGraphManager.createBook("Strix", "Marcel");
+
+        assertFalse(isAuthorLoaded(fetchGraphManager.find(id)));
+    }
+
+    @Test
+    public void findWithNamedGraph() {
+        long id = fetchGraphManager.createBook("Strix", "Marcel");
+
+        BookEntity book = fetchGraphManager.findWithNamedGraph(id);
+
+        assertTrue(isAuthorLoaded(book));
+        assertEquals("Marcel", book.getAuthor().getName());
+    }
+
+    @Test
+    public void closedFactoryDropsCachedGraphs() {
+        long id = fetchGraphManager.createBook("Strix", "Marcel");
+        AtomicReference<EntityManagerFactory> factory = new AtomicReference<>();
+        propagationManager.required(() -> factory.set(Strix.em().getEntityManagerFactory()));
+        fetchGraphManager.findWithNamedGraph(id);
+        assertTrue(FetchGraphs.isCached(factory.get()));
+
+        Strix.removePersistenceUnit("strix-pu");
+
+        assertFalse(factory.get().isOpen());
+        assertFalse(FetchGraphs.isCached(factory.get()));
+    }
+
+    @Test
+    public void replacedFactoryDropsOnlyItsCachedGraphs() {
+        AtomicReference<String> tenant = new AtomicReference<>();
+        Strix.setTenantResolver(new TenantResolver() {
+            @Override
+            public String resolveTenant(String persistenceUnit) {
+                return tenant.get();
+            }
+
+            @Override
+            public Map<String, String> tenantProperties(String persistenceUnit, String tenant) {
+                return Collections.emptyMap();
+            }
+        });
+        tenant.set("a");
+        fetchGraphManager.queryHint();
+        EntityManagerFactory replaced = factory();
+        tenant.set("b");
+        fetchGraphManager.queryHint();
+        EntityManagerFactory surviving = factory();
+        assertTrue(FetchGraphs.isCached(replaced));
+        assertTrue(FetchGraphs.isCached(surviving));
+
+        EntityManagerFactory replacement = Persistence.createEntityManagerFactory("strix-pu");
+        EntityManagerFactoryRegistry.replace("strix-pu", "a", replacement);
+
+        assertFalse(replaced.isOpen());
+        assertFalse(FetchGraphs.isCached(replaced));
+        assertTrue(FetchGraphs.isCached(surviving));
+
+        tenant.set("a");
+        fetchGraphManager.queryHint();
+        assertSame(replacement, factory());
+        assertTrue(FetchGraphs.isCached(replacement));
+    }
+
+    @Test
+    public void findWithAttributes() {
+        long id = fetchGraphManager.createBook("Strix", "Marcel");
+
+        assertTrue(isAuthorLoaded(fetchGraphManager.findWithAttributes(id)));
+    }
+
+    @Test
+    public void calledMethodsInheritFetchGraph() {
+        long id = fetchGraphManager.createBook("Strix", "Marcel");
+
+        assertTrue(isAuthorLoaded(fetchGraphManager.findByNestedMethod(id)));
+    }
+
+    @Test
+    public void queryWithFetchGraph() {
+        fetchGraphManager.createBook("Strix", "Marcel");
+        fetchGraphManager.createBook("Strix 2", "Marcel");
+        fetchGraphManager.createBook("Other", "Someone");
+
+        List<BookEntity> books = fetchGraphManager.listByAuthorName("Marcel");
+        assertEquals(2, books.size());
+        assertTrue(books.stream().allMatch(FetchGraphTest::isAuthorLoaded));
+
+        books = fetchGraphManager.listByAuthorNameWithoutGraph("Marcel");
+        assertEquals(2, books.size());
+        assertTrue(books.stream().noneMatch(FetchGraphTest::isAuthorLoaded));
+    }
+
+    @Test
+    public void otherTypesAreNotAffected() {
+        long id = fetchGraphManager.createBook("Strix", "Marcel");
+        long authorId = fetchGraphManager.find(id).getAuthor().getId();
+
+        assertEquals(1, fetchGraphManager.countAndFindAuthor(authorId));
+    }
+
+    @Test
+    public void graphIsCachedPerPersistenceUnit() {
+        Object graph = fetchGraphManager.queryHint();
+
+        assertNotNull(graph);
+        assertSame(graph, fetchGraphManager.queryHint());
+
+        Strix.shutdown();
+        Strix.startup();
+        assertNotSame(graph, fetchGraphManager.queryHint());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownAttribute() {
+        long id = fetchGraphManager.createBook("Strix", "Marcel");
+
+        fetchGraphManager.findWithUnknownAttribute(id);
+    }
+}
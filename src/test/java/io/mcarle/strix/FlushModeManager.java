@@ -0,0 +1,27 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.FlushMode;
+import io.mcarle.strix.annotation.Transactional;
+
+/**
+ * Manager, which executes the delivered runnables with the different {@link FlushMode flush modes} on the persistence
+ * unit {@code strix-pu}.
+ */
+@Transactional(persistenceUnit = "strix-pu")
+public class FlushModeManager {
+
+    @Transactional(persistenceUnit = "strix-pu", flushMode = FlushMode.AUTO)
+    public void auto(Runnable runnable) {
+        runnable.run();
+    }
+
+    @Transactional(persistenceUnit = "strix-pu", flushMode = FlushMode.COMMIT)
+    public void commit(Runnable runnable) {
+        runnable.run();
+    }
+
+    @Transactional(persistenceUnit = "strix-pu", flushMode = FlushMode.MANUAL)
+    public void manual(Runnable runnable) {
+        runnable.run();
+    }
+}
@@ -0,0 +1,109 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.entity.TestEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.FlushModeType;
+
+import static org.junit.Assert.*;
+
+public class FlushModeTest {
+
+    private final FlushModeManager flushModeManager = new FlushModeManager();
+    private final PropagationManager propagationManager = new PropagationManager();
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup();
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.setStaleQueryDetection(false);
+        Strix.shutdown();
+    }
+
+    private long count() {
+        return Strix.em().createQuery("SELECT COUNT(t) FROM TestEntity t", Long.class).getSingleResult();
+    }
+
+    private long committedCount() {
+        long[] count = new long[1];
+        propagationManager.required(() -> count[0] = count());
+        return count[0];
+    }
+
+    @Test
+    public void autoFlushesBeforeQuery() {
+        flushModeManager.auto(() -> {
+            Strix.em().persist(new TestEntity());
+            assertEquals(1, count());
+        });
+        assertEquals(1, committedCount());
+    }
+
+    @Test
+    public void commitFlushesOnlyOnCommit() {
+        flushModeManager.commit(() -> {
+            assertEquals(FlushModeType.COMMIT, Strix.em().getFlushMode());
+            Strix.em().persist(new TestEntity());
+            assertEquals(0, count());
+        });
+        assertEquals(1, committedCount());
+    }
+
+    @Test
+    public void manualFlushesOnlyExplicitly() {
+        flushModeManager.manual(() -> {
+            Strix.em().persist(new TestEntity());
+            assertEquals(0, count());
+            Strix.em().flush();
+            assertEquals(1, count());
+            Strix.em().persist(new TestEntity());
+        });
+        assertEquals(1, committedCount());
+    }
+
+    @Test
+    public void joinedCallsInheritFlushMode() {
+        flushModeManager.commit(() -> {
+            propagationManager.required(() -> assertEquals(FlushModeType.COMMIT, Strix.em().getFlushMode()));
+            flushModeManager.auto(() -> {
+                Strix.em().persist(new TestEntity());
+                assertEquals(0, count());
+            });
+        });
+        assertEquals(1, committedCount());
+    }
+
+    @Test
+    public void newTransactionUsesOwnFlushMode() {
+        flushModeManager.commit(() -> propagationManager.requiresNew(() -> {
+            Strix.em().persist(new TestEntity());
+            assertEquals(1, count());
+        }));
+    }
+
+    @Test
+    public void detectsStaleQueries() {
+        Strix.setStaleQueryDetection(true);
+        flushModeManager.commit(() -> {
+            assertEquals(0, count());
+            assertEquals(0, StaleQueryDetector.detected());
+            Strix.em().persist(new TestEntity());
+            assertEquals(0, count());
+            assertEquals(1, StaleQueryDetector.detected());
+            Strix.em().createQuery("SELECT t FROM TestEntity t WHERE t.id = :id", TestEntity.class)
+                  .setParameter("id", 1L)
+                  .getResultList();
+            assertEquals(2, StaleQueryDetector.detected());
+        });
+        flushModeManager.auto(() -> {
+            Strix.em().persist(new TestEntity());
+            assertEquals(2, count());
+        });
+        assertEquals(2, StaleQueryDetector.detected());
+    }
+}
@@ -0,0 +1,37 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.Isolation;
+import io.mcarle.strix.annotation.Propagation;
+import io.mcarle.strix.annotation.Transactional;
+
+/**
+ * Manager, which executes the delivered runnables with different {@link Isolation isolation levels} on the persistence
+ * unit {@code strix-pu}.
+ */
+@Transactional(persistenceUnit = "strix-pu")
+public class IsolationManager {
+
+    public void defaultIsolation(Runnable runnable) {
+        runnable.run();
+    }
+
+    @Transactional(persistenceUnit = "strix-pu", isolation = Isolation.READ_COMMITTED)
+    public void readCommitted(Runnable runnable) {
+        runnable.run();
+    }
+
+    @Transactional(persistenceUnit = "strix-pu", isolation = Isolation.SERIALIZABLE)
+    public void serializable(Runnable runnable) {
+        runnable.run();
+    }
+
+    @Transactional(persistenceUnit = "strix-pu", isolation = Isolation.SERIALIZABLE, propagation = Propagation.SUPPORTS)
+    public void supportsSerializable(Runnable runnable) {
+        runnable.run();
+    }
+
+    @Transactional(persistenceUnit = "strix-pu", propagation = Propagation.SUPPORTS)
+    public void supports(Runnable runnable) {
+        runnable.run();
+    }
+}
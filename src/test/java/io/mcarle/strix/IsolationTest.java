@@ -0,0 +1,97 @@
+package io.mcarle.strix;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class IsolationTest {
+
+    private final IsolationManager isolationManager = new IsolationManager();
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup();
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.shutdown();
+    }
+
+    private static Connection connection() {
+        return JdbcConnectionSupport.getConnection(Strix.em());
+    }
+
+    private static int isolationLevel() {
+        try {
+            return connection().getTransactionIsolation();
+        } catch (SQLException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Test
+    public void isolationLevelAppliedAndRestored() throws SQLException {
+        AtomicReference<Integer> defaultLevel = new AtomicReference<>();
+        isolationManager.defaultIsolation(() -> defaultLevel.set(isolationLevel()));
+        assertNotEquals(Connection.TRANSACTION_SERIALIZABLE, (int) defaultLevel.get());
+
+        AtomicReference<Connection> connection = new AtomicReference<>();
+        isolationManager.serializable(() -> {
+            connection.set(connection());
+            assertEquals(Connection.TRANSACTION_SERIALIZABLE, isolationLevel());
+        });
+        assertFalse(connection.get().isClosed());
+        assertEquals((int) defaultLevel.get(), connection.get().getTransactionIsolation());
+    }
+
+    @Test
+    public void isolationLevelRestoredAfterRollback() throws SQLException {
+        AtomicReference<Connection> connection = new AtomicReference<>();
+        try {
+            isolationManager.serializable(() -> {
+                connection.set(connection());
+                throw new IllegalArgumentException();
+            });
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        assertNotEquals(Connection.TRANSACTION_SERIALIZABLE, connection.get().getTransactionIsolation());
+    }
+
+    @Test
+    public void joinWithSameOrWeakerIsolationLevel() {
+        isolationManager.serializable(() -> {
+            Connection connection = connection();
+            isolationManager.serializable(() -> assertSame(connection, connection()));
+            isolationManager.readCommitted(() -> assertSame(connection, connection()));
+            isolationManager.defaultIsolation(() -> assertSame(connection, connection()));
+            isolationManager.supportsSerializable(() -> assertSame(connection, connection()));
+        });
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void joinWithStricterIsolationLevel() {
+        isolationManager.readCommitted(() -> isolationManager.serializable(() -> fail()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void joinDefaultIsolationLevelWithStricterIsolationLevel() {
+        isolationManager.defaultIsolation(() -> isolationManager.serializable(() -> fail()));
+    }
+
+    @Test
+    public void isolationLevelAppliedOnNonTransactionalEntityManager() {
+        isolationManager.supports(() -> {
+            isolationManager.serializable(() -> assertEquals(Connection.TRANSACTION_SERIALIZABLE, isolationLevel()));
+            assertNotEquals(Connection.TRANSACTION_SERIALIZABLE, isolationLevel());
+        });
+    }
+}
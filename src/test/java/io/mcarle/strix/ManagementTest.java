@@ -0,0 +1,126 @@
+package io.mcarle.strix;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ManagementTest {
+
+    private final PropagationManager propagationManager = new PropagationManager();
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    private ObjectName objectName;
+
+    @Before
+    public void startupPersistence() throws Exception {
+        Strix.startup();
+        objectName = UnitMonitor.objectName("strix-pu");
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.management("strix-pu").setDefaultTimeout(0);
+        Strix.management("strix-pu").setMaxConcurrentTransactions(0);
+        Strix.management("strix-pu").setTraceSampleRate(0);
+        Strix.shutdown();
+    }
+
+    private Object attribute(String name) throws Exception {
+        return mBeanServer.getAttribute(objectName, name);
+    }
+
+    @Test
+    public void showsOpenTransactions() throws Exception {
+        propagationManager.required(() -> {
+            try {
+                assertEquals(1, attribute("InFlightTransactions"));
+                assertEquals("io.mcarle.strix.PropagationManager.required(java.lang.Runnable)", attribute("OldestTransactionSignature"));
+                assertEquals(1, attribute("OpenFactories"));
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        assertEquals(0, attribute("InFlightTransactions"));
+        assertNull(attribute("OldestTransactionSignature"));
+        assertEquals(0L, attribute("OldestTransactionAgeMillis"));
+    }
+
+    @Test
+    public void countsCommitsAndRollbacks() throws Exception {
+        propagationManager.required(() -> {
+        });
+        try {
+            propagationManager.required(() -> {
+                throw new IllegalStateException("expected");
+            });
+            fail();
+        } catch (IllegalStateException ex) {
+            assertEquals("expected", ex.getMessage());
+        }
+        assertEquals(1L, attribute("Commits"));
+        assertEquals(1L, attribute("Rollbacks"));
+        assertEquals(0L, attribute("Timeouts"));
+    }
+
+    @Test
+    public void defaultTimeout() throws Exception {
+        mBeanServer.setAttribute(objectName, new Attribute("DefaultTimeout", 50));
+        try {
+            propagationManager.required(() -> {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+        } catch (RuntimeException ex) {
+            // EntityManager was closed by the timeout
+        }
+        assertEquals(1L, attribute("Timeouts"));
+        assertEquals(0L, attribute("Commits"));
+    }
+
+    @Test
+    public void maxConcurrentTransactions() throws Exception {
+        mBeanServer.setAttribute(objectName, new Attribute("MaxConcurrentTransactions", 1));
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> propagationManager.required(() -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }));
+        Thread.sleep(200);
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> propagationManager.required(() -> {
+        }));
+        Thread.sleep(200);
+        assertEquals(1, attribute("InFlightTransactions"));
+        assertFalse(second.isDone());
+        release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+        assertEquals(2L, attribute("Commits"));
+    }
+
+    @Test
+    public void settingsAreBounded() {
+        PersistenceUnitMXBean management = Strix.management("strix-pu");
+        management.setTraceSampleRate(2);
+        assertEquals(1, management.getTraceSampleRate(), 0);
+        management.setDefaultTimeout(-1);
+        assertEquals(0, management.getDefaultTimeout());
+        propagationManager.required(() -> {
+        });
+        assertEquals(1, management.getCommits());
+    }
+}
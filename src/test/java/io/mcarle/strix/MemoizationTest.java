@@ -0,0 +1,129 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.entity.TestEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+
+import static org.junit.Assert.*;
+
+public class MemoizationTest {
+
+    private final MemoizedManager memoizedManager = new MemoizedManager();
+    private final PropagationManager propagationManager = new PropagationManager();
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup();
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.shutdown();
+    }
+
+    @Test
+    public void cachesWithinTransaction() {
+        propagationManager.required(() -> {
+            assertEquals("a1", memoizedManager.echo("a"));
+            assertEquals("a1", memoizedManager.echo("a"));
+            assertEquals("b2", memoizedManager.echo("b"));
+            assertNull(memoizedManager.echo(null));
+            assertNull(memoizedManager.echo(null));
+            propagationManager.required(() -> assertEquals("a1", memoizedManager.echo("a")));
+        });
+        assertEquals(3, memoizedManager.executions.get());
+    }
+
+    @Test
+    public void dropsCacheAfterTransaction() {
+        propagationManager.required(() -> assertEquals("a1", memoizedManager.echo("a")));
+        propagationManager.required(() -> assertEquals("a2", memoizedManager.echo("a")));
+        try {
+            propagationManager.required(() -> {
+                assertEquals("a3", memoizedManager.echo("a"));
+                throw new IllegalArgumentException();
+            });
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        propagationManager.required(() -> assertEquals("a4", memoizedManager.echo("a")));
+    }
+
+    @Test
+    public void newTransactionHasOwnCache() {
+        propagationManager.required(() -> {
+            assertEquals("a1", memoizedManager.echo("a"));
+            propagationManager.requiresNew(() -> assertEquals("a2", memoizedManager.echo("a")));
+            assertEquals("a1", memoizedManager.echo("a"));
+        });
+    }
+
+    @Test
+    public void noCacheWithoutTransaction() {
+        assertEquals("a1", memoizedManager.echo("a"));
+        assertEquals("a2", memoizedManager.echo("a"));
+        propagationManager.supports(() -> assertEquals("a3", memoizedManager.echo("a")));
+        assertEquals("b", memoizedManager.transactionalEcho("b"));
+        assertEquals("b", memoizedManager.transactionalEcho("b"));
+        assertEquals(5, memoizedManager.executions.get());
+    }
+
+    @Test
+    public void doesNotCacheExceptions() {
+        propagationManager.required(() -> {
+            for (int i = 0; i < 2; i++) {
+                try {
+                    memoizedManager.fail("expected");
+                    fail();
+                } catch (IllegalStateException ex) {
+                    assertEquals("expected", ex.getMessage());
+                }
+            }
+        });
+        assertEquals(2, memoizedManager.executions.get());
+    }
+
+    @Test
+    public void invalidatesOnChanges() {
+        propagationManager.required(() -> {
+            assertEquals(0, memoizedManager.count());
+            assertEquals(0, memoizedManager.countInvalidated());
+            Strix.em().persist(new TestEntity());
+            assertEquals(0, memoizedManager.count());
+            assertEquals(1, memoizedManager.countInvalidated());
+            assertEquals(1, memoizedManager.countInvalidated());
+            Strix.em().createQuery("DELETE FROM TestEntity").executeUpdate();
+            assertEquals(0, memoizedManager.countInvalidated());
+        });
+        assertEquals(4, memoizedManager.executions.get());
+    }
+
+    @Test
+    public void invalidatesThroughEntityManagerObtainedBeforeCaching() {
+        propagationManager.required(memoizedManager::countInvalidated);
+        propagationManager.required(() -> {
+            EntityManager em = Strix.em();
+            assertEquals(0, memoizedManager.countInvalidated());
+            em.persist(new TestEntity());
+            assertEquals(1, memoizedManager.countInvalidated());
+            assertSame(em, Strix.em());
+        });
+        assertEquals(3, memoizedManager.executions.get());
+    }
+
+    @Test
+    public void entityManagerIsNotWrappedWithoutMemoizedResults() {
+        propagationManager.required(() -> {
+            EntityManager em = PersistenceManager.getContext().getEntityManager();
+            assertSame(em, Strix.em());
+            assertEquals("a1", memoizedManager.echo("a"));
+            assertNotSame(em, Strix.em());
+            assertEquals(Strix.em(), em);
+            assertSame(em, Strix.em().unwrap(EntityManager.class));
+        });
+    }
+}
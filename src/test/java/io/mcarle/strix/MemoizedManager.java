@@ -0,0 +1,46 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.Memoized;
+import io.mcarle.strix.annotation.Transactional;
+import io.mcarle.strix.entity.TestEntity;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Manager with {@link Memoized} methods, which count their executions.
+ */
+public class MemoizedManager {
+
+    final AtomicInteger executions = new AtomicInteger();
+
+    @Memoized
+    public String echo(String value) {
+        executions.incrementAndGet();
+        return value == null ? null : value + executions.get();
+    }
+
+    @Memoized
+    public String fail(String message) {
+        executions.incrementAndGet();
+        throw new IllegalStateException(message);
+    }
+
+    @Memoized
+    public long count() {
+        executions.incrementAndGet();
+        return Strix.em().createQuery("SELECT COUNT(t) FROM TestEntity t", Long.class).getSingleResult();
+    }
+
+    @Memoized(invalidatedBy = TestEntity.class)
+    public long countInvalidated() {
+        executions.incrementAndGet();
+        return Strix.em().createQuery("SELECT COUNT(t) FROM TestEntity t", Long.class).getSingleResult();
+    }
+
+    @Memoized
+    @Transactional(persistenceUnit = "strix-pu")
+    public String transactionalEcho(String value) {
+        executions.incrementAndGet();
+        return value;
+    }
+}
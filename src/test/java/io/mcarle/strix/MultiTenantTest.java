@@ -0,0 +1,141 @@
+package io.mcarle.strix;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MultiTenantTest {
+
+    private static final ThreadLocal<String> TENANT = new ThreadLocal<>();
+
+    private final TransactionalAnnotatedManager transactionalAnnotatedManager = new TransactionalAnnotatedManager();
+    private final PropagationManager propagationManager = new PropagationManager();
+
+    @Before
+    public void startupPersistence() {
+        Strix.setTenantResolver(new TenantResolver() {
+            @Override
+            public String resolveTenant(String persistenceUnit) {
+                return TENANT.get();
+            }
+
+            @Override
+            public Map<String, String> tenantProperties(String persistenceUnit, String tenant) {
+                return Collections.singletonMap(
+                      "javax.persistence.jdbc.url",
+                      "jdbc:h2:mem:" + persistenceUnit + "-" + tenant + ";DB_CLOSE_DELAY=-1"
+                );
+            }
+        });
+        Strix.startup();
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.shutdown();
+        Strix.setTenantResolver(null);
+        Strix.limitEntityManagerFactories(0, 0, TimeUnit.MILLISECONDS);
+        TENANT.remove();
+    }
+
+    @Test
+    public void tenantsUseOwnDatabase() {
+        TENANT.set("a");
+        transactionalAnnotatedManager.multisave_STRIX_PU();
+        assertEquals(3, transactionalAnnotatedManager.count_STRIX_PU());
+
+        TENANT.set("b");
+        assertEquals(0, transactionalAnnotatedManager.count_STRIX_PU());
+
+        TENANT.remove();
+        assertEquals(0, transactionalAnnotatedManager.count_STRIX_PU());
+        assertEquals(3, Strix.factoryStatistics().getOpenFactories());
+    }
+
+    @Test
+    public void requiresNewUsesTenantOfCallingThread() {
+        TENANT.set("a");
+        propagationManager.required(() -> propagationManager.requiresNew(
+              () -> Strix.em().persist(new io.mcarle.strix.entity.TestEntity())
+        ));
+        assertEquals(1, transactionalAnnotatedManager.count_STRIX_PU());
+
+        TENANT.remove();
+        assertEquals(0, transactionalAnnotatedManager.count_STRIX_PU());
+    }
+
+    @Test
+    public void leastRecentlyUsedFactoryIsEvicted() {
+        Strix.limitEntityManagerFactories(2, 0, TimeUnit.MILLISECONDS);
+
+        TENANT.set("a");
+        transactionalAnnotatedManager.multisave_STRIX_PU();
+        TENANT.set("b");
+        transactionalAnnotatedManager.count_STRIX_PU();
+        TENANT.set("c");
+        transactionalAnnotatedManager.count_STRIX_PU();
+
+        EntityManagerFactoryStatistics statistics = Strix.factoryStatistics();
+        assertEquals(2, statistics.getOpenFactories());
+        assertEquals(0, statistics.getDrainingFactories());
+        assertEquals(3, statistics.getCreatedFactories());
+        assertEquals(1, statistics.getEvictedFactories());
+
+        // Evicted factory of tenant a was closed, so the schema gets dropped and created again on next usage
+        TENANT.set("a");
+        assertEquals(0, transactionalAnnotatedManager.count_STRIX_PU());
+        assertEquals(2, Strix.factoryStatistics().getEvictedFactories());
+    }
+
+    @Test
+    public void idleFactoryIsEvicted() throws InterruptedException {
+        Strix.limitEntityManagerFactories(0, 500, TimeUnit.MILLISECONDS);
+        TENANT.set("a");
+        transactionalAnnotatedManager.count_STRIX_PU();
+        assertEquals(1, Strix.factoryStatistics().getOpenFactories());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((Strix.factoryStatistics().getOpenFactories() > 0 || Strix.factoryStatistics().getEvictedFactories() == 0)
+              && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, Strix.factoryStatistics().getOpenFactories());
+        assertEquals(1, Strix.factoryStatistics().getEvictedFactories());
+    }
+
+    @Test
+    public void releasedTenantIsClosedAfterInFlightTransactionFinished() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            TENANT.set("a");
+            transactionalAnnotatedManager.execute_STRIX_PU(() -> {
+                Strix.em().persist(new io.mcarle.strix.entity.TestEntity());
+                started.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        });
+        thread.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        Strix.releaseTenant("a");
+        assertEquals(0, Strix.factoryStatistics().getOpenFactories());
+        assertEquals(1, Strix.factoryStatistics().getDrainingFactories());
+
+        finish.countDown();
+        thread.join();
+        assertEquals(0, Strix.factoryStatistics().getDrainingFactories());
+    }
+}
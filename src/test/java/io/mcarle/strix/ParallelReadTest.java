@@ -0,0 +1,141 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.entity.TestEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.QueryTimeoutException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class ParallelReadTest {
+
+    private final PropagationManager propagationManager = new PropagationManager();
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup();
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.shutdown();
+    }
+
+    private static long count(EntityManager em) {
+        return em.createQuery("SELECT COUNT(t) FROM TestEntity t", Long.class).getSingleResult();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Test
+    public void tasksRunInParallel() {
+        propagationManager.required(() -> Strix.em().persist(new TestEntity()));
+        CountDownLatch allStarted = new CountDownLatch(3);
+        Set<EntityManager> entityManagers = ConcurrentHashMap.newKeySet();
+        Function<EntityManager, Long> task = em -> {
+            entityManagers.add(em);
+            allStarted.countDown();
+            await(allStarted);
+            return count(em);
+        };
+
+        List<Object> results = Strix.parallelRead(
+              "strix-pu",
+              10,
+              TimeUnit.SECONDS,
+              task,
+              em -> "second",
+              task,
+              task
+        );
+
+        assertEquals(Arrays.asList(1L, "second", 1L, 1L), results);
+        assertEquals(3, entityManagers.size());
+    }
+
+    @Test
+    public void tasksAreReadOnly() {
+        Strix.parallelRead("strix-pu", 10, TimeUnit.SECONDS, em -> {
+            em.persist(new TestEntity());
+            em.flush();
+            return null;
+        });
+
+        assertEquals(0L, (long) Strix.parallelRead("strix-pu", 10, TimeUnit.SECONDS, ParallelReadTest::count).get(0));
+    }
+
+    @Test
+    public void failureCancelsRemainingTasks() throws InterruptedException {
+        CountDownLatch waiting = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        AtomicBoolean completed = new AtomicBoolean(false);
+
+        try {
+            Strix.parallelRead("strix-pu", 10, TimeUnit.SECONDS, em -> {
+                try {
+                    waiting.countDown();
+                    Thread.sleep(5000);
+                    completed.set(true);
+                } catch (InterruptedException ex) {
+                    cancelled.countDown();
+                }
+                return null;
+            }, em -> {
+                await(waiting);
+                throw new IllegalStateException("Failed task");
+            });
+            fail("Should not be reached");
+        } catch (IllegalStateException ex) {
+            assertEquals("Failed task", ex.getMessage());
+        }
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+        assertFalse(completed.get());
+    }
+
+    @Test
+    public void deadlineCancelsAllTasks() throws InterruptedException {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        try {
+            Strix.parallelRead("strix-pu", 200, TimeUnit.MILLISECONDS, em -> {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException ex) {
+                    cancelled.countDown();
+                }
+                return null;
+            });
+            fail("Should not be reached");
+        } catch (QueryTimeoutException ex) {
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+        }
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void callableWithinTransaction() {
+        propagationManager.required(() -> {
+            Strix.em().persist(new TestEntity());
+            List<Long> counts = Strix.parallelRead("strix-pu", 10, TimeUnit.SECONDS, ParallelReadTest::count);
+            assertEquals(0L, (long) counts.get(0));
+        });
+    }
+}
@@ -0,0 +1,51 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.Propagation;
+import io.mcarle.strix.annotation.Transactional;
+
+/**
+ * Manager, which executes the delivered runnables with the different {@link Propagation propagations} on the
+ * persistence unit {@code strix-pu}.
+ */
+@Transactional(persistenceUnit = "strix-pu")
+public class PropagationManager {
+
+    public void required(Runnable runnable) {
+        runnable.run();
+    }
+
+    @Transactional(persistenceUnit = "strix-pu", propagation = Propagation.REQUIRES_NEW)
+    public void requiresNew(Runnable runnable) {
+        runnable.run();
+    }
+
+    @Transactional(persistenceUnit = "strix-pu", propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void requiresNewReadOnly(Runnable runnable) {
+        runnable.run();
+    }
+
+    @Transactional(persistenceUnit = "strix-pu", propagation = Propagation.SUPPORTS)
+    public void supports(Runnable runnable) {
+        runnable.run();
+    }
+
+    @Transactional(persistenceUnit = "strix-pu", propagation = Propagation.MANDATORY)
+    public void mandatory(Runnable runnable) {
+        runnable.run();
+    }
+
+    @Transactional(persistenceUnit = "strix-pu", propagation = Propagation.NEVER)
+    public void never(Runnable runnable) {
+        runnable.run();
+    }
+
+    @Transactional(persistenceUnit = "strix-pu", propagation = Propagation.NOT_SUPPORTED)
+    public void notSupported(Runnable runnable) {
+        runnable.run();
+    }
+
+    @Transactional(persistenceUnit = "strix-second-pu", propagation = Propagation.SUPPORTS)
+    public void supports_STRIX_SECOND_PU(Runnable runnable) {
+        runnable.run();
+    }
+}
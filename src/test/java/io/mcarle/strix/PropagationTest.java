@@ -0,0 +1,147 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.entity.TestEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TransactionRequiredException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class PropagationTest {
+
+    private final PropagationManager propagationManager = new PropagationManager();
+    private final TransactionalAnnotatedManager transactionalAnnotatedManager = new TransactionalAnnotatedManager();
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup();
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.shutdown();
+    }
+
+    private static boolean isTransactionActive() {
+        return Strix.em().getTransaction().isActive();
+    }
+
+    @Test
+    public void supportsWithoutTransaction() {
+        AtomicReference<EntityManager> em = new AtomicReference<>();
+        propagationManager.supports(() -> {
+            em.set(Strix.em());
+            assertFalse(isTransactionActive());
+        });
+        assertNotNull(em.get());
+        assertFalse(em.get().isOpen());
+    }
+
+    @Test
+    public void supportsJoinsTransaction() {
+        propagationManager.required(() -> {
+            EntityManager em = Strix.em();
+            propagationManager.supports(() -> {
+                assertSame(em, Strix.em());
+                assertTrue(isTransactionActive());
+            });
+        });
+    }
+
+    @Test
+    public void supportsOtherPersistenceUnitInOwnThread() {
+        propagationManager.required(() -> {
+            EntityManager em = Strix.em();
+            propagationManager.supports_STRIX_SECOND_PU(() -> {
+                assertNotSame(em, Strix.em());
+                assertFalse(isTransactionActive());
+            });
+        });
+    }
+
+    @Test
+    public void requiredBeginsTransactionOnNonTransactionalEntityManager() {
+        propagationManager.supports(() -> {
+            EntityManager em = Strix.em();
+            propagationManager.required(() -> {
+                assertSame(em, Strix.em());
+                assertTrue(isTransactionActive());
+                Strix.em().persist(new TestEntity());
+            });
+            assertSame(em, Strix.em());
+            assertFalse(isTransactionActive());
+            try {
+                propagationManager.mandatory(() -> fail());
+                fail();
+            } catch (TransactionRequiredException ex) {
+                // expected, as the transaction is finished
+            }
+        });
+        assertEquals(1, transactionalAnnotatedManager.count_STRIX_PU());
+    }
+
+    @Test(expected = TransactionRequiredException.class)
+    public void mandatoryWithoutTransaction() {
+        propagationManager.mandatory(() -> fail());
+    }
+
+    @Test
+    public void mandatoryJoinsTransaction() {
+        AtomicReference<EntityManager> em = new AtomicReference<>();
+        propagationManager.required(() -> {
+            em.set(Strix.em());
+            propagationManager.mandatory(() -> assertSame(em.get(), Strix.em()));
+        });
+        assertNotNull(em.get());
+    }
+
+    @Test
+    public void neverWithoutTransaction() {
+        AtomicReference<EntityManager> em = new AtomicReference<>();
+        propagationManager.never(() -> {
+            em.set(Strix.em());
+            assertFalse(isTransactionActive());
+        });
+        assertNotNull(em.get());
+        propagationManager.supports(() -> propagationManager.never(() -> assertFalse(isTransactionActive())));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void neverWithTransaction() {
+        propagationManager.required(() -> propagationManager.never(() -> fail()));
+    }
+
+    @Test
+    public void notSupportedSuspendsTransaction() {
+        propagationManager.required(() -> {
+            EntityManager em = Strix.em();
+            em.persist(new TestEntity());
+            em.flush();
+            propagationManager.notSupported(() -> {
+                assertNotSame(em, Strix.em());
+                assertFalse(isTransactionActive());
+                assertEquals(
+                      0L,
+                      (long) Strix.em().createQuery("SELECT count(*) FROM TestEntity", Long.class).getSingleResult()
+                );
+            });
+            assertTrue(isTransactionActive());
+        });
+        assertEquals(1, transactionalAnnotatedManager.count_STRIX_PU());
+    }
+
+    @Test
+    public void requiresNewStartsNewTransaction() {
+        propagationManager.required(() -> {
+            EntityManager em = Strix.em();
+            propagationManager.requiresNew(() -> {
+                assertNotSame(em, Strix.em());
+                assertTrue(isTransactionActive());
+            });
+        });
+    }
+}
@@ -0,0 +1,104 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.RegisteredQuery;
+import io.mcarle.strix.entity.TestEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.PersistenceException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class QueryRegistryTest {
+
+    static final class TestQueries {
+
+        @RegisteredQuery
+        static final String COUNT = "SELECT COUNT(t) FROM TestEntity t";
+        @RegisteredQuery(name = "TestEntity.byId", persistenceUnits = "strix-pu")
+        static final String BY_ID = "SELECT t FROM TestEntity t WHERE t.id = :id";
+        static final String NOT_REGISTERED = "SELECT t FROM TestEntity t";
+    }
+
+    @Before
+    public void startupPersistence() {
+        Strix.registerQueries(TestQueries.class);
+        Strix.startup();
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.shutdown();
+        Strix.unregisterQuery("TestQueries.COUNT");
+        Strix.unregisterQuery("TestEntity.byId");
+        Strix.unregisterQuery("invalid");
+    }
+
+    @Test
+    public void executeRegisteredQueries() {
+        Long id = Strix.unitOfWork("strix-pu", true, () -> {
+            TestEntity entity = new TestEntity();
+            Strix.em().persist(entity);
+            return entity.getId();
+        });
+
+        assertEquals(1L, (long) Strix.unitOfWork("strix-pu", false, () ->
+              Strix.query("TestQueries.COUNT", Long.class).getSingleResult()
+        ));
+        assertEquals(id, Strix.unitOfWork("strix-pu", false, () ->
+              ((TestEntity) Strix.query("TestEntity.byId").setParameter("id", id).getSingleResult()).getId()
+        ));
+        assertEquals(1L, (long) Strix.unitOfWork("strix-pu", false, () ->
+              Strix.query("TestQueries.COUNT", Long.class).getSingleResult()
+        ));
+
+        List<QueryStatistics> statistics = Strix.queryStatistics();
+        assertEquals(2, statistics.size());
+        assertEquals("TestQueries.COUNT", statistics.get(0).getName());
+        assertEquals(TestQueries.COUNT, statistics.get(0).getJpql());
+        assertEquals(2, statistics.get(0).getHits());
+        assertEquals(1, statistics.get(1).getHits());
+    }
+
+    @Test
+    public void hitsAreResetOnShutdown() {
+        Strix.unitOfWork("strix-pu", false, () -> Strix.query("TestQueries.COUNT").getSingleResult());
+        Strix.shutdown();
+        Strix.startup();
+
+        assertTrue(Strix.queryStatistics().stream().allMatch(statistics -> statistics.getHits() == 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownQuery() {
+        Strix.unitOfWork("strix-pu", false, () -> Strix.query("TestQueries.NOT_REGISTERED"));
+    }
+
+    @Test
+    public void invalidQueryFailsBootstrap() {
+        Strix.registerQuery("invalid", "SELECT t FROM TestEntity t WHERE t.name = :name", "strix-second-pu");
+
+        try {
+            Strix.unitOfWork("strix-second-pu", false, () -> null);
+            fail("Should not be reached");
+        } catch (PersistenceException ex) {
+            assertTrue(ex.getMessage().contains("invalid"));
+        }
+        assertEquals(0L, (long) Strix.unitOfWork("strix-pu", false, () ->
+              Strix.query("TestQueries.COUNT", Long.class).getSingleResult()
+        ));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onlyConstantsCanBeRegistered() {
+        Strix.registerQueries(InvalidQueries.class);
+    }
+
+    static final class InvalidQueries {
+
+        @RegisteredQuery
+        String query = "SELECT t FROM TestEntity t";
+    }
+}
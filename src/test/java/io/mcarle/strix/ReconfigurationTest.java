@@ -0,0 +1,144 @@
+package io.mcarle.strix;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ReconfigurationTest {
+
+    private final TransactionalAnnotatedManager transactionalAnnotatedManager = new TransactionalAnnotatedManager();
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup();
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.shutdown();
+    }
+
+    @Test
+    public void replaceWhileTrafficIsRunning() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong transactions = new AtomicLong();
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                while (running.get()) {
+                    try {
+                        transactionalAnnotatedManager.save_STRIX_PU();
+                        transactionalAnnotatedManager.count_STRIX_PU();
+                        transactions.incrementAndGet();
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        try {
+            waitForTransactions(transactions, 20);
+
+            Strix.replacePersistenceUnit("strix-pu", h2Properties("strix-replaced")).get(30, TimeUnit.SECONDS);
+            long transactionsAfterReplace = transactions.get();
+
+            waitForTransactions(transactions, transactionsAfterReplace + 20);
+        } finally {
+            running.set(false);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        EntityManagerFactoryStatistics statistics = Strix.factoryStatistics();
+        assertEquals(1, statistics.getOpenFactories());
+        assertEquals(0, statistics.getDrainingFactories());
+        assertEquals(1, statistics.getEvictedFactories());
+        assertTrue(transactionalAnnotatedManager.count_STRIX_PU() < transactions.get());
+    }
+
+    @Test
+    public void addAndRemovePersistenceUnit() throws Exception {
+        Strix.addPersistenceUnit("strix-second-pu", h2Properties("strix-added")).get(30, TimeUnit.SECONDS);
+        assertEquals(1, Strix.factoryStatistics().getOpenFactories());
+
+        transactionalAnnotatedManager.multisave_STRIX_SECOND_PU();
+        assertEquals(3, transactionalAnnotatedManager.count_STRIX_SECOND_PU());
+
+        Strix.removePersistenceUnit("strix-second-pu");
+        assertEquals(0, Strix.factoryStatistics().getOpenFactories());
+
+        // Falls back to the definition of the persistence.xml
+        assertEquals(0, transactionalAnnotatedManager.count_STRIX_SECOND_PU());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addExistingPersistenceUnit() {
+        transactionalAnnotatedManager.count_STRIX_PU();
+        Strix.addPersistenceUnit("strix-pu", h2Properties("strix-added"));
+    }
+
+    @Test
+    public void failingReplaceKeepsOldFactory() throws Exception {
+        transactionalAnnotatedManager.multisave_STRIX_PU();
+        Map<String, String> brokenProperties = h2Properties("strix-broken");
+        brokenProperties.put("javax.persistence.provider", "not.existing.Provider");
+        try {
+            Strix.replacePersistenceUnit("strix-pu", brokenProperties).get(30, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof javax.persistence.PersistenceException);
+        }
+        assertEquals(0, Strix.factoryStatistics().getEvictedFactories());
+        assertEquals(3, transactionalAnnotatedManager.count_STRIX_PU());
+        transactionalAnnotatedManager.multisave_STRIX_PU();
+        assertEquals(6, transactionalAnnotatedManager.count_STRIX_PU());
+    }
+
+    @Test
+    public void replaceAfterShutdownIsNotRegistered() throws Exception {
+        transactionalAnnotatedManager.count_STRIX_PU();
+        CompletableFuture<Void> replace = Strix.replacePersistenceUnit(
+              "strix-pu",
+              h2Properties("strix-replaced-after-shutdown")
+        );
+        Strix.shutdown();
+        try {
+            replace.get(30, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(0, Strix.factoryStatistics().getOpenFactories());
+        Strix.startup();
+    }
+
+    private static Map<String, String> h2Properties(String database) {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+        properties.put("javax.persistence.schema-generation.database.action", "drop-and-create");
+        return properties;
+    }
+
+    private static void waitForTransactions(AtomicLong transactions, long amount) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while (transactions.get() < amount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.entity.TestEntity;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class RollbackRuleTest {
+
+    @Rule
+    public RollbackRule rollbackRule = new RollbackRule("strix-pu");
+
+    private final PropagationManager propagationManager = new PropagationManager();
+
+    private static long countEntities() {
+        return Strix.em().createQuery("SELECT count(e) FROM TestEntity e", Long.class).getSingleResult();
+    }
+
+    @Before
+    public void noEntitiesOfOtherTests() {
+        assertEquals(0, countEntities());
+        assertEquals(1, Strix.factoryStatistics().getCreatedFactories());
+    }
+
+    @Test
+    public void joinsTestTransaction() {
+        AtomicReference<Object> em = new AtomicReference<>();
+        propagationManager.required(() -> {
+            em.set(Strix.em());
+            Strix.em().persist(new TestEntity());
+        });
+        assertSame(Strix.em(), em.get());
+        assertEquals(1, countEntities());
+    }
+
+    @Test
+    public void requiresNewRunsInSavepoint() {
+        Strix.em().persist(new TestEntity());
+        propagationManager.requiresNew(() -> {
+            assertEquals(1, countEntities());
+            Strix.em().persist(new TestEntity());
+        });
+        assertEquals(2, countEntities());
+    }
+
+    @Test
+    public void requiresNewRollbacksToSavepoint() {
+        Strix.em().persist(new TestEntity());
+        try {
+            propagationManager.requiresNew(() -> {
+                Strix.em().persist(new TestEntity());
+                assertEquals(2, countEntities());
+                throw new IllegalStateException("expected");
+            });
+            fail();
+        } catch (IllegalStateException ex) {
+            assertEquals("expected", ex.getMessage());
+        }
+        assertEquals(1, countEntities());
+    }
+
+    @Test
+    public void readOnlyRequiresNewKeepsEntitiesManaged() {
+        TestEntity entity = new TestEntity();
+        Strix.em().persist(entity);
+        propagationManager.requiresNewReadOnly(() -> assertEquals(1, countEntities()));
+        assertTrue(Strix.em().contains(entity));
+        Strix.em().remove(entity);
+        assertEquals(0, countEntities());
+    }
+
+    @Test
+    public void readOnlyRequiresNewDiscardsChanges() {
+        TestEntity entity = new TestEntity();
+        Strix.em().persist(entity);
+        propagationManager.requiresNewReadOnly(() -> Strix.em().persist(new TestEntity()));
+        assertFalse(Strix.em().contains(entity));
+        assertEquals(1, countEntities());
+    }
+}
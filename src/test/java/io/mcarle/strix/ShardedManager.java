@@ -0,0 +1,40 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.ShardKey;
+import io.mcarle.strix.annotation.Transactional;
+import io.mcarle.strix.entity.TestEntity;
+
+/**
+ * Manager, in which every public method works with the sharded logical persistence unit {@code strix-sharded}.
+ */
+@Transactional(persistenceUnit = "strix-sharded")
+public class ShardedManager {
+
+    public TestEntity save(@ShardKey long customerId) {
+        return Strix.em().merge(new TestEntity());
+    }
+
+    public long count() {
+        return Strix.em().createQuery("SELECT count(*) FROM TestEntity", Long.class).getSingleResult();
+    }
+
+    public void saveTwice(@ShardKey long customerId, long otherCustomerId) {
+        save(customerId);
+        save(otherCustomerId);
+    }
+
+    public long saveAndCount(@ShardKey long customerId) {
+        save(customerId);
+        return count();
+    }
+
+    public void saveTwiceInNewTransaction(@ShardKey long customerId, long otherCustomerId) {
+        save(customerId);
+        saveInNewTransaction(otherCustomerId);
+    }
+
+    @Transactional(persistenceUnit = "strix-sharded", requiresNew = true)
+    public TestEntity saveInNewTransaction(@ShardKey long customerId) {
+        return Strix.em().merge(new TestEntity());
+    }
+}
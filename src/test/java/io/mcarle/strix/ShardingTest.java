@@ -0,0 +1,155 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.sharding.ConsistentHashShardingStrategy;
+import io.mcarle.strix.sharding.CrossShardTransactionException;
+import io.mcarle.strix.sharding.LookupShardingStrategy;
+import io.mcarle.strix.sharding.RangeShardingStrategy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ShardingTest {
+
+    private final ShardedManager shardedManager = new ShardedManager();
+    private final TransactionalAnnotatedManager transactionalAnnotatedManager = new TransactionalAnnotatedManager();
+
+    @Before
+    public void startupPersistence() {
+        Map<Long, String> table = new HashMap<>();
+        table.put(1L, "strix-pu");
+        table.put(2L, "strix-second-pu");
+        Strix.registerSharding("strix-sharded", new LookupShardingStrategy(table));
+        Strix.startup();
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.shutdown();
+        Strix.unregisterSharding("strix-sharded");
+    }
+
+    @Test
+    public void routeByParameter() {
+        shardedManager.save(1L);
+        shardedManager.save(2L);
+        shardedManager.save(2L);
+
+        assertEquals(1, transactionalAnnotatedManager.count_STRIX_PU());
+        assertEquals(2, transactionalAnnotatedManager.count_STRIX_SECOND_PU());
+    }
+
+    @Test
+    public void routeByThreadBoundShardKey() {
+        shardedManager.save(2L);
+
+        assertEquals(0L, (long) Strix.withShardKey(1L, shardedManager::count));
+        assertEquals(1L, (long) Strix.withShardKey(2L, shardedManager::count));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void missingShardKey() {
+        shardedManager.count();
+    }
+
+    @Test
+    public void nestedCallStaysOnShard() {
+        shardedManager.save(1L);
+
+        assertEquals(1L, shardedManager.saveAndCount(2L));
+        assertEquals(1, transactionalAnnotatedManager.count_STRIX_PU());
+        assertEquals(1, transactionalAnnotatedManager.count_STRIX_SECOND_PU());
+    }
+
+    @Test
+    public void rejectCrossShardTransaction() {
+        try {
+            shardedManager.saveTwice(1L, 2L);
+            fail();
+        } catch (CrossShardTransactionException ex) {
+            // expected
+        }
+        assertEquals(0, transactionalAnnotatedManager.count_STRIX_PU());
+        assertEquals(0, transactionalAnnotatedManager.count_STRIX_SECOND_PU());
+    }
+
+    @Test
+    public void sameShardTransaction() {
+        shardedManager.saveTwice(1L, 1L);
+        assertEquals(2, transactionalAnnotatedManager.count_STRIX_PU());
+    }
+
+    @Test
+    public void otherShardInNewTransaction() {
+        shardedManager.saveTwiceInNewTransaction(1L, 2L);
+        assertEquals(1, transactionalAnnotatedManager.count_STRIX_PU());
+        assertEquals(1, transactionalAnnotatedManager.count_STRIX_SECOND_PU());
+    }
+
+    @Test
+    public void scatterGather() {
+        shardedManager.save(1L);
+        shardedManager.save(2L);
+        shardedManager.save(2L);
+
+        assertEquals(
+              Arrays.asList(1L, 2L),
+              Strix.scatterGather(
+                    "strix-sharded",
+                    em -> em.createQuery("SELECT count(*) FROM TestEntity", Long.class).getSingleResult()
+              )
+        );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void scatterGatherOnUnshardedPersistenceUnit() {
+        Strix.scatterGather("strix-pu", em -> null);
+    }
+
+    @Test
+    public void consistentHashShardingStrategy() {
+        ConsistentHashShardingStrategy strategy = new ConsistentHashShardingStrategy(Arrays.asList("a", "b", "c"));
+        Set<String> selected = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            String shard = strategy.selectShard(i);
+            assertEquals(shard, strategy.selectShard(i));
+            selected.add(shard);
+        }
+        assertEquals(new HashSet<>(strategy.getShards()), selected);
+    }
+
+    @Test
+    public void rangeShardingStrategy() {
+        Map<Long, String> lowerBounds = new HashMap<>();
+        lowerBounds.put(0L, "a");
+        lowerBounds.put(1000L, "b");
+        RangeShardingStrategy<Long> strategy = new RangeShardingStrategy<>(lowerBounds);
+        assertEquals(Arrays.asList("a", "b"), strategy.getShards());
+        assertEquals("a", strategy.selectShard(999L));
+        assertEquals("b", strategy.selectShard(1000L));
+        try {
+            strategy.selectShard(-1L);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void lookupShardingStrategyWithFallback() {
+        LookupShardingStrategy strategy = new LookupShardingStrategy(
+              java.util.Collections.singletonMap("vip", "a"),
+              new ConsistentHashShardingStrategy(Arrays.asList("b"))
+        );
+        assertEquals(Arrays.asList("a", "b"), strategy.getShards());
+        assertEquals("a", strategy.selectShard("vip"));
+        assertEquals("b", strategy.selectShard("other"));
+    }
+}
@@ -0,0 +1,39 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.Transactional;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Manager with single-flight methods, which count their executions and wait for {@link #release} before returning.
+ */
+@Transactional(persistenceUnit = "strix-pu", readOnly = true, singleFlight = true)
+public class SingleFlightManager {
+
+    final AtomicInteger executions = new AtomicInteger();
+    volatile CountDownLatch release = new CountDownLatch(0);
+
+    public StringBuilder find(String name) throws InterruptedException {
+        executions.incrementAndGet();
+        release.await(10, TimeUnit.SECONDS);
+        Strix.em().createQuery("SELECT count(e) FROM TestEntity e").getSingleResult();
+        return new StringBuilder(name);
+    }
+
+    public String fail(String name) throws InterruptedException {
+        executions.incrementAndGet();
+        release.await(10, TimeUnit.SECONDS);
+        throw new IllegalStateException(name);
+    }
+
+    @Transactional(persistenceUnit = "strix-pu", readOnly = true, singleFlight = true, singleFlightMaxWait = 50)
+    public StringBuilder findWithShortWait(String name) throws InterruptedException {
+        return find(name);
+    }
+
+    @Transactional(persistenceUnit = "strix-pu", singleFlight = true)
+    public void notReadOnly() {
+    }
+}
@@ -0,0 +1,163 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.entity.TestEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+
+    private final SingleFlightManager singleFlightManager = new SingleFlightManager();
+    private final PropagationManager propagationManager = new PropagationManager();
+    private ExecutorService executor;
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup();
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void shutdownPersistence() {
+        executor.shutdownNow();
+        Strix.shutdown();
+    }
+
+    private <T> List<CompletableFuture<T>> callConcurrently(int amount, Callable<T> callable) throws Exception {
+        singleFlightManager.release = new CountDownLatch(1);
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for (int i = 0; i < amount; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return callable.call();
+                } catch (RuntimeException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }, executor));
+        }
+        Thread.sleep(300);
+        singleFlightManager.release.countDown();
+        return futures;
+    }
+
+    @Test
+    public void equalCallsAreCoalesced() throws Exception {
+        List<CompletableFuture<StringBuilder>> futures = callConcurrently(8, () -> singleFlightManager.find("strix"));
+        StringBuilder result = futures.get(0).get(10, TimeUnit.SECONDS);
+        for (CompletableFuture<StringBuilder> future : futures) {
+            assertSame(result, future.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals("strix", result.toString());
+        assertEquals(1, singleFlightManager.executions.get());
+    }
+
+    @Test
+    public void differentCallsAreNotCoalesced() throws Exception {
+        singleFlightManager.release = new CountDownLatch(1);
+        CompletableFuture<StringBuilder> first = CompletableFuture.supplyAsync(() -> find("first"), executor);
+        CompletableFuture<StringBuilder> second = CompletableFuture.supplyAsync(() -> find("second"), executor);
+        Thread.sleep(300);
+        singleFlightManager.release.countDown();
+        assertEquals("first", first.get(10, TimeUnit.SECONDS).toString());
+        assertEquals("second", second.get(10, TimeUnit.SECONDS).toString());
+        assertEquals(2, singleFlightManager.executions.get());
+    }
+
+    @Test
+    public void exceptionIsShared() throws Exception {
+        List<CompletableFuture<String>> futures = callConcurrently(4, () -> singleFlightManager.fail("expected"));
+        for (CompletableFuture<String> future : futures) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException ex) {
+                assertEquals("expected", ex.getCause().getMessage());
+            }
+        }
+        assertEquals(1, singleFlightManager.executions.get());
+    }
+
+    @Test
+    public void executesOnItsOwnAfterMaxWait() throws Exception {
+        List<CompletableFuture<StringBuilder>> futures = callConcurrently(
+              2,
+              () -> singleFlightManager.findWithShortWait("strix")
+        );
+        assertNotSame(futures.get(0).get(10, TimeUnit.SECONDS), futures.get(1).get(10, TimeUnit.SECONDS));
+        assertEquals(2, singleFlightManager.executions.get());
+    }
+
+    @Test
+    public void sequentialCallsAreNotCoalesced() throws Exception {
+        assertNotSame(singleFlightManager.find("strix"), singleFlightManager.find("strix"));
+        assertEquals(2, singleFlightManager.executions.get());
+    }
+
+    @Test
+    public void joiningCallIsNotCoalesced() {
+        propagationManager.required(() -> {
+            try {
+                assertEquals("strix", singleFlightManager.find("strix").toString());
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        assertEquals(1, singleFlightManager.executions.get());
+    }
+
+    @Test
+    public void joiningDescriptorCallIsNotCoalesced() throws Exception {
+        TransactionalMethod method = TransactionalMethod.of(SingleFlightManager.class, "find", String.class);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<StringBuilder> inFlight = CompletableFuture.supplyAsync(
+              () -> method.invoke(null, new Object[]{"strix"}, () -> {
+                  release.await(10, TimeUnit.SECONDS);
+                  return new StringBuilder("in-flight");
+              }),
+              executor
+        );
+        Thread.sleep(300);
+        // Completes the in-flight execution, while a coalesced call would still wait for it
+        executor.execute(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        });
+        propagationManager.required(() -> {
+            Strix.em().persist(new TestEntity());
+            StringBuilder result = method.invoke(null, new Object[]{"strix"}, () -> new StringBuilder("joined"));
+            assertEquals("joined", result.toString());
+        });
+        assertEquals("in-flight", inFlight.get(10, TimeUnit.SECONDS).toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void singleFlightRequiresReadOnly() {
+        singleFlightManager.notReadOnly();
+    }
+
+    private StringBuilder find(String name) {
+        try {
+            return singleFlightManager.find(name);
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
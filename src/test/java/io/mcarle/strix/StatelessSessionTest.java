@@ -0,0 +1,87 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.entity.TestEntity;
+import org.hibernate.StatelessSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.TransactionRequiredException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class StatelessSessionTest {
+
+    private final PropagationManager propagationManager = new PropagationManager();
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup();
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.shutdown();
+    }
+
+    private static long countEntities() {
+        return Strix.em().createQuery("SELECT count(e) FROM TestEntity e", Long.class).getSingleResult();
+    }
+
+    private long countEntitiesInNewTransaction() {
+        AtomicReference<Long> count = new AtomicReference<>();
+        propagationManager.required(() -> count.set(countEntities()));
+        return count.get();
+    }
+
+    @Test(expected = TransactionRequiredException.class)
+    public void statelessOutsideOfTransaction() {
+        StrixHibernate.stateless();
+    }
+
+    @Test(expected = TransactionRequiredException.class)
+    public void statelessWithoutTransaction() {
+        propagationManager.supports(StrixHibernate::stateless);
+    }
+
+    @Test
+    public void statelessSharesTransaction() {
+        AtomicReference<StatelessSession> session = new AtomicReference<>();
+        propagationManager.required(() -> {
+            session.set(StrixHibernate.stateless());
+            assertSame(session.get(), StrixHibernate.stateless());
+            for (int i = 0; i < 3; i++) {
+                session.get().insert(new TestEntity());
+            }
+            assertEquals(3, countEntities());
+            assertFalse(Strix.em().contains(session.get().createQuery("FROM TestEntity").list().get(0)));
+        });
+        assertFalse(session.get().isOpen());
+        assertEquals(3, countEntitiesInNewTransaction());
+    }
+
+    @Test
+    public void statelessRollbacksWithTransaction() {
+        try {
+            propagationManager.required(() -> {
+                StrixHibernate.stateless().insert(new TestEntity());
+                throw new IllegalStateException("expected");
+            });
+            fail();
+        } catch (IllegalStateException ex) {
+            assertEquals("expected", ex.getMessage());
+        }
+        assertEquals(0, countEntitiesInNewTransaction());
+    }
+
+    @Test
+    public void statelessPerTransactionInUnitOfWork() {
+        Strix.unitOfWork("strix-pu", false, () -> {
+            AtomicReference<StatelessSession> session = new AtomicReference<>();
+            propagationManager.required(() -> session.set(StrixHibernate.stateless()));
+            propagationManager.required(() -> assertNotSame(session.get(), StrixHibernate.stateless()));
+            return null;
+        });
+    }
+}
@@ -0,0 +1,139 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.annotation.Transactional;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StatisticsTest {
+
+    private final PropagationManager propagationManager = new PropagationManager();
+
+    static class First {
+        @Transactional(persistenceUnit = "strix-pu")
+        public static class Repository {
+            public void run() {
+            }
+        }
+    }
+
+    static class Second {
+        @Transactional(persistenceUnit = "strix-pu")
+        public static class Repository {
+            public void run() {
+            }
+        }
+    }
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup();
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.setStatisticsSampleRate(1);
+        Strix.shutdown();
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Test
+    public void ranksJoinPoints() {
+        propagationManager.required(() -> sleep(100));
+        for (int i = 0; i < 20; i++) {
+            propagationManager.requiresNew(() -> sleep(10));
+        }
+
+        TransactionStatistics stats = Strix.stats();
+
+        assertEquals(2, stats.getSlowestByP99().size());
+        MethodStatistics slowest = stats.getSlowestByP99().get(0);
+        assertEquals("io.mcarle.strix.PropagationManager.required(java.lang.Runnable)", slowest.getSignature());
+        assertEquals(1, slowest.getCalls());
+        assertTrue(slowest.toString(), slowest.getP99Millis() >= 100);
+        assertTrue(slowest.toString(), slowest.getBeforeCommitP99Millis() >= 100);
+        assertTrue(slowest.toString(), slowest.getCommitP99Millis() < 100);
+
+        MethodStatistics mostTotal = stats.getSlowestByTotal().get(0);
+        assertEquals("io.mcarle.strix.PropagationManager.requiresNew(java.lang.Runnable)", mostTotal.getSignature());
+        assertEquals(20, mostTotal.getCalls());
+        assertTrue(mostTotal.toString(), mostTotal.getTotalMillis() >= 200);
+        assertTrue(mostTotal.toString(), mostTotal.getP50Millis() >= 10);
+    }
+
+    @Test
+    public void limitsReport() {
+        propagationManager.required(() -> {
+        });
+        propagationManager.requiresNew(() -> {
+        });
+
+        assertEquals(1, Strix.stats(1).getSlowestByP99().size());
+        assertEquals(1, Strix.stats(1).getSlowestByTotal().size());
+    }
+
+    @Test
+    public void separatesClassesWithSameSimpleName() {
+        new First.Repository().run();
+        new Second.Repository().run();
+
+        assertEquals(2, Strix.stats().getSlowestByTotal().size());
+        assertEquals(
+              "io.mcarle.strix.StatisticsTest$First$Repository.run()",
+              TransactionalMethod.of(First.Repository.class, "run").getSignature()
+        );
+    }
+
+    @Test
+    public void samplesTransactions() {
+        Strix.setStatisticsSampleRate(0);
+        propagationManager.required(() -> {
+        });
+        assertTrue(Strix.stats().getSlowestByP99().isEmpty());
+        assertEquals(0, Strix.stats().getSampleRate(), 0);
+
+        Strix.setStatisticsSampleRate(0.5);
+        for (int i = 0; i < 200; i++) {
+            propagationManager.required(() -> {
+            });
+        }
+        long calls = Strix.stats().getSlowestByP99().get(0).getCalls();
+        assertTrue("calls: " + calls, calls > 50 && calls < 150);
+    }
+
+    @Test
+    public void resetsOnShutdown() {
+        propagationManager.required(() -> {
+        });
+        Strix.shutdown();
+        Strix.startup();
+
+        assertTrue(Strix.stats().getSlowestByTotal().isEmpty());
+    }
+
+    @Test
+    public void histogramBuckets() {
+        for (long micros = 0; micros < 100_000; micros++) {
+            int bucket = LatencyHistogram.bucket(micros);
+            assertTrue(micros + " in " + bucket, micros <= LatencyHistogram.upperBound(bucket));
+            assertTrue(micros + " in " + bucket, bucket == 0 || micros > LatencyHistogram.upperBound(bucket - 1));
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000_000L);
+        }
+        assertEquals(100, histogram.count());
+        assertEquals(5050, histogram.totalMillis(), 0.001);
+        assertEquals(50, histogram.percentileMillis(50), 50 * 0.25);
+        assertEquals(99, histogram.percentileMillis(99), 99 * 0.25);
+    }
+}
@@ -0,0 +1,116 @@
+package io.mcarle.strix;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class TransactionContextTest {
+
+    private final TransactionalAnnotatedManager transactionalAnnotatedManager = new TransactionalAnnotatedManager();
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup();
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.shutdown();
+    }
+
+    @Test
+    public void contextOnlyBoundWhileNeeded() throws Exception {
+        assertNull(PersistenceManager.getContext());
+
+        AtomicReference<TransactionContext> context = new AtomicReference<>();
+        transactionalAnnotatedManager.execute_STRIX_PU(() -> context.set(PersistenceManager.getContext()));
+        assertNotNull(context.get());
+        assertNull(context.get().getEntityManager());
+        assertNull(PersistenceManager.getContext());
+
+        Strix.withShardKey(1, () -> {
+            assertNotNull(PersistenceManager.getContext());
+            transactionalAnnotatedManager.execute_STRIX_PU(() -> {
+                assertNotNull(PersistenceManager.getContext().getEntityManager());
+                assertEquals(1, PersistenceManager.getShardKey());
+            });
+            assertNotNull(PersistenceManager.getContext());
+            assertNull(PersistenceManager.getContext().getEntityManager());
+            return null;
+        });
+        assertNull(PersistenceManager.getContext());
+    }
+
+    @Test
+    public void joinsOnlySamePersistenceUnitWithoutRequiresNew() {
+        TransactionalMethod samePersistenceUnit = TransactionalMethod.of(TransactionalAnnotatedManager.class, "count_STRIX_PU");
+        TransactionalMethod otherPersistenceUnit = TransactionalMethod.of(TransactionalAnnotatedManager.class, "count_STRIX_SECOND_PU");
+        TransactionalMethod requiresNew = TransactionalMethod.of(TransactionalAnnotatedManager.class, "throwInOwnTransaction_STRIX_PU");
+
+        assertFalse(samePersistenceUnit.joinsCurrentTransaction(null));
+        transactionalAnnotatedManager.execute_STRIX_PU(() -> {
+            assertTrue(samePersistenceUnit.joinsCurrentTransaction(null));
+            assertFalse(otherPersistenceUnit.joinsCurrentTransaction(null));
+            assertFalse(requiresNew.joinsCurrentTransaction(null));
+        });
+    }
+
+    @Test
+    public void joinedCallDoesNotAllocate() {
+        TransactionalMethod method = TransactionalMethod.of(TransactionalAnnotatedManager.class, "count_STRIX_PU");
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        AtomicLong allocated = new AtomicLong();
+        AtomicLong joined = new AtomicLong();
+
+        transactionalAnnotatedManager.execute_STRIX_PU(() -> {
+            long threadId = Thread.currentThread().getId();
+            int calls = 100_000;
+            for (int i = 0; i < calls; i++) {
+                method.joinsCurrentTransaction(null);
+            }
+            long joinedCalls = 0;
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < calls; i++) {
+                if (method.joinsCurrentTransaction(null)) {
+                    joinedCalls++;
+                }
+            }
+            allocated.set(threadBean.getThreadAllocatedBytes(threadId) - before);
+            joined.set(joinedCalls);
+        });
+
+        assertEquals(100_000, joined.get());
+        // A single allocation per call would be at least 1.6MB
+        assertTrue("Allocated " + allocated.get() + " bytes", allocated.get() < 100_000);
+    }
+
+    @Test
+    public void joinedWovenCallAllocatesOnlyJoinPoint() {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Runnable noop = () -> {
+        };
+        AtomicLong allocated = new AtomicLong();
+
+        transactionalAnnotatedManager.execute_STRIX_PU(() -> {
+            long threadId = Thread.currentThread().getId();
+            int calls = 100_000;
+            for (int i = 0; i < calls; i++) {
+                transactionalAnnotatedManager.execute_STRIX_PU(noop);
+            }
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < calls; i++) {
+                transactionalAnnotatedManager.execute_STRIX_PU(noop);
+            }
+            allocated.set(threadBean.getThreadAllocatedBytes(threadId) - before);
+        });
+        // AspectJ allocates the join point, its closure and their argument arrays, about 112 bytes per call. Any
+        // allocation of strix on top, e.g. a lambda, would reach 128 bytes per call.
+        assertTrue("Allocated " + allocated.get() + " bytes", allocated.get() < 100_000 * 128L);
+    }
+}
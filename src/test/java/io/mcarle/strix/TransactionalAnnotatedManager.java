@@ -42,6 +42,10 @@ public class TransactionalAnnotatedManager {
         return Strix.em().merge(testEntity);
     }
 
+    public void execute_STRIX_PU(Runnable runnable) {
+        runnable.run();
+    }
+
     /* ======================= ======= ======================= */
     /* =======================  COUNT  ======================= */
     /* ======================= ======= ======================= */
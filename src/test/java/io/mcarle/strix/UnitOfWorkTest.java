@@ -0,0 +1,139 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.entity.TestEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class UnitOfWorkTest {
+
+    private final PropagationManager propagationManager = new PropagationManager();
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup();
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.shutdown();
+    }
+
+    private static long countEntities() {
+        AtomicReference<Long> count = new AtomicReference<>();
+        new PropagationManager().required(() -> count.set(
+              Strix.em().createQuery("SELECT count(e) FROM TestEntity e", Long.class).getSingleResult()
+        ));
+        return count.get();
+    }
+
+    @Test
+    public void transactionalUnitOfWorkSharesEntityManagerAndTransaction() {
+        AtomicReference<TestEntity> entity = new AtomicReference<>();
+        EntityManager em = Strix.unitOfWork("strix-pu", true, () -> {
+            propagationManager.required(() -> {
+                entity.set(new TestEntity());
+                Strix.em().persist(entity.get());
+            });
+            propagationManager.required(() -> assertTrue(Strix.em().contains(entity.get())));
+            assertTrue(Strix.em().getTransaction().isActive());
+            return Strix.em();
+        });
+        assertFalse(em.isOpen());
+        assertEquals(1, countEntities());
+    }
+
+    @Test
+    public void transactionalUnitOfWorkRollbacksOnException() {
+        try {
+            Strix.unitOfWork("strix-pu", true, () -> {
+                propagationManager.required(() -> Strix.em().persist(new TestEntity()));
+                throw new IllegalStateException("expected");
+            });
+            fail();
+        } catch (IllegalStateException ex) {
+            assertEquals("expected", ex.getMessage());
+        }
+        assertEquals(0, countEntities());
+    }
+
+    @Test
+    public void nonTransactionalUnitOfWorkCommitsEachCall() {
+        AtomicReference<TestEntity> entity = new AtomicReference<>();
+        Strix.unitOfWork("strix-pu", false, () -> {
+            EntityManager em = Strix.em();
+            assertFalse(em.getTransaction().isActive());
+            propagationManager.required(() -> {
+                assertSame(em, Strix.em());
+                entity.set(new TestEntity());
+                Strix.em().persist(entity.get());
+            });
+            assertFalse(em.getTransaction().isActive());
+            assertTrue(em.contains(entity.get()));
+            try {
+                propagationManager.required(() -> {
+                    Strix.em().persist(new TestEntity());
+                    throw new IllegalStateException("expected");
+                });
+                fail();
+            } catch (IllegalStateException ex) {
+                assertEquals("expected", ex.getMessage());
+            }
+            propagationManager.supports(() -> assertSame(em, Strix.em()));
+            return null;
+        });
+        assertEquals(1, countEntities());
+    }
+
+    @Test
+    public void nestedUnitOfWorkIsJoined() throws Exception {
+        Strix.unitOfWork("strix-pu", false, () -> {
+            EntityManager em = Strix.em();
+            Strix.unitOfWork("strix-pu", false, () -> {
+                assertSame(em, Strix.em());
+                return null;
+            });
+            Strix.unitOfWork("strix-second-pu", false, () -> {
+                assertNotSame(em, Strix.em());
+                return null;
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void nestedTransactionalUnitOfWorkUsesOuterEntityManager() {
+        AtomicReference<TestEntity> entity = new AtomicReference<>();
+        Strix.unitOfWork("strix-pu", false, () -> {
+            EntityManager em = Strix.em();
+            propagationManager.required(() -> {
+                entity.set(new TestEntity());
+                Strix.em().persist(entity.get());
+            });
+            Strix.unitOfWork("strix-pu", true, () -> {
+                assertSame(em, Strix.em());
+                assertTrue(Strix.em().getTransaction().isActive());
+                assertTrue(Strix.em().contains(entity.get()));
+                propagationManager.required(() -> Strix.em().persist(new TestEntity()));
+                return null;
+            });
+            assertFalse(em.getTransaction().isActive());
+            assertTrue(em.contains(entity.get()));
+            return null;
+        });
+        assertEquals(2, countEntities());
+    }
+
+    @Test(expected = IOException.class)
+    public void checkedExceptionIsRethrown() throws Exception {
+        Strix.unitOfWork("strix-pu", false, () -> {
+            throw new IOException();
+        });
+    }
+}
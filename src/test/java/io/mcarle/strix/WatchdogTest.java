@@ -0,0 +1,76 @@
+package io.mcarle.strix;
+
+import io.mcarle.strix.entity.TestEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class WatchdogTest {
+
+    private final PropagationManager propagationManager = new PropagationManager();
+    private final List<LongRunningTransaction> reports = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup();
+        Strix.watchTransactions(100, TimeUnit.MILLISECONDS, reports::add);
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.watchTransactions(0, TimeUnit.MILLISECONDS);
+        Strix.shutdown();
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Test
+    public void reportsLongRunningTransactionOnce() {
+        propagationManager.required(() -> sleep(500));
+
+        assertEquals(1, reports.size());
+        LongRunningTransaction report = reports.get(0);
+        assertEquals("strix-pu", report.getPersistenceUnit());
+        assertEquals("io.mcarle.strix.PropagationManager.required(java.lang.Runnable)", report.getSignature());
+        assertEquals(Thread.currentThread().getName(), report.getThreadName());
+        assertTrue(report.getElapsedMillis() >= 100);
+        assertNotNull(report.getStackTrace());
+        assertTrue(
+              report.toString(),
+              Arrays.stream(report.getStackTrace()).anyMatch(element -> element.getMethodName().equals("sleep"))
+        );
+    }
+
+    @Test
+    public void ignoresShortTransactions() {
+        propagationManager.required(() -> {
+        });
+        sleep(300);
+
+        assertTrue(reports.isEmpty());
+    }
+
+    @Test
+    public void neverEndsTransaction() {
+        propagationManager.required(() -> {
+            sleep(300);
+            Strix.em().persist(new TestEntity());
+        });
+
+        assertEquals(1, reports.size());
+        assertEquals(1, Strix.management("strix-pu").getCommits());
+    }
+}
@@ -0,0 +1,31 @@
+package io.mcarle.strix.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+@Entity
+public class AuthorEntity implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Basic(optional = false)
+    private String name;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
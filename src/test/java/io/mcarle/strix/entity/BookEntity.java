@@ -0,0 +1,43 @@
+package io.mcarle.strix.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+@Entity
+@NamedEntityGraph(name = "BookEntity.author", attributeNodes = @NamedAttributeNode("author"))
+public class BookEntity implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Basic(optional = false)
+    private String title;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    private AuthorEntity author;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public AuthorEntity getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(AuthorEntity author) {
+        this.author = author;
+    }
+}
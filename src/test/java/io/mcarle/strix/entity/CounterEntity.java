@@ -0,0 +1,41 @@
+package io.mcarle.strix.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+@Entity
+public class CounterEntity implements Serializable {
+
+    @Id
+    private Long id;
+
+    @Basic(optional = false)
+    private long views;
+
+    @Basic(optional = false)
+    private int likes;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getViews() {
+        return views;
+    }
+
+    public void setViews(long views) {
+        this.views = views;
+    }
+
+    public int getLikes() {
+        return likes;
+    }
+
+    public void setLikes(int likes) {
+        this.likes = likes;
+    }
+}
@@ -0,0 +1,42 @@
+package io.mcarle.strix.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+@Entity
+public class JobEntity implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Basic(optional = false)
+    private String status;
+
+    @Basic(optional = false)
+    private int priority;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+}
@@ -0,0 +1,29 @@
+package io.mcarle.strix.processor;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+
+/**
+ * Interface of the manager, which will be compiled with the {@link TransactionalProcessor} in
+ * {@link TransactionalProcessorTest}.
+ */
+public interface ProcessedManager {
+
+    EntityManager getEntityManager();
+
+    EntityManager getEntityManagerNoTransaction();
+
+    EntityManager getEntityManagerInNewTransaction();
+
+    long saveAndCount(int amount);
+
+    long count();
+
+    void saveThenThrow() throws IOException;
+
+    int sum(Integer... values);
+
+    int sumSingleFlight(Integer... values);
+
+    <R> R identity(R value);
+}
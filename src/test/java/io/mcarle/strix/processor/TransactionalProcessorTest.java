@@ -0,0 +1,219 @@
+package io.mcarle.strix.processor;
+
+import io.mcarle.strix.Strix;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class TransactionalProcessorTest {
+
+    private static final String SOURCE = "" +
+          "package io.mcarle.strix.processor.generated;\n" +
+          "\n" +
+          "import io.mcarle.strix.Strix;\n" +
+          "import io.mcarle.strix.annotation.NoTransaction;\n" +
+          "import io.mcarle.strix.annotation.Transactional;\n" +
+          "import io.mcarle.strix.entity.TestEntity;\n" +
+          "import io.mcarle.strix.processor.ProcessedManager;\n" +
+          "\n" +
+          "import javax.persistence.EntityManager;\n" +
+          "import java.io.IOException;\n" +
+          "\n" +
+          "@Transactional(persistenceUnit = \"strix-pu\")\n" +
+          "public class Manager<N extends Number> implements ProcessedManager {\n" +
+          "\n" +
+          "    public EntityManager getEntityManager() {\n" +
+          "        return Strix.em();\n" +
+          "    }\n" +
+          "\n" +
+          "    @NoTransaction\n" +
+          "    public EntityManager getEntityManagerNoTransaction() {\n" +
+          "        return Strix.em();\n" +
+          "    }\n" +
+          "\n" +
+          "    public EntityManager getEntityManagerInNewTransaction() {\n" +
+          "        EntityManager outer = Strix.em();\n" +
+          "        EntityManager inner = newTransaction();\n" +
+          "        return outer != inner && outer.isOpen() ? inner : null;\n" +
+          "    }\n" +
+          "\n" +
+          "    @Transactional(persistenceUnit = \"strix-pu\", requiresNew = true)\n" +
+          "    protected EntityManager newTransaction() {\n" +
+          "        return Strix.em();\n" +
+          "    }\n" +
+          "\n" +
+          "    public long saveAndCount(int amount) {\n" +
+          "        for (int i = 0; i < amount; i++) {\n" +
+          "            Strix.em().persist(new TestEntity());\n" +
+          "        }\n" +
+          "        return count();\n" +
+          "    }\n" +
+          "\n" +
+          "    public long count() {\n" +
+          "        return Strix.em().createQuery(\"SELECT count(*) FROM TestEntity\", Long.class).getSingleResult();\n" +
+          "    }\n" +
+          "\n" +
+          "    public void saveThenThrow() throws IOException {\n" +
+          "        Strix.em().persist(new TestEntity());\n" +
+          "        throw new IOException();\n" +
+          "    }\n" +
+          "\n" +
+          "    public int sum(Integer... values) {\n" +
+          "        return java.util.Arrays.stream(values).mapToInt(Integer::intValue).sum();\n" +
+          "    }\n" +
+          "\n" +
+          "    @Transactional(persistenceUnit = \"strix-pu\", readOnly = true, singleFlight = true)\n" +
+          "    public int sumSingleFlight(Integer... values) {\n" +
+          "        return sum(values);\n" +
+          "    }\n" +
+          "\n" +
+          "    public <R> R identity(R value) {\n" +
+          "        return value;\n" +
+          "    }\n" +
+          "\n" +
+          "    public final void notOverridable() {\n" +
+          "    }\n" +
+          "\n" +
+          "    public static void notTransactional() {\n" +
+          "    }\n" +
+          "\n" +
+          "    @Transactional(persistenceUnit = \"strix-pu\")\n" +
+          "    public static abstract class Repository {\n" +
+          "\n" +
+          "        public abstract long count();\n" +
+          "\n" +
+          "        public long size() {\n" +
+          "            return count();\n" +
+          "        }\n" +
+          "    }\n" +
+          "}\n";
+
+    private static ProcessedManager manager;
+    private static String generatedSource;
+    private static String generatedAbstractSource;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        Path directory = Files.createTempDirectory("strix-processor");
+        Path sourceFile = directory.resolve("io/mcarle/strix/processor/generated/Manager.java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.write(sourceFile, SOURCE.getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+        int result = compiler.run(null, diagnostics, diagnostics,
+              "-classpath", System.getProperty("java.class.path") + File.pathSeparator + classpathOfTestClasses(),
+              "-processor", TransactionalProcessor.class.getName(),
+              "-d", directory.toString(),
+              "-s", directory.toString(),
+              sourceFile.toString()
+        );
+        assertEquals(diagnostics.toString(), 0, result);
+
+        generatedSource = new String(
+              Files.readAllBytes(directory.resolve("io/mcarle/strix/processor/generated/Strix_Manager.java")),
+              StandardCharsets.UTF_8
+        );
+        generatedAbstractSource = new String(
+              Files.readAllBytes(directory.resolve("io/mcarle/strix/processor/generated/Strix_Manager_Repository.java")),
+              StandardCharsets.UTF_8
+        );
+        ClassLoader classLoader = new URLClassLoader(
+              new URL[]{directory.toUri().toURL()},
+              TransactionalProcessorTest.class.getClassLoader()
+        );
+        manager = (ProcessedManager) classLoader.loadClass("io.mcarle.strix.processor.generated.Strix_Manager")
+              .newInstance();
+    }
+
+    private static String classpathOfTestClasses() throws Exception {
+        return String.join(File.pathSeparator, Arrays.asList(
+              new File(Strix.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString(),
+              new File(TransactionalProcessorTest.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString(),
+              new File(EntityManager.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString()
+        ));
+    }
+
+    @Before
+    public void startupPersistence() {
+        Strix.startup();
+    }
+
+    @After
+    public void shutdownPersistence() {
+        Strix.shutdown();
+    }
+
+    @Test
+    public void generatedMethodIsTransactional() {
+        EntityManager em = manager.getEntityManager();
+        assertNotNull(em);
+        assertFalse(em.isOpen());
+        assertNull(manager.getEntityManagerNoTransaction());
+    }
+
+    @Test
+    public void commitAndJoin() {
+        assertEquals(3, manager.saveAndCount(3));
+        assertEquals(3, manager.count());
+    }
+
+    @Test
+    public void requiresNew() {
+        assertNotNull(manager.getEntityManagerInNewTransaction());
+    }
+
+    @Test
+    public void checkedExceptionIsRethrownAndRollbacked() {
+        try {
+            manager.saveThenThrow();
+            fail();
+        } catch (IOException ex) {
+            // expected
+        }
+        assertEquals(0, manager.count());
+    }
+
+    @Test
+    public void varargsAndGenerics() {
+        assertEquals(6, manager.sum(1, 2, 3));
+        assertEquals("strix", manager.identity("strix"));
+    }
+
+    @Test
+    public void singleFlightPassesArguments() {
+        assertEquals(6, manager.sumSingleFlight(1, 2, 3));
+        assertTrue(generatedSource.contains("invoke(null, new Object[]{values}, "));
+    }
+
+    @Test
+    public void onlyOverridableMethodsAreGenerated() {
+        assertTrue(generatedSource.contains("class Strix_Manager<N extends java.lang.Number> extends io.mcarle.strix.processor.generated.Manager<N>"));
+        assertFalse(generatedSource.contains("getEntityManagerNoTransaction"));
+        assertFalse(generatedSource.contains("notOverridable"));
+        assertFalse(generatedSource.contains("notTransactional"));
+    }
+
+    @Test
+    public void abstractMethodsAreNotGenerated() {
+        assertTrue(generatedAbstractSource.contains("public abstract class Strix_Manager_Repository"));
+        assertTrue(generatedAbstractSource.contains("size()"));
+        assertFalse(generatedAbstractSource.contains("count()"));
+    }
+}